@@ -0,0 +1,409 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// -------------------------------------------------------------
+// BatchQueryRunner
+// Answers a file of queries, one per line, either as JSON objects
+//     {"id": 7, "op": "shortest", "from": "A", "to": "H"}
+// or as CSV rows "op,from,to" (an optional "op,from,to" header line is
+// skipped). op is "reachable" (or "path"), "shortest" (or "distance")
+// or "adjacent"; "id" is optional and echoed back unchanged.
+//
+// Queries are read in windows of WINDOW lines. Within a window they are
+// grouped by source vertex, so one search per source and operation
+// answers all of its targets, and the groups run in parallel on the
+// common fork-join pool. Results are written in input order, as JSON
+// lines (result true/false, a distance, or null for no path) or as CSV
+// rows "op,from,to,result". Memory stays bounded by the window size no
+// matter how long the input is.
+// -------------------------------------------------------------
+final class BatchQueryRunner {
+
+    static final int WINDOW = 1 << 16;
+
+    private enum Op {
+        REACHABLE, SHORTEST, ADJACENT
+    }
+
+    private final GraphQueryService service;
+    private final boolean csv;
+    private long lineNumber;
+    private long answered;
+    private long failed;
+
+    BatchQueryRunner(GraphQueryService service, boolean csv) {
+        this.service = service;
+        this.csv = csv;
+    }
+
+    // Reads every query from in and writes one result line per query to out.
+    void run(BufferedReader in, Writer out) throws IOException {
+        if (csv) {
+            out.write("op,from,to,result\n");
+        }
+        List<Query> window = new ArrayList<>(WINDOW);
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || (csv && lineNumber == 1 && line.trim().equals("op,from,to"))) {
+                continue;
+            }
+            window.add(csv ? parseCsv(line) : parseJson(line));
+            if (window.size() == WINDOW) {
+                answer(window, out);
+                window.clear();
+            }
+        }
+        answer(window, out);
+        out.flush();
+    }
+
+    // Queries answered and queries rejected so far.
+    long answered() {
+        return answered;
+    }
+
+    long failed() {
+        return failed;
+    }
+
+    private void answer(List<Query> window, Writer out) throws IOException {
+        Map<String, Group> groups = new LinkedHashMap<>();
+        for (Query q : window) {
+            if (q.error == null) {
+                groups.computeIfAbsent(q.from, Group::new).add(q);
+            }
+        }
+        new ArrayList<>(groups.values()).parallelStream().forEach(this::answer);
+
+        StringBuilder text = new StringBuilder();
+        for (Query q : window) {
+            text.setLength(0);
+            if (csv) {
+                text.append(q.opName).append(',').append(q.from).append(',').append(q.to).append(',');
+                text.append(q.error != null ? "error: " + q.error : q.result).append('\n');
+            } else {
+                text.append('{');
+                if (q.id != null) {
+                    text.append("\"id\":").append(q.id).append(',');
+                }
+                appendField(text, "op", q.opName).append(',');
+                appendField(text, "from", q.from).append(',');
+                appendField(text, "to", q.to).append(',');
+                if (q.error != null) {
+                    appendField(text, "error", q.error);
+                } else {
+                    text.append("\"result\":").append(q.result);
+                }
+                text.append("}\n");
+            }
+            if (q.error != null) {
+                failed++;
+            } else {
+                answered++;
+            }
+            out.append(text);
+        }
+    }
+
+    // Runs at most one search per operation for the whole group.
+    private void answer(Group group) {
+        if (!group.reachable.isEmpty()) {
+            boolean[] found = service.reachable(group.source, targets(group.reachable));
+            for (int i = 0; i < found.length; i++) {
+                group.reachable.get(i).result = String.valueOf(found[i]);
+            }
+        }
+        if (!group.shortest.isEmpty()) {
+            int[] distances = service.shortestPathLengths(group.source, targets(group.shortest));
+            for (int i = 0; i < distances.length; i++) {
+                group.shortest.get(i).result = distances[i] < 0 ? "null" : String.valueOf(distances[i]);
+            }
+        }
+        if (!group.adjacent.isEmpty()) {
+            boolean[] adjacent = service.adjacent(group.source, targets(group.adjacent));
+            for (int i = 0; i < adjacent.length; i++) {
+                group.adjacent.get(i).result = String.valueOf(adjacent[i]);
+            }
+        }
+    }
+
+    private static List<String> targets(List<Query> queries) {
+        List<String> targets = new ArrayList<>(queries.size());
+        for (Query q : queries) {
+            targets.add(q.to);
+        }
+        return targets;
+    }
+
+    private Query parseCsv(String line) {
+        Query q = new Query();
+        String[] parts = line.split(",", -1);
+        if (parts.length != 3) {
+            q.opName = line.trim();
+            q.from = "";
+            q.to = "";
+            q.error = "expected op,from,to on line " + lineNumber;
+            return q;
+        }
+        q.opName = parts[0].trim();
+        q.from = parts[1].trim();
+        q.to = parts[2].trim();
+        q.resolve();
+        return q;
+    }
+
+    private Query parseJson(String line) {
+        Query q = new Query();
+        try {
+            JsonLine json = new JsonLine(line);
+            json.expect('{');
+            if (!json.tryConsume('}')) {
+                do {
+                    String key = json.string();
+                    json.expect(':');
+                    String raw = json.scalar();
+                    switch (key) {
+                        case "id":
+                            q.id = raw;
+                            break;
+                        case "op":
+                            q.opName = JsonLine.text(raw);
+                            break;
+                        case "from":
+                        case "source":
+                            q.from = JsonLine.text(raw);
+                            break;
+                        case "to":
+                        case "target":
+                            q.to = JsonLine.text(raw);
+                            break;
+                        default:
+                            // Other fields are ignored.
+                    }
+                } while (json.tryConsume(','));
+                json.expect('}');
+            }
+            json.end();
+        } catch (IllegalArgumentException e) {
+            q.error = e.getMessage() + " on line " + lineNumber;
+        }
+        if (q.opName == null) {
+            q.opName = "";
+        }
+        if (q.from == null) {
+            q.from = "";
+        }
+        if (q.to == null) {
+            q.to = "";
+        }
+        if (q.error == null) {
+            q.resolve();
+        }
+        return q;
+    }
+
+    private static StringBuilder appendField(StringBuilder text, String key, String value) {
+        text.append('"').append(key).append("\":");
+        return JsonLine.quote(text, value);
+    }
+
+    private static final class Query {
+        String id; // raw JSON value, or null
+        String opName;
+        String from;
+        String to;
+        Op op;
+        String result; // JSON literal
+        String error;
+
+        void resolve() {
+            switch (opName) {
+                case "reachable":
+                case "path":
+                    op = Op.REACHABLE;
+                    break;
+                case "shortest":
+                case "distance":
+                    op = Op.SHORTEST;
+                    break;
+                case "adjacent":
+                    op = Op.ADJACENT;
+                    break;
+                default:
+                    error = "unknown op '" + opName + "'";
+            }
+        }
+    }
+
+    // The queries of one window that share a source.
+    private static final class Group {
+        final String source;
+        final List<Query> reachable = new ArrayList<>();
+        final List<Query> shortest = new ArrayList<>();
+        final List<Query> adjacent = new ArrayList<>();
+
+        Group(String source) {
+            this.source = source;
+        }
+
+        void add(Query q) {
+            switch (q.op) {
+                case REACHABLE:
+                    reachable.add(q);
+                    break;
+                case SHORTEST:
+                    shortest.add(q);
+                    break;
+                default:
+                    adjacent.add(q);
+            }
+        }
+    }
+
+    // -------------------------------------------------------------
+    // JsonLine
+    // Just enough JSON for one flat object per line: string keys and
+    // scalar values (strings, numbers, true, false, null). Nested objects
+    // and arrays are rejected. Errors are IllegalArgumentExceptions.
+    // -------------------------------------------------------------
+    static final class JsonLine {
+        private final String s;
+        private int pos;
+
+        JsonLine(String s) {
+            this.s = s;
+        }
+
+        void expect(char c) {
+            skipSpace();
+            if (pos >= s.length() || s.charAt(pos) != c) {
+                throw new IllegalArgumentException("expected '" + c + "' at column " + (pos + 1));
+            }
+            pos++;
+        }
+
+        boolean tryConsume(char c) {
+            skipSpace();
+            if (pos < s.length() && s.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void end() {
+            skipSpace();
+            if (pos != s.length()) {
+                throw new IllegalArgumentException("unexpected text at column " + (pos + 1));
+            }
+        }
+
+        // A string value, unescaped.
+        String string() {
+            return text(scalar());
+        }
+
+        // The raw text of a scalar value, quotes and escapes included.
+        String scalar() {
+            skipSpace();
+            int start = pos;
+            if (pos < s.length() && s.charAt(pos) == '"') {
+                pos++;
+                while (pos < s.length() && s.charAt(pos) != '"') {
+                    pos += s.charAt(pos) == '\\' ? 2 : 1;
+                }
+                if (pos >= s.length()) {
+                    throw new IllegalArgumentException("unterminated string");
+                }
+                pos++;
+                return s.substring(start, pos);
+            }
+            while (pos < s.length() && ",}] \t".indexOf(s.charAt(pos)) < 0) {
+                if (s.charAt(pos) == '{' || s.charAt(pos) == '[') {
+                    throw new IllegalArgumentException("nested values are not supported");
+                }
+                pos++;
+            }
+            if (pos == start) {
+                throw new IllegalArgumentException("expected a value at column " + (pos + 1));
+            }
+            return s.substring(start, pos);
+        }
+
+        // The text of a raw scalar: strings are unescaped, anything else is
+        // returned as written.
+        static String text(String raw) {
+            if (raw.isEmpty() || raw.charAt(0) != '"') {
+                return raw;
+            }
+            StringBuilder out = new StringBuilder(raw.length());
+            for (int i = 1; i < raw.length() - 1; i++) {
+                char c = raw.charAt(i);
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                char e = raw.charAt(++i);
+                switch (e) {
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    case 'b':
+                        out.append('\b');
+                        break;
+                    case 'f':
+                        out.append('\f');
+                        break;
+                    case 'u':
+                        if (i + 4 >= raw.length()) {
+                            throw new IllegalArgumentException("bad \\u escape");
+                        }
+                        try {
+                            out.append((char) Integer.parseInt(raw.substring(i + 1, i + 5), 16));
+                        } catch (NumberFormatException ex) {
+                            throw new IllegalArgumentException("bad \\u escape");
+                        }
+                        i += 4;
+                        break;
+                    default:
+                        out.append(e); // \" \\ \/
+                }
+            }
+            return out.toString();
+        }
+
+        // Appends value as a JSON string literal.
+        static StringBuilder quote(StringBuilder out, String value) {
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.append('\\').append(c);
+                } else if (c < 0x20) {
+                    out.append(String.format("\\u%04x", (int) c));
+                } else {
+                    out.append(c);
+                }
+            }
+            return out.append('"');
+        }
+
+        private void skipSpace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
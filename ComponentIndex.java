@@ -0,0 +1,318 @@
+import java.util.Arrays;
+
+// -------------------------------------------------------------
+// ComponentIndex
+// Weakly and strongly connected components of a CompressedGraph,
+// computed once in O(V + E) so that component sizes and same-component
+// checks are plain array lookups afterwards.
+//
+// Weak components (edge directions ignored) come from a union-find
+// with union by size and path halving. Strong components come from an
+// iterative Tarjan search with explicit stacks, so deep graphs cannot
+// overflow the thread stack. Tarjan finishes components in reverse
+// topological order: after a build, for every edge u -> v between two
+// different strong components, strongComponent(u) > strongComponent(v).
+//
+// The index follows graph changes (see GraphEdit) as far as it cheaply
+// can. Adding an edge between two weak components merges them: the
+// members of each weak component form a cycle through weakNext, so the
+// smaller one is relabeled in O(its size). Such an edge cannot close a
+// cycle, so the strong components stay as they are. What cannot be
+// decided locally - an edge added inside a weak component between two
+// strong ones, or the last link between two vertices removed - marks
+// that half of the index stale, and refreshed() recomputes only the
+// stale half. Component ids are then no longer dense.
+// -------------------------------------------------------------
+final class ComponentIndex {
+
+    private int vertexCount;
+    private int[] weakId;
+    private int[] weakNext;
+    private int[] weakSize;
+    private int weakIds;
+    private int weakCount;
+    private int[] strongId;
+    private int[] strongSize;
+    private int strongCount;
+    private boolean weakStale;
+    private boolean strongStale;
+
+    private ComponentIndex(int vertexCount) {
+        this.vertexCount = vertexCount;
+    }
+
+    static ComponentIndex build(CompressedGraph graph) {
+        ComponentIndex index = new ComponentIndex(graph.vertexCount());
+        index.buildWeak(graph);
+        index.buildStrong(graph);
+        return index;
+    }
+
+    // An independent copy, e.g. to change while the original is being read.
+    ComponentIndex copy() {
+        ComponentIndex c = new ComponentIndex(vertexCount);
+        c.weakId = weakId.clone();
+        c.weakNext = weakNext.clone();
+        c.weakSize = weakSize.clone();
+        c.weakIds = weakIds;
+        c.weakCount = weakCount;
+        c.strongId = strongId.clone();
+        c.strongSize = strongSize.clone();
+        c.strongCount = strongCount;
+        c.weakStale = weakStale;
+        c.strongStale = strongStale;
+        return c;
+    }
+
+    // Whether a change made part of the index unusable; see refreshed().
+    boolean isStale() {
+        return weakStale || strongStale;
+    }
+
+    // A copy with the stale parts recomputed from graph, which must be the
+    // graph after all changes applied so far.
+    ComponentIndex refreshed(CompressedGraph graph) {
+        ComponentIndex c = copy();
+        if (weakStale) {
+            c.buildWeak(graph);
+        }
+        if (strongStale) {
+            c.buildStrong(graph);
+        }
+        return c;
+    }
+
+    private void buildWeak(CompressedGraph graph) {
+        int n = vertexCount;
+        // Union every edge, then number the roots densely.
+        int[] parent = new int[n];
+        int[] size = new int[n];
+        for (int v = 0; v < n; v++) {
+            parent[v] = v;
+            size[v] = 1;
+        }
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                union(parent, size, u, graph.target(e));
+            }
+        }
+        weakId = new int[Math.max(n, 1)];
+        int[] rootId = new int[n];
+        Arrays.fill(rootId, -1);
+        int count = 0;
+        for (int v = 0; v < n; v++) {
+            int root = find(parent, v);
+            if (rootId[root] < 0) {
+                rootId[root] = count++;
+            }
+            weakId[v] = rootId[root];
+        }
+        weakSize = new int[Math.max(count, 1)];
+        for (int v = 0; v < n; v++) {
+            weakSize[weakId[v]]++;
+        }
+        // Link the members of each component into a cycle.
+        weakNext = new int[Math.max(n, 1)];
+        int[] first = new int[count];
+        int[] last = new int[count];
+        Arrays.fill(first, -1);
+        for (int v = 0; v < n; v++) {
+            int c = weakId[v];
+            if (first[c] < 0) {
+                first[c] = v;
+            } else {
+                weakNext[last[c]] = v;
+            }
+            last[c] = v;
+        }
+        for (int c = 0; c < count; c++) {
+            weakNext[last[c]] = first[c];
+        }
+        weakIds = count;
+        weakCount = count;
+        weakStale = false;
+    }
+
+    private void buildStrong(CompressedGraph graph) {
+        int n = vertexCount;
+        // Tarjan with an explicit call stack. cursor[u] is the next out-edge
+        // of u still to be explored.
+        strongId = new int[Math.max(n, 1)];
+        Arrays.fill(strongId, -1);
+        int[] order = new int[n];
+        Arrays.fill(order, -1);
+        int[] low = new int[n];
+        int[] cursor = new int[n];
+        int[] stack = new int[n];
+        int[] calls = new int[n];
+        int stackSize = 0;
+        int count = 0;
+        int counter = 0;
+        int[] size = new int[Math.max(n, 1)];
+
+        for (int root = 0; root < n; root++) {
+            if (order[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            order[root] = low[root] = counter++;
+            cursor[root] = graph.begin(root);
+            stack[stackSize++] = root;
+            calls[depth++] = root;
+
+            while (depth > 0) {
+                int u = calls[depth - 1];
+                if (cursor[u] < graph.end(u)) {
+                    int v = graph.target(cursor[u]++);
+                    if (order[v] < 0) {
+                        order[v] = low[v] = counter++;
+                        cursor[v] = graph.begin(v);
+                        stack[stackSize++] = v;
+                        calls[depth++] = v;
+                    } else if (strongId[v] < 0 && order[v] < low[u]) {
+                        low[u] = order[v]; // v is still on the stack
+                    }
+                    continue;
+                }
+                depth--;
+                if (low[u] == order[u]) {
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        strongId[w] = count;
+                        size[count]++;
+                    } while (w != u);
+                    count++;
+                }
+                if (depth > 0) {
+                    int caller = calls[depth - 1];
+                    low[caller] = Math.min(low[caller], low[u]);
+                }
+            }
+        }
+        strongSize = Arrays.copyOf(size, Math.max(count, 1));
+        strongCount = count;
+        strongStale = false;
+    }
+
+    // -------------------------------------------------------------
+    // Incremental maintenance, called through GraphEdit.applyTo.
+    // -------------------------------------------------------------
+    void vertexAdded() {
+        int v = vertexCount++;
+        // The two halves may have been rebuilt at different sizes.
+        int capacity = v + (v >> 1) + 1;
+        if (v == weakId.length) {
+            weakId = Arrays.copyOf(weakId, capacity);
+            weakNext = Arrays.copyOf(weakNext, capacity);
+        }
+        if (v == strongId.length) {
+            strongId = Arrays.copyOf(strongId, capacity);
+        }
+        if (weakIds == weakSize.length) {
+            weakSize = Arrays.copyOf(weakSize, weakIds + (weakIds >> 1) + 1);
+        }
+        if (strongCount == strongSize.length) {
+            strongSize = Arrays.copyOf(strongSize, strongCount + (strongCount >> 1) + 1);
+        }
+        weakId[v] = weakIds;
+        weakSize[weakIds++] = 1;
+        weakNext[v] = v;
+        weakCount++;
+        strongId[v] = strongCount;
+        strongSize[strongCount++] = 1;
+    }
+
+    void edgeAdded(int u, int v) {
+        int a = weakId[u];
+        int b = weakId[v];
+        if (a != b) {
+            // Even while stale the weak ids only ever lump true components
+            // together, so different ids still mean different components.
+            if (weakSize[a] < weakSize[b]) {
+                int t = a;
+                a = b;
+                b = t;
+                t = u;
+                u = v;
+                v = t;
+            }
+            // Relabel v's (smaller) component, then splice the two cycles.
+            int w = v;
+            do {
+                weakId[w] = a;
+                w = weakNext[w];
+            } while (w != v);
+            int t = weakNext[u];
+            weakNext[u] = weakNext[v];
+            weakNext[v] = t;
+            weakSize[a] += weakSize[b];
+            weakSize[b] = 0;
+            weakCount--;
+        } else if (strongId[u] != strongId[v]) {
+            // Inside one weak component the edge may close a cycle.
+            strongStale = true;
+        }
+    }
+
+    // All edges u -> v were removed; linked tells whether v -> u remains.
+    void edgeRemoved(int u, int v, boolean linked) {
+        if (u == v) {
+            return;
+        }
+        if (!linked) {
+            weakStale = true;
+        }
+        if (strongId[u] == strongId[v]) {
+            strongStale = true;
+        }
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    private static void union(int[] parent, int[] size, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra == rb) {
+            return;
+        }
+        if (size[ra] < size[rb]) {
+            int t = ra;
+            ra = rb;
+            rb = t;
+        }
+        parent[rb] = ra;
+        size[ra] += size[rb];
+    }
+
+    // The queries below are only meaningful while !isStale().
+    int weakComponentCount() {
+        return weakCount;
+    }
+
+    int weakComponent(int v) {
+        return weakId[v];
+    }
+
+    int weakComponentSize(int v) {
+        return weakSize[weakId[v]];
+    }
+
+    int strongComponentCount() {
+        return strongCount;
+    }
+
+    int strongComponent(int v) {
+        return strongId[v];
+    }
+
+    int strongComponentSize(int v) {
+        return strongSize[strongId[v]];
+    }
+}
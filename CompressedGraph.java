@@ -0,0 +1,299 @@
+import java.nio.IntBuffer;
+
+// -------------------------------------------------------------
+// CompressedGraph
+// Immutable compressed-sparse-row (CSR) adjacency structure.
+// The out-edges of vertex v are the edge indices in [begin(v), end(v));
+// target(e) and weight(e) read the edge at index e. Edges of a vertex
+// keep the order in which they were added.
+//
+// The three arrays live in IntBuffers: heap-wrapped int[]s for graphs
+// built in memory, or read-only mappings of a snapshot file (see
+// GraphSnapshotFile), which queries then read without copying.
+//
+// A graph changed through a GraphOverlay is the same base arrays plus a
+// delta: vertices whose edges changed have their [begin, end) range
+// moved into tail arrays, found through pages of per-vertex begin/end
+// values. Edge indices at or past the base edge count address the tail,
+// so edge indices are then not dense: iterate per vertex. compact()
+// turns such a graph back into plain CSR arrays.
+//
+// findEdge searches long lists through an EdgeIndex of the compact base,
+// built on first use and shared by every overlay on that base; lists an
+// overlay changed are scanned until the next compaction.
+// -------------------------------------------------------------
+final class CompressedGraph {
+
+    static final CompressedGraph EMPTY = new CompressedGraph(0, new EdgeBuffer(1));
+
+    // Vertices per page of the overlay's begin/end tables.
+    static final int PAGE_BITS = 10;
+    static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer weights;
+    private final boolean negativeWeights;
+    private final int vertexCount;
+    private final int edgeCount;
+    // Overlay; beginPages is null for a compact graph. A null page means its
+    // vertices still use the base offsets.
+    private final int baseSlots;
+    private final int[][] beginPages;
+    private final int[][] endPages;
+    private final int[] tailTargets;
+    private final int[] tailWeights;
+    // The compact graph under the overlay; this graph itself if compact.
+    private final CompressedGraph base;
+    private final LazyIndex<EdgeIndex> edgeIndex = new LazyIndex<>();
+    private long fingerprint;
+
+    // Builds the CSR arrays with a stable counting sort on the edge source.
+    CompressedGraph(int vertexCount, EdgeBuffer edges) {
+        int m = edges.size();
+        int[] offsets = new int[vertexCount + 1];
+        int[] targets = new int[m];
+        int[] weights = new int[m];
+
+        for (int i = 0; i < m; i++) {
+            offsets[edges.source(i) + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] next = new int[vertexCount];
+        System.arraycopy(offsets, 0, next, 0, vertexCount);
+        for (int i = 0; i < m; i++) {
+            int slot = next[edges.source(i)]++;
+            targets[slot] = edges.target(i);
+            weights[slot] = edges.weight(i);
+        }
+        this.offsets = IntBuffer.wrap(offsets);
+        this.targets = IntBuffer.wrap(targets);
+        this.weights = IntBuffer.wrap(weights);
+        this.negativeWeights = anyNegative(weights);
+        this.vertexCount = vertexCount;
+        this.edgeCount = m;
+        this.baseSlots = m;
+        this.beginPages = null;
+        this.endPages = null;
+        this.tailTargets = null;
+        this.tailWeights = null;
+        this.base = this;
+    }
+
+    private CompressedGraph(int[] offsets, int[] targets, int[] weights) {
+        this(IntBuffer.wrap(offsets), IntBuffer.wrap(targets), IntBuffer.wrap(weights), anyNegative(weights));
+    }
+
+    // Wraps existing CSR buffers as they are; the caller vouches that they
+    // are consistent and that negativeWeights is correct.
+    CompressedGraph(IntBuffer offsets, IntBuffer targets, IntBuffer weights, boolean negativeWeights) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.negativeWeights = negativeWeights;
+        this.vertexCount = offsets.capacity() - 1;
+        this.edgeCount = targets.capacity();
+        this.baseSlots = edgeCount;
+        this.beginPages = null;
+        this.endPages = null;
+        this.tailTargets = null;
+        this.tailWeights = null;
+        this.base = this;
+    }
+
+    // A compact base graph plus an overlay; see GraphOverlay. The pages and
+    // the tail prefix they point into must never change afterwards.
+    CompressedGraph(CompressedGraph base, int vertexCount, int edgeCount, int[][] beginPages, int[][] endPages,
+            int[] tailTargets, int[] tailWeights, boolean negativeWeights) {
+        this.offsets = base.offsets;
+        this.targets = base.targets;
+        this.weights = base.weights;
+        this.negativeWeights = negativeWeights;
+        this.vertexCount = vertexCount;
+        this.edgeCount = edgeCount;
+        this.baseSlots = base.edgeCount;
+        this.beginPages = beginPages;
+        this.endPages = endPages;
+        this.tailTargets = tailTargets;
+        this.tailWeights = tailWeights;
+        this.base = base;
+    }
+
+    private static boolean anyNegative(int[] weights) {
+        for (int w : weights) {
+            if (w < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int vertexCount() {
+        return vertexCount;
+    }
+
+    int edgeCount() {
+        return edgeCount;
+    }
+
+    int begin(int v) {
+        if (beginPages != null) {
+            int[] page = beginPages[v >>> PAGE_BITS];
+            if (page != null) {
+                return page[v & PAGE_MASK];
+            }
+        }
+        return offsets.get(v);
+    }
+
+    int end(int v) {
+        if (endPages != null) {
+            int[] page = endPages[v >>> PAGE_BITS];
+            if (page != null) {
+                return page[v & PAGE_MASK];
+            }
+        }
+        return offsets.get(v + 1);
+    }
+
+    int degree(int v) {
+        return end(v) - begin(v);
+    }
+
+    int target(int e) {
+        return e < baseSlots ? targets.get(e) : tailTargets[e - baseSlots];
+    }
+
+    int weight(int e) {
+        return e < baseSlots ? weights.get(e) : tailWeights[e - baseSlots];
+    }
+
+    // Whether the graph is plain CSR arrays, without an overlay.
+    boolean isCompact() {
+        return beginPages == null;
+    }
+
+    // This graph as plain CSR arrays: itself if it already is, else a copy.
+    CompressedGraph compact() {
+        if (isCompact()) {
+            return this;
+        }
+        int[] newOffsets = new int[vertexCount + 1];
+        int[] newTargets = new int[edgeCount];
+        int[] newWeights = new int[edgeCount];
+        int slot = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            for (int e = begin(v); e < end(v); e++) {
+                newTargets[slot] = target(e);
+                newWeights[slot++] = weight(e);
+            }
+            newOffsets[v + 1] = slot;
+        }
+        return new CompressedGraph(newOffsets, newTargets, newWeights);
+    }
+
+    // Index of the first edge u -> v, or -1 if there is none.
+    int findEdge(int u, int v) {
+        int begin = begin(u);
+        int end = end(u);
+        if (end - begin > EdgeIndex.LINEAR_SCAN && begin < baseSlots) {
+            // Still the base list, which the base's index covers.
+            return base.edgeIndex().find(u, v);
+        }
+        for (int e = begin; e < end; e++) {
+            if (target(e) == v) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    private EdgeIndex edgeIndex() {
+        return edgeIndex.get(() -> EdgeIndex.build(this));
+    }
+
+    // Dijkstra-style searches are only correct without negative weights.
+    boolean hasNegativeWeights() {
+        return negativeWeights;
+    }
+
+    // 64-bit hash of the whole structure, used to check that files derived
+    // from a graph (landmark tables, ...) still belong to it.
+    long fingerprint() {
+        long h = fingerprint;
+        if (h == 0) {
+            // Hashes the compact layout, so an overlay and its compaction agree.
+            h = 0x9E3779B97F4A7C15L * (vertexCount() + 1) + edgeCount();
+            int end = 0;
+            for (int v = 0; v < vertexCount(); v++) {
+                end += degree(v);
+                h = h * 31 + end;
+            }
+            for (int v = 0; v < vertexCount(); v++) {
+                for (int e = begin(v); e < end(v); e++) {
+                    h = (h * 31 + target(e)) * 31 + weight(e);
+                }
+            }
+            fingerprint = h == 0 ? 1 : h;
+        }
+        return fingerprint;
+    }
+
+    // The same graph with every edge u -> v turned into v -> u. Edges into
+    // a vertex keep their relative order.
+    CompressedGraph reverse() {
+        int n = vertexCount();
+        int m = edgeCount();
+        int[] revOffsets = new int[n + 1];
+        int[] revTargets = new int[m];
+        int[] revWeights = new int[m];
+
+        for (int u = 0; u < n; u++) {
+            for (int e = begin(u); e < end(u); e++) {
+                revOffsets[target(e) + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            revOffsets[v + 1] += revOffsets[v];
+        }
+        int[] next = new int[n];
+        System.arraycopy(revOffsets, 0, next, 0, n);
+        for (int u = 0; u < n; u++) {
+            for (int e = begin(u); e < end(u); e++) {
+                int slot = next[target(e)]++;
+                revTargets[slot] = u;
+                revWeights[slot] = weight(e);
+            }
+        }
+        return new CompressedGraph(revOffsets, revTargets, revWeights);
+    }
+
+    // Read-only views of the raw CSR arrays, positioned at 0; used to
+    // write snapshot files. Only for compact graphs.
+    IntBuffer offsetBuffer() {
+        return offsets.asReadOnlyBuffer().clear();
+    }
+
+    IntBuffer targetBuffer() {
+        return targets.asReadOnlyBuffer().clear();
+    }
+
+    IntBuffer weightBuffer() {
+        return weights.asReadOnlyBuffer().clear();
+    }
+
+    // Copies every edge into a fresh buffer, e.g. to append more edges
+    // and build a new CompressedGraph.
+    EdgeBuffer toEdgeBuffer() {
+        EdgeBuffer buffer = new EdgeBuffer(Math.max(edgeCount(), 16));
+        for (int v = 0; v < vertexCount(); v++) {
+            for (int e = begin(v); e < end(v); e++) {
+                buffer.add(v, target(e), weight(e));
+            }
+        }
+        return buffer;
+    }
+}
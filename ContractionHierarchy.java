@@ -0,0 +1,644 @@
+import java.util.Arrays;
+
+// -------------------------------------------------------------
+// ContractionHierarchy
+// Preprocessed form of a CompressedGraph for very fast point-to-point
+// shortest paths.
+//
+// Build: vertices are contracted one by one in order of importance.
+// Contracting v removes it from the remaining graph; for every pair of
+// remaining neighbours u -> v -> w whose shortest connection runs through
+// v, a shortcut u -> w is added. A "witness" Dijkstra from u that avoids
+// v, bounded in settled vertices, hops and distance, decides whether the
+// shortcut is needed. The next vertex to contract is the one with the
+// smallest edge difference (shortcuts added minus edges removed) plus
+// its contracted neighbours and its level in the hierarchy so far. The
+// shortcut counts behind the priorities come from 2-hop searches without
+// a heap, refreshed lazily when a vertex reaches the queue head.
+//
+// Contraction stops once the remaining graph averages CORE_DEGREE edges
+// per vertex: there every contraction adds more shortcuts than it
+// removes edges, and the build time would go into the last few hundred
+// vertices. That core is ranked above everything else and keeps all of
+// its edges in both search graphs.
+//
+// Query: a forward search from the source and a backward search from the
+// target only ever move to higher-ranked vertices, or anywhere within
+// the core; they meet at the highest vertex of the shortest path.
+// Shortcuts on the result are then unpacked recursively into original
+// edges.
+// -------------------------------------------------------------
+final class ContractionHierarchy {
+
+    private static final int INFINITY = ShortestPathEngine.INFINITY;
+    // Bounds on one witness search. A search that hits one simply keeps
+    // the shortcut, which is never wrong, only larger. Priorities are only
+    // estimates, so they use a much cheaper search.
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    private static final int WITNESS_HOP_LIMIT = 8;
+    private static final int PRIORITY_HOP_LIMIT = 2;
+    private static final int PRIORITY_RELAX_LIMIT = 1000;
+    // Average degree at which contraction stops (see above); a remaining
+    // graph smaller than CORE_MIN_VERTICES is contracted completely.
+    private static final int CORE_DEGREE = 24;
+    private static final int CORE_MIN_VERTICES = 64;
+
+    private final int vertexCount;
+
+    // Edges of the hierarchy (original edges and shortcuts), by id.
+    // first/second are the two halves of a shortcut, -1 for original edges.
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final int[] edgeWeight;
+    private final int[] edgeFirst;
+    private final int[] edgeSecond;
+
+    // Upward search graphs in CSR form.
+    // up: at u, edges u -> v with rank[v] > rank[u].
+    // down: at v, edges u -> v with rank[u] > rank[v], stored as v -> u.
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final int[] upWeights;
+    private final int[] upIds;
+    private final int[] downOffsets;
+    private final int[] downTargets;
+    private final int[] downWeights;
+    private final int[] downIds;
+
+    private ContractionHierarchy(Builder b) {
+        vertexCount = b.n;
+        edgeFrom = Arrays.copyOf(b.edgeFrom, b.edgeCount);
+        edgeTo = Arrays.copyOf(b.edgeTo, b.edgeCount);
+        edgeWeight = Arrays.copyOf(b.edgeWeight, b.edgeCount);
+        edgeFirst = Arrays.copyOf(b.edgeFirst, b.edgeCount);
+        edgeSecond = Arrays.copyOf(b.edgeSecond, b.edgeCount);
+
+        upOffsets = new int[vertexCount + 1];
+        upTargets = new int[b.up.size()];
+        upWeights = new int[upTargets.length];
+        upIds = new int[upTargets.length];
+        toCsr(b.up, upOffsets, upTargets, upWeights, upIds);
+        downOffsets = new int[vertexCount + 1];
+        downTargets = new int[b.down.size()];
+        downWeights = new int[downTargets.length];
+        downIds = new int[downTargets.length];
+        toCsr(b.down, downOffsets, downTargets, downWeights, downIds);
+    }
+
+    // (vertex, neighbour, edge id) triples -> CSR by vertex.
+    private void toCsr(EdgeBuffer edges, int[] offsets, int[] targets, int[] weights, int[] ids) {
+        for (int i = 0; i < edges.size(); i++) {
+            offsets[edges.source(i) + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] next = Arrays.copyOf(offsets, vertexCount);
+        for (int i = 0; i < edges.size(); i++) {
+            int slot = next[edges.source(i)]++;
+            targets[slot] = edges.target(i);
+            ids[slot] = edges.weight(i);
+            weights[slot] = edgeWeight[ids[slot]];
+        }
+    }
+
+    static ContractionHierarchy build(CompressedGraph graph) {
+        Builder builder = new Builder(graph);
+        builder.contractAll();
+        return new ContractionHierarchy(builder);
+    }
+
+    Query newQuery() {
+        return new Query();
+    }
+
+    // -------------------------------------------------------------
+    // Query
+    // Scratch space for bidirectional upward searches. Reusable across
+    // queries (epoch-stamped like ShortestPathEngine), not thread-safe.
+    // -------------------------------------------------------------
+    final class Query {
+        private final int[] forwardDist = new int[vertexCount];
+        private final int[] forwardStamp = new int[vertexCount];
+        private final int[] forwardParent = new int[vertexCount]; // edge id into the vertex
+        private final int[] backwardDist = new int[vertexCount];
+        private final int[] backwardStamp = new int[vertexCount];
+        private final int[] backwardParent = new int[vertexCount]; // edge id out of the vertex
+        private final IndexedMinHeap forwardHeap = new IndexedMinHeap(vertexCount);
+        private final IndexedMinHeap backwardHeap = new IndexedMinHeap(vertexCount);
+        private int[] unpackStack = new int[64];
+        private int[] unpacked = new int[64];
+        private int unpackedSize;
+        private int epoch;
+
+        private int lastSource = -1;
+        private int lastMeeting = -1;
+        private int lastDistance = INFINITY;
+
+        // Shortest distance from source to target, INFINITY if unreachable.
+        int distance(int source, int target) {
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(forwardStamp, 0);
+                Arrays.fill(backwardStamp, 0);
+                epoch = 1;
+            }
+            forwardDist[source] = 0;
+            forwardStamp[source] = epoch;
+            forwardParent[source] = -1;
+            forwardHeap.insertOrDecrease(source, 0);
+            backwardDist[target] = 0;
+            backwardStamp[target] = epoch;
+            backwardParent[target] = -1;
+            backwardHeap.insertOrDecrease(target, 0);
+
+            int best = INFINITY;
+            int meeting = -1;
+            while (true) {
+                boolean forwardLive = !forwardHeap.isEmpty() && forwardHeap.peekKey() < best;
+                boolean backwardLive = !backwardHeap.isEmpty() && backwardHeap.peekKey() < best;
+                if (!forwardLive && !backwardLive) {
+                    break;
+                }
+                boolean forward = forwardLive && (!backwardLive || forwardHeap.peekKey() <= backwardHeap.peekKey());
+                int u;
+                long candidate;
+                if (forward) {
+                    u = forwardHeap.poll();
+                    candidate = backwardStamp[u] == epoch ? (long) forwardDist[u] + backwardDist[u] : INFINITY;
+                    relax(u, upOffsets, upTargets, upWeights, upIds, forwardDist, forwardStamp, forwardParent,
+                            forwardHeap);
+                } else {
+                    u = backwardHeap.poll();
+                    candidate = forwardStamp[u] == epoch ? (long) forwardDist[u] + backwardDist[u] : INFINITY;
+                    relax(u, downOffsets, downTargets, downWeights, downIds, backwardDist, backwardStamp,
+                            backwardParent, backwardHeap);
+                }
+                if (candidate < best) {
+                    best = (int) candidate;
+                    meeting = u;
+                }
+            }
+            forwardHeap.clear();
+            backwardHeap.clear();
+            lastSource = source;
+            lastMeeting = meeting;
+            lastDistance = best;
+            return best;
+        }
+
+        private void relax(int u, int[] offsets, int[] targets, int[] weights, int[] ids, int[] dist, int[] stamp,
+                int[] parent, IndexedMinHeap heap) {
+            int du = dist[u];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                long nd = (long) du + weights[e];
+                if (nd < (stamp[v] == epoch ? dist[v] : INFINITY)) {
+                    dist[v] = (int) nd;
+                    stamp[v] = epoch;
+                    parent[v] = ids[e];
+                    heap.insertOrDecrease(v, (int) nd);
+                }
+            }
+        }
+
+        // Vertices of the last path found, with every shortcut unpacked.
+        int[] lastPath() {
+            if (lastDistance == INFINITY) {
+                return new int[0];
+            }
+            int[] edges = originalEdges();
+            int[] path = new int[edges.length + 1];
+            path[0] = lastSource;
+            for (int i = 0; i < edges.length; i++) {
+                path[i + 1] = edgeTo[edges[i]];
+            }
+            return path;
+        }
+
+        int[] lastPathWeights() {
+            if (lastDistance == INFINITY) {
+                return new int[0];
+            }
+            int[] edges = originalEdges();
+            int[] weights = new int[edges.length];
+            for (int i = 0; i < edges.length; i++) {
+                weights[i] = edgeWeight[edges[i]];
+            }
+            return weights;
+        }
+
+        // Ids of the original (non-shortcut) edges along the last path.
+        private int[] originalEdges() {
+            // Hierarchy edges from source up to the meeting vertex, then down to target.
+            int up = 0;
+            for (int v = lastMeeting; forwardParent[v] >= 0; v = edgeFrom[forwardParent[v]]) {
+                up++;
+            }
+            int down = 0;
+            for (int v = lastMeeting; backwardParent[v] >= 0; v = edgeTo[backwardParent[v]]) {
+                down++;
+            }
+            int[] hierarchyEdges = new int[up + down];
+            int i = up;
+            for (int v = lastMeeting; forwardParent[v] >= 0; v = edgeFrom[forwardParent[v]]) {
+                hierarchyEdges[--i] = forwardParent[v];
+            }
+            i = up;
+            for (int v = lastMeeting; backwardParent[v] >= 0; v = edgeTo[backwardParent[v]]) {
+                hierarchyEdges[i++] = backwardParent[v];
+            }
+
+            unpackedSize = 0;
+            for (int id : hierarchyEdges) {
+                unpack(id);
+            }
+            return Arrays.copyOf(unpacked, unpackedSize);
+        }
+
+        // Appends the original edges of id to unpacked, in path order, using
+        // an explicit stack so deep shortcut nesting cannot overflow.
+        private void unpack(int id) {
+            int top = 0;
+            unpackStack[top++] = id;
+            while (top > 0) {
+                int e = unpackStack[--top];
+                if (edgeFirst[e] < 0) {
+                    if (unpackedSize == unpacked.length) {
+                        unpacked = Arrays.copyOf(unpacked, unpacked.length * 2);
+                    }
+                    unpacked[unpackedSize++] = e;
+                    continue;
+                }
+                if (top + 2 > unpackStack.length) {
+                    unpackStack = Arrays.copyOf(unpackStack, unpackStack.length * 2);
+                }
+                unpackStack[top++] = edgeSecond[e];
+                unpackStack[top++] = edgeFirst[e];
+            }
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Builder
+    // Mutable state of the preprocessing: the remaining graph as per-vertex
+    // growable neighbour lists (in both directions), the edge store, and
+    // witness-search scratch space.
+    // -------------------------------------------------------------
+    private static final class Builder {
+        final int n;
+        final int[] rank;
+        final boolean[] contracted;
+        final int[] contractedNeighbors;
+        // Length of the longest chain of contracted vertices below v.
+        final int[] level;
+        // Edges of the remaining (not contracted) graph.
+        long remainingEdges;
+
+        // Remaining graph: out[v][i] / outId[v][i] for i < outSize[v], same for in.
+        final int[][] out;
+        final int[][] outId;
+        final int[] outSize;
+        final int[][] in;
+        final int[][] inId;
+        final int[] inSize;
+
+        int[] edgeFrom = new int[16];
+        int[] edgeTo = new int[16];
+        int[] edgeWeight = new int[16];
+        int[] edgeFirst = new int[16];
+        int[] edgeSecond = new int[16];
+        int edgeCount;
+
+        // (vertex, neighbour, edge id) triples of the final search graphs.
+        final EdgeBuffer up = new EdgeBuffer();
+        final EdgeBuffer down = new EdgeBuffer();
+
+        // Witness search scratch.
+        final int[] witnessDist;
+        final int[] witnessStamp;
+        final int[] witnessHops;
+        // witnessTarget[w] == witnessEpoch marks a vertex the search must reach.
+        final int[] witnessTarget;
+        final IndexedMinHeap witnessHeap;
+        int witnessEpoch;
+        // Vertices reached by the rounds of a hopSearch.
+        int[] hopFrontier = new int[64];
+
+        Builder(CompressedGraph graph) {
+            n = graph.vertexCount();
+            rank = new int[n];
+            contracted = new boolean[n];
+            contractedNeighbors = new int[n];
+            level = new int[n];
+            out = new int[n][];
+            outId = new int[n][];
+            outSize = new int[n];
+            in = new int[n][];
+            inId = new int[n][];
+            inSize = new int[n];
+            witnessDist = new int[n];
+            witnessStamp = new int[n];
+            witnessHops = new int[n];
+            witnessTarget = new int[n];
+            witnessHeap = new IndexedMinHeap(n);
+
+            for (int v = 0; v < n; v++) {
+                out[v] = new int[Math.max(graph.degree(v), 2)];
+                outId[v] = new int[out[v].length];
+                in[v] = new int[2];
+                inId[v] = new int[2];
+            }
+            // Self-loops never lie on a shortest path; of parallel edges only
+            // the lightest one matters.
+            for (int u = 0; u < n; u++) {
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int v = graph.target(e);
+                    if (v != u) {
+                        addOrImprove(u, v, graph.weight(e), -1, -1);
+                    }
+                }
+            }
+        }
+
+        void contractAll() {
+            IndexedMinHeap queue = new IndexedMinHeap(n);
+            for (int v = 0; v < n; v++) {
+                queue.update(v, priority(v));
+            }
+            int order = 0;
+            while (!queue.isEmpty()) {
+                int remaining = queue.size();
+                if (remaining >= CORE_MIN_VERTICES && remainingEdges > (long) CORE_DEGREE * remaining) {
+                    break;
+                }
+                int v = queue.poll();
+                // Lazy update: the stored priority may be stale. The
+                // neighbours of a contracted vertex are not re-evaluated
+                // eagerly; on dense graphs that costs far more than the
+                // few vertices that reach the head too early and go back.
+                int current = priority(v);
+                if (!queue.isEmpty() && current > queue.peekKey()) {
+                    queue.update(v, current);
+                    continue;
+                }
+                rank[v] = order++;
+                contract(v);
+                for (int i = 0; i < outSize[v]; i++) {
+                    touch(out[v][i], v);
+                }
+                for (int i = 0; i < inSize[v]; i++) {
+                    touch(in[v][i], v);
+                }
+                detach(v);
+                remainingEdges -= outSize[v] + inSize[v];
+                out[v] = null;
+                outId[v] = null;
+                in[v] = null;
+                inId[v] = null;
+            }
+            // The core: ranked above every contracted vertex, with all of its
+            // remaining edges in both search graphs.
+            while (!queue.isEmpty()) {
+                int v = queue.poll();
+                rank[v] = order++;
+                for (int i = 0; i < outSize[v]; i++) {
+                    up.add(v, out[v][i], outId[v][i]);
+                }
+                for (int i = 0; i < inSize[v]; i++) {
+                    down.add(v, in[v][i], inId[v][i]);
+                }
+            }
+        }
+
+        // Neighbour x of the contracted vertex v.
+        private void touch(int x, int v) {
+            contractedNeighbors[x]++;
+            level[x] = Math.max(level[x], level[v] + 1);
+        }
+
+        private int priority(int v) {
+            int shortcuts = shortcuts(v, false);
+            return 2 * (shortcuts - outSize[v] - inSize[v]) + contractedNeighbors[v] + level[v];
+        }
+
+        // Moves v's remaining edges into the final search graphs and adds the
+        // shortcuts that bypass it.
+        private void contract(int v) {
+            for (int i = 0; i < outSize[v]; i++) {
+                up.add(v, out[v][i], outId[v][i]);
+            }
+            for (int i = 0; i < inSize[v]; i++) {
+                down.add(v, in[v][i], inId[v][i]);
+            }
+            shortcuts(v, true);
+            contracted[v] = true;
+        }
+
+        // Counts (or, if add, creates) the shortcuts needed to contract v.
+        private int shortcuts(int v, boolean add) {
+            int count = 0;
+            for (int i = 0; i < inSize[v]; i++) {
+                int u = in[v][i];
+                int toV = edgeWeight[inId[v][i]];
+                int limit = 0;
+                int targets = 0;
+                nextWitnessEpoch();
+                for (int j = 0; j < outSize[v]; j++) {
+                    int w = out[v][j];
+                    if (w != u) {
+                        limit = (int) Math.min(INFINITY - 1, Math.max(limit, (long) toV + edgeWeight[outId[v][j]]));
+                        if (witnessTarget[w] != witnessEpoch) {
+                            witnessTarget[w] = witnessEpoch;
+                            targets++;
+                        }
+                    }
+                }
+                if (targets == 0) {
+                    continue;
+                }
+                if (add) {
+                    witnessSearch(u, v, limit, targets, WITNESS_SETTLE_LIMIT, WITNESS_HOP_LIMIT);
+                } else {
+                    hopSearch(u, v, limit, PRIORITY_HOP_LIMIT, PRIORITY_RELAX_LIMIT);
+                }
+                for (int j = 0; j < outSize[v]; j++) {
+                    int w = out[v][j];
+                    if (w == u) {
+                        continue;
+                    }
+                    long via = (long) toV + edgeWeight[outId[v][j]];
+                    int witness = witnessStamp[w] == witnessEpoch ? witnessDist[w] : INFINITY;
+                    if (via < INFINITY && witness > via) {
+                        count++;
+                        if (add) {
+                            addOrImprove(u, w, (int) via, inId[v][i], outId[v][j]);
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+
+        private void nextWitnessEpoch() {
+            witnessEpoch++;
+            if (witnessEpoch == Integer.MAX_VALUE) {
+                Arrays.fill(witnessStamp, 0);
+                Arrays.fill(witnessTarget, 0);
+                witnessEpoch = 1;
+            }
+        }
+
+        // Dijkstra from source over the remaining graph without passing
+        // through skip, in the current witness epoch. Stops once the
+        // targets marked in witnessTarget are settled, after settleLimit
+        // vertices, or beyond limit, and follows paths of at most hopLimit
+        // edges. Distances it did not find read as INFINITY, which at
+        // worst keeps a shortcut that a longer search would have dropped.
+        private void witnessSearch(int source, int skip, int limit, int targets, int settleLimit, int hopLimit) {
+            witnessDist[source] = 0;
+            witnessHops[source] = 0;
+            witnessStamp[source] = witnessEpoch;
+            witnessHeap.insertOrDecrease(source, 0);
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && settled < settleLimit && targets > 0) {
+                if (witnessHeap.peekKey() > limit) {
+                    break;
+                }
+                int u = witnessHeap.poll();
+                settled++;
+                if (witnessTarget[u] == witnessEpoch) {
+                    targets--;
+                }
+                if (witnessHops[u] >= hopLimit) {
+                    continue;
+                }
+                for (int i = 0; i < outSize[u]; i++) {
+                    int x = out[u][i];
+                    if (x == skip) {
+                        continue;
+                    }
+                    long nd = (long) witnessDist[u] + edgeWeight[outId[u][i]];
+                    if (nd <= limit && nd < (witnessStamp[x] == witnessEpoch ? witnessDist[x] : INFINITY)) {
+                        witnessDist[x] = (int) nd;
+                        witnessHops[x] = witnessHops[u] + 1;
+                        witnessStamp[x] = witnessEpoch;
+                        witnessHeap.insertOrDecrease(x, (int) nd);
+                    }
+                }
+            }
+            witnessHeap.clear();
+        }
+
+        // Shortest paths of at most hops edges from source, avoiding skip and
+        // ignoring anything longer than limit: round by round relaxation of
+        // the vertices reached in the previous round, without a heap, until
+        // about relaxLimit edges have been looked at.
+        private void hopSearch(int source, int skip, int limit, int hops, int relaxLimit) {
+            witnessDist[source] = 0;
+            witnessStamp[source] = witnessEpoch;
+            int[] frontier = hopFrontier;
+            frontier[0] = source;
+            int from = 0;
+            int to = 1;
+            int relaxed = 0;
+            for (int round = 0; round < hops && from < to && relaxed < relaxLimit; round++) {
+                int end = to;
+                for (int k = from; k < end && relaxed < relaxLimit; k++) {
+                    int u = frontier[k];
+                    relaxed += outSize[u];
+                    for (int i = 0; i < outSize[u]; i++) {
+                        int x = out[u][i];
+                        if (x == skip) {
+                            continue;
+                        }
+                        long nd = (long) witnessDist[u] + edgeWeight[outId[u][i]];
+                        if (nd <= limit && nd < (witnessStamp[x] == witnessEpoch ? witnessDist[x] : INFINITY)) {
+                            witnessDist[x] = (int) nd;
+                            witnessStamp[x] = witnessEpoch;
+                            if (round + 1 < hops) {
+                                if (to == frontier.length) {
+                                    frontier = Arrays.copyOf(frontier, to + (to >> 1));
+                                }
+                                frontier[to++] = x;
+                            }
+                        }
+                    }
+                }
+                from = end;
+            }
+            hopFrontier = frontier;
+        }
+
+        // Adds edge u -> v, or lowers the weight of an existing one.
+        private void addOrImprove(int u, int v, int weight, int first, int second) {
+            for (int i = 0; i < outSize[u]; i++) {
+                if (out[u][i] == v) {
+                    if (edgeWeight[outId[u][i]] > weight) {
+                        int id = newEdge(u, v, weight, first, second);
+                        outId[u][i] = id;
+                        for (int j = 0; j < inSize[v]; j++) {
+                            if (in[v][j] == u) {
+                                inId[v][j] = id;
+                            }
+                        }
+                    }
+                    return;
+                }
+            }
+            int id = newEdge(u, v, weight, first, second);
+            remainingEdges++;
+            append(out, outId, outSize, u, v, id);
+            append(in, inId, inSize, v, u, id);
+        }
+
+        private int newEdge(int from, int to, int weight, int first, int second) {
+            if (edgeCount == edgeFrom.length) {
+                int capacity = edgeFrom.length + (edgeFrom.length >> 1) + 1;
+                edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+                edgeTo = Arrays.copyOf(edgeTo, capacity);
+                edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+                edgeFirst = Arrays.copyOf(edgeFirst, capacity);
+                edgeSecond = Arrays.copyOf(edgeSecond, capacity);
+            }
+            edgeFrom[edgeCount] = from;
+            edgeTo[edgeCount] = to;
+            edgeWeight[edgeCount] = weight;
+            edgeFirst[edgeCount] = first;
+            edgeSecond[edgeCount] = second;
+            return edgeCount++;
+        }
+
+        private static void append(int[][] lists, int[][] ids, int[] sizes, int v, int neighbor, int id) {
+            if (sizes[v] == lists[v].length) {
+                lists[v] = Arrays.copyOf(lists[v], lists[v].length * 2);
+                ids[v] = Arrays.copyOf(ids[v], lists[v].length);
+            }
+            lists[v][sizes[v]] = neighbor;
+            ids[v][sizes[v]] = id;
+            sizes[v]++;
+        }
+
+        // Removes the contracted vertex v from its neighbours' lists. v's own
+        // lists are left intact until the caller is done with them.
+        private void detach(int v) {
+            for (int i = 0; i < outSize[v]; i++) {
+                remove(in, inId, inSize, out[v][i], v);
+            }
+            for (int i = 0; i < inSize[v]; i++) {
+                remove(out, outId, outSize, in[v][i], v);
+            }
+        }
+
+        private static void remove(int[][] lists, int[][] ids, int[] sizes, int v, int neighbor) {
+            for (int i = 0; i < sizes[v]; i++) {
+                if (lists[v][i] == neighbor) {
+                    int last = --sizes[v];
+                    lists[v][i] = lists[v][last];
+                    ids[v][i] = ids[v][last];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+// -------------------------------------------------------------
+// DegreeIndex
+// Per-vertex in-degree, out-degree (parallel edges counted) and number
+// of distinct out-neighbors, plus all vertices ordered by that distinct
+// degree, highest first.
+//
+// The order is a bucket array: vertices with degree d sit in positions
+// [atLeast[d + 1], atLeast[d]), where atLeast[d] is the number of vertices
+// whose degree is at least d. Moving a vertex one degree up or down is a
+// single swap with the edge of its bucket, so the index follows edge
+// additions and removals in O(1), and the k highest-degree vertices are
+// simply order[0 .. k).
+// -------------------------------------------------------------
+final class DegreeIndex {
+
+    private int vertexCount;
+    private int[] inDegree;
+    private int[] outDegree;
+    private int[] distinct;
+    private int[] order;
+    private int[] position;
+    private int[] atLeast;
+
+    private DegreeIndex(int vertexCount) {
+        this.vertexCount = vertexCount;
+        int capacity = Math.max(vertexCount, 16);
+        inDegree = new int[capacity];
+        outDegree = new int[capacity];
+        distinct = new int[capacity];
+        order = new int[capacity];
+        position = new int[capacity];
+    }
+
+    static DegreeIndex build(CompressedGraph graph) {
+        int n = graph.vertexCount();
+        DegreeIndex index = new DegreeIndex(n);
+        int[] seenFrom = new int[n];
+        Arrays.fill(seenFrom, -1);
+        int maxDegree = 0;
+        for (int u = 0; u < n; u++) {
+            index.outDegree[u] = graph.degree(u);
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                index.inDegree[v]++;
+                if (seenFrom[v] != u) {
+                    seenFrom[v] = u;
+                    index.distinct[u]++;
+                }
+            }
+            maxDegree = Math.max(maxDegree, index.distinct[u]);
+        }
+
+        // Counting sort by distinct degree, descending.
+        int[] atLeast = new int[maxDegree + 2];
+        for (int u = 0; u < n; u++) {
+            atLeast[index.distinct[u]]++;
+        }
+        for (int d = maxDegree - 1; d >= 0; d--) {
+            atLeast[d] += atLeast[d + 1];
+        }
+        int[] next = new int[maxDegree + 1];
+        for (int d = 0; d <= maxDegree; d++) {
+            next[d] = atLeast[d + 1];
+        }
+        for (int u = 0; u < n; u++) {
+            int slot = next[index.distinct[u]]++;
+            index.order[slot] = u;
+            index.position[u] = slot;
+        }
+        index.atLeast = atLeast;
+        return index;
+    }
+
+    // An independent copy, e.g. to change while the original is being read.
+    DegreeIndex copy() {
+        DegreeIndex c = new DegreeIndex(0);
+        c.vertexCount = vertexCount;
+        c.inDegree = inDegree.clone();
+        c.outDegree = outDegree.clone();
+        c.distinct = distinct.clone();
+        c.order = order.clone();
+        c.position = position.clone();
+        c.atLeast = atLeast.clone();
+        return c;
+    }
+
+    int inDegree(int v) {
+        return inDegree[v];
+    }
+
+    int outDegree(int v) {
+        return outDegree[v];
+    }
+
+    // Number of distinct targets of v's out-edges.
+    int distinctDegree(int v) {
+        return distinct[v];
+    }
+
+    int maxDistinctDegree() {
+        return vertexCount == 0 ? 0 : distinct[order[0]];
+    }
+
+    // The i-th vertex by descending distinct degree; ties in no particular order.
+    int byDegree(int i) {
+        return order[i];
+    }
+
+    int vertexCount() {
+        return vertexCount;
+    }
+
+    // histogram[d] = number of vertices with exactly d distinct out-neighbors.
+    int[] histogram() {
+        int[] histogram = new int[maxDistinctDegree() + 1];
+        for (int d = 0; d < histogram.length; d++) {
+            histogram[d] = atLeast[d] - atLeast[d + 1];
+        }
+        return histogram;
+    }
+
+    // -------------------------------------------------------------
+    // Incremental maintenance. newNeighbor / lastToNeighbor tell whether
+    // the edge u -> v is the first edge from u to v, or the last one.
+    // -------------------------------------------------------------
+    void vertexAdded() {
+        if (vertexCount == order.length) {
+            int capacity = order.length + (order.length >> 1);
+            inDegree = Arrays.copyOf(inDegree, capacity);
+            outDegree = Arrays.copyOf(outDegree, capacity);
+            distinct = Arrays.copyOf(distinct, capacity);
+            order = Arrays.copyOf(order, capacity);
+            position = Arrays.copyOf(position, capacity);
+        }
+        // Degree 0 is the last bucket, so the new vertex just goes at the end.
+        int v = vertexCount++;
+        order[v] = v;
+        position[v] = v;
+        atLeast[0]++;
+    }
+
+    void edgeAdded(int u, int v, boolean newNeighbor) {
+        outDegree[u]++;
+        inDegree[v]++;
+        if (newNeighbor) {
+            int d = distinct[u];
+            if (d + 2 >= atLeast.length) {
+                atLeast = Arrays.copyOf(atLeast, atLeast.length * 2);
+            }
+            // Swap u to the front of bucket d, which then becomes part of bucket d + 1.
+            swap(u, order[atLeast[d + 1]]);
+            atLeast[d + 1]++;
+            distinct[u]++;
+        }
+    }
+
+    void edgeRemoved(int u, int v, boolean lastToNeighbor) {
+        outDegree[u]--;
+        inDegree[v]--;
+        if (lastToNeighbor) {
+            int d = distinct[u];
+            // Swap u to the back of bucket d, which then becomes part of bucket d - 1.
+            swap(u, order[atLeast[d] - 1]);
+            atLeast[d]--;
+            distinct[u]--;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int pa = position[a];
+        int pb = position[b];
+        order[pa] = b;
+        order[pb] = a;
+        position[a] = pb;
+        position[b] = pa;
+    }
+}
@@ -0,0 +1,110 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+// -------------------------------------------------------------
+// DistanceMatrix
+// Shortest path lengths from many sources to many targets: one Dijkstra
+// per source that stops once all targets are settled (see
+// ShortestPathEngine.distancesTo). The sources are shared out among
+// worker threads, one engine each, taking the next source as they
+// finish. Unreachable and unknown (negative id) pairs give -1.
+//
+// A matrix comes out as a row-major int[] or, when it is too big for the
+// heap, as a file written one row at a time. Each worker writes its rows
+// straight to their place in the file, so memory stays at one row per
+// worker whatever the matrix size. File layout, little-endian:
+//     int MAGIC, int rows, int columns, then rows * columns ints
+// -------------------------------------------------------------
+final class DistanceMatrix {
+
+    static final int MAGIC = 0x31584D44; // "DMX1"
+    static final int HEADER_SIZE = 12;
+
+    // Each worker gets its own sink; every row goes to exactly one.
+    private interface RowSink {
+        void accept(int row, int[] distances) throws IOException;
+    }
+
+    private DistanceMatrix() {
+    }
+
+    // sources x targets in row-major order; the graph must not have
+    // negative weights.
+    static int[] compute(CompressedGraph graph, CompressedGraph reverse, int[] sources, int[] targets) {
+        long size = (long) sources.length * targets.length;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("a " + sources.length + " x " + targets.length
+                    + " matrix does not fit in an array; write it to a file");
+        }
+        int[] matrix = new int[(int) size];
+        forEachRow(graph, reverse, sources, targets, () -> (row, distances) -> System.arraycopy(distances, 0,
+                matrix, row * targets.length, targets.length));
+        return matrix;
+    }
+
+    static void write(CompressedGraph graph, CompressedGraph reverse, int[] sources, int[] targets, String filename)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(sources.length).putInt(targets.length).flip();
+            writeFully(channel, header, 0);
+            forEachRow(graph, reverse, sources, targets, () -> {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(4 * targets.length).order(ByteOrder.LITTLE_ENDIAN);
+                return (row, distances) -> {
+                    buffer.clear();
+                    buffer.asIntBuffer().put(distances);
+                    writeFully(channel, buffer, HEADER_SIZE + 4L * row * targets.length);
+                };
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Positional writes do not move the channel's position, so workers
+    // can write concurrently.
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void forEachRow(CompressedGraph graph, CompressedGraph reverse, int[] sources, int[] targets,
+            Supplier<RowSink> sinks) {
+        int[] known = IntStream.of(targets).filter(t -> t >= 0).toArray();
+        int workers = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), sources.length));
+        AtomicInteger next = new AtomicInteger();
+        IntStream.range(0, workers).parallel().forEach(w -> {
+            ShortestPathEngine engine = new ShortestPathEngine(graph, reverse);
+            RowSink sink = sinks.get();
+            int[] found = new int[known.length];
+            int[] row = new int[targets.length];
+            for (int i = next.getAndIncrement(); i < sources.length; i = next.getAndIncrement()) {
+                if (sources[i] >= 0 && known.length > 0) {
+                    engine.distancesTo(sources[i], known, found);
+                } else {
+                    Arrays.fill(found, ShortestPathEngine.INFINITY);
+                }
+                for (int j = 0, k = 0; j < targets.length; j++) {
+                    int d = targets[j] < 0 ? ShortestPathEngine.INFINITY : found[k++];
+                    row[j] = d == ShortestPathEngine.INFINITY ? -1 : d;
+                }
+                try {
+                    sink.accept(i, row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+}
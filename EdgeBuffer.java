@@ -0,0 +1,65 @@
+import java.util.Arrays;
+
+// -------------------------------------------------------------
+// EdgeBuffer
+// Growable list of (source, target, weight) triples kept in three
+// primitive arrays. Used while a graph is being read, before it is
+// frozen into a CompressedGraph.
+// -------------------------------------------------------------
+final class EdgeBuffer {
+
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private int[] sources;
+    private int[] targets;
+    private int[] weights;
+    private int size;
+
+    EdgeBuffer() {
+        this(16);
+    }
+
+    EdgeBuffer(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        sources = new int[capacity];
+        targets = new int[capacity];
+        weights = new int[capacity];
+    }
+
+    void add(int source, int target, int weight) {
+        if (size == sources.length) {
+            grow(size + 1);
+        }
+        sources[size] = source;
+        targets[size] = target;
+        weights[size] = weight;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int source(int i) {
+        return sources[i];
+    }
+
+    int target(int i) {
+        return targets[i];
+    }
+
+    int weight(int i) {
+        return weights[i];
+    }
+
+    private void grow(int minCapacity) {
+        if (minCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Too many edges: " + minCapacity);
+        }
+        long grown = (long) sources.length + (sources.length >> 1) + 1;
+        int capacity = (int) Math.min(Math.max(grown, minCapacity), MAX_CAPACITY);
+        sources = Arrays.copyOf(sources, capacity);
+        targets = Arrays.copyOf(targets, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.Arrays;
+
+// -------------------------------------------------------------
+// EdgeIndex
+// Sorted copies of the long out-edge lists of a compact CompressedGraph,
+// so that finding the edge u -> v costs O(log degree(u)) instead of a
+// scan of u's whole list. Lists of at most LINEAR_SCAN edges are not
+// indexed: scanning them is faster than searching.
+//
+// Only the indexed lists are copied, back to back: hubs holds the
+// indexed vertices in ascending order, and slots [starts[i],
+// starts[i + 1]) hold the targets of hubs[i] in ascending order, each
+// with the index of its edge. The index therefore takes 8 bytes per edge
+// of a long list only, which matters for a mapped snapshot whose short
+// lists never reach the heap. Equal targets are ordered by edge index,
+// so the first match is the edge a scan of the list would have found
+// first.
+// -------------------------------------------------------------
+final class EdgeIndex {
+
+    static final int LINEAR_SCAN = 16;
+
+    private final int[] hubs;
+    private final int[] starts;
+    private final int[] targets;
+    private final int[] edges;
+
+    private EdgeIndex(int[] hubs, int[] starts, int[] targets, int[] edges) {
+        this.hubs = hubs;
+        this.starts = starts;
+        this.targets = targets;
+        this.edges = edges;
+    }
+
+    static EdgeIndex build(CompressedGraph graph) {
+        int hubCount = 0;
+        long slots = 0;
+        for (int u = 0; u < graph.vertexCount(); u++) {
+            if (graph.degree(u) > LINEAR_SCAN) {
+                hubCount++;
+                slots += graph.degree(u);
+            }
+        }
+        int[] hubs = new int[hubCount];
+        int[] starts = new int[hubCount + 1];
+        int[] targets = new int[(int) slots];
+        int[] edges = new int[(int) slots];
+        long[] keys = new long[0];
+        int hub = 0;
+        int slot = 0;
+        for (int u = 0; u < graph.vertexCount(); u++) {
+            int begin = graph.begin(u);
+            int degree = graph.degree(u);
+            if (degree <= LINEAR_SCAN) {
+                continue;
+            }
+            if (keys.length < degree) {
+                keys = new long[Math.max(degree, keys.length * 2)];
+            }
+            // Target in the high half, position in the low half: one sort
+            // orders by target, then by edge index.
+            for (int i = 0; i < degree; i++) {
+                keys[i] = (long) graph.target(begin + i) << 32 | i;
+            }
+            Arrays.sort(keys, 0, degree);
+            hubs[hub] = u;
+            starts[hub++] = slot;
+            for (int i = 0; i < degree; i++) {
+                targets[slot] = (int) (keys[i] >>> 32);
+                edges[slot++] = begin + (int) keys[i];
+            }
+        }
+        starts[hubCount] = slot;
+        return new EdgeIndex(hubs, starts, targets, edges);
+    }
+
+    // Index of the first edge u -> v, or -1; u must have more than
+    // LINEAR_SCAN edges in the indexed graph.
+    int find(int u, int v) {
+        int hub = Arrays.binarySearch(hubs, u);
+        if (hub < 0) {
+            return -1;
+        }
+        int lo = starts[hub];
+        int end = starts[hub + 1];
+        int hi = end;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (targets[mid] < v) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo < end && targets[lo] == v ? edges[lo] : -1;
+    }
+}
@@ -0,0 +1,500 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// -------------------------------------------------------------
+// FrontierSearch
+// Level-synchronous breadth-first search over a CompressedGraph. Each
+// level's frontier is a slice of an int queue and visited marks live in
+// a bitset; frontiers of PARALLEL_FRONTIER or more vertices are split
+// into chunks that are expanded on all cores.
+//
+// reachable() is a bidirectional search: one side grows from the source
+// over out-edges, the other from the target over in-edges, and the side
+// with the cheaper frontier moves next until they meet. Each side picks
+// its direction per level as in Beamer's direction-optimizing BFS:
+// top-down (the frontier's edges claim unvisited vertices) while the
+// frontier is small, bottom-up (every unvisited vertex looks for a
+// parent in the frontier, stopping at the first) once the frontier's
+// edges outweigh 1/ALPHA of the unexplored ones, and top-down again when
+// it shrinks below 1/BETA of the vertices.
+//
+// breadthFirstPath() must find the same path as a plain queue-based BFS
+// that follows out-edges in order, so it always goes top-down. A
+// parallel level first lets every vertex the level reaches keep its
+// earliest (frontier position, edge) as an atomic minimum, then every
+// chunk emits the vertices whose minimum is its own: concatenated in
+// chunk order, they are exactly the plain queue's order and parents.
+//
+// Only the marks a search set are cleared after it, so a query costs
+// what it visits, not O(V). Like TraversalEngine an engine is cheap to
+// reuse, also across edits of the graph (retarget), but not thread-safe.
+// -------------------------------------------------------------
+final class FrontierSearch {
+
+    static final int PARALLEL_FRONTIER = 1 << 12;
+    private static final int ALPHA = 14;
+    private static final int BETA = 24;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final long UNREACHED = Long.MAX_VALUE;
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private CompressedGraph graph;
+    private final Side forward;
+    private final Side backward;
+    private int[] parent;
+    // Earliest (frontier position << 32 | edge offset) that reached a
+    // vertex during the current parallel level; UNREACHED otherwise.
+    private long[] keys;
+    private int[] path = new int[0];
+
+    FrontierSearch(CompressedGraph graph, CompressedGraph reverse) {
+        this.graph = graph;
+        forward = new Side(graph, reverse);
+        backward = new Side(reverse, graph);
+        parent = new int[graph.vertexCount()];
+    }
+
+    // Searches graph and reverse from now on, e.g. the graph after an
+    // edit. The scratch arrays are kept, and grown if vertices were added.
+    void retarget(CompressedGraph graph, CompressedGraph reverse) {
+        this.graph = graph;
+        forward.retarget(graph, reverse);
+        backward.retarget(reverse, graph);
+        int n = graph.vertexCount();
+        if (parent.length < n) {
+            parent = new int[forward.queue.length];
+        }
+        if (keys != null && keys.length < n) {
+            int old = keys.length;
+            keys = Arrays.copyOf(keys, forward.queue.length);
+            Arrays.fill(keys, old, keys.length, UNREACHED);
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Whether target can be reached from source.
+    // -------------------------------------------------------------
+    boolean reachable(int source, int target) {
+        if (source == target) {
+            return true;
+        }
+        forward.start(source);
+        backward.start(target);
+        try {
+            while (true) {
+                if (forward.frontierSize() == 0 || backward.frontierSize() == 0) {
+                    return false;
+                }
+                boolean met = forward.frontierEdges <= backward.frontierEdges ? forward.expand(backward)
+                        : backward.expand(forward);
+                if (met) {
+                    return true;
+                }
+            }
+        } finally {
+            forward.clear();
+            backward.clear();
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Breadth-first search from source for target, following out-edges in
+    // order. Returns whether target was reached; lastPath() then holds
+    // the BFS tree path to it, which has the fewest possible edges.
+    // -------------------------------------------------------------
+    boolean breadthFirstPath(int source, int target) {
+        Side side = forward;
+        side.start(source);
+        parent[source] = -1;
+        try {
+            boolean found = source == target;
+            while (!found && side.frontierSize() > 0) {
+                found = side.frontierSize() >= PARALLEL_FRONTIER && side.parallelism > 1
+                        ? orderedLevelParallel(side, target)
+                        : orderedLevel(side, target);
+            }
+            if (!found) {
+                path = new int[0];
+                return false;
+            }
+            int length = 0;
+            for (int v = target; v != -1; v = parent[v]) {
+                length++;
+            }
+            path = new int[length];
+            for (int i = length - 1, v = target; i >= 0; i--, v = parent[v]) {
+                path[i] = v;
+            }
+            return true;
+        } finally {
+            side.clear();
+        }
+    }
+
+    // Vertices visited and edges scanned by all searches so far; bottom-up
+    // levels count the in-edges they may have to look at.
+    long visitedVertices() {
+        return forward.visitedVertices + backward.visitedVertices;
+    }
+
+    long scannedEdges() {
+        return forward.scannedEdges + backward.scannedEdges;
+    }
+
+    // Vertices of the path found by the last breadthFirstPath, source first.
+    int[] lastPath() {
+        return path.clone();
+    }
+
+    private boolean orderedLevel(Side side, int target) {
+        int end = side.tail;
+        for (int i = side.levelStart; i < end; i++) {
+            int u = side.queue[i];
+            side.scannedEdges += graph.degree(u);
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                if (!test(side.visited, v)) {
+                    set(side.visited, v);
+                    parent[v] = u;
+                    side.queue[side.tail++] = v;
+                    if (v == target) {
+                        return true;
+                    }
+                }
+            }
+        }
+        side.levelStart = end;
+        return false;
+    }
+
+    private boolean orderedLevelParallel(Side side, int target) {
+        if (keys == null) {
+            keys = new long[parent.length];
+            Arrays.fill(keys, UNREACHED);
+        }
+        long[] visited = side.visited;
+        int[] queue = side.queue;
+        int start = side.levelStart;
+        int end = side.tail;
+        int chunks = side.chunks(end - start);
+        for (int i = start; i < end; i++) {
+            side.scannedEdges += graph.degree(queue[i]);
+        }
+        // Every newly reached vertex keeps the earliest edge that reached it.
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            for (int i = chunkStart(start, end, chunks, c); i < chunkStart(start, end, chunks, c + 1); i++) {
+                int u = queue[i];
+                int begin = graph.begin(u);
+                for (int e = begin; e < graph.end(u); e++) {
+                    int v = graph.target(e);
+                    if (!test(visited, v)) {
+                        long key = (long) (i - start) << 32 | (e - begin);
+                        long current;
+                        while (key < (current = (long) LONGS.getVolatile(keys, v))) {
+                            if (LONGS.compareAndSet(keys, v, current, key)) {
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        });
+        // Each chunk emits the vertices whose earliest edge is one of its own.
+        int[][] found = new int[chunks][];
+        int[] counts = new int[chunks];
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int[] out = new int[16];
+            int count = 0;
+            for (int i = chunkStart(start, end, chunks, c); i < chunkStart(start, end, chunks, c + 1); i++) {
+                int u = queue[i];
+                int begin = graph.begin(u);
+                for (int e = begin; e < graph.end(u); e++) {
+                    int v = graph.target(e);
+                    if (keys[v] == ((long) (i - start) << 32 | (e - begin))) {
+                        if (count == out.length) {
+                            out = Arrays.copyOf(out, count * 2);
+                        }
+                        out[count++] = v;
+                        parent[v] = u;
+                    }
+                }
+            }
+            found[c] = out;
+            counts[c] = count;
+        });
+        boolean reached = false;
+        for (int c = 0; c < chunks; c++) {
+            for (int i = 0; i < counts[c]; i++) {
+                int v = found[c][i];
+                keys[v] = UNREACHED;
+                set(visited, v);
+                queue[side.tail++] = v;
+                reached |= v == target;
+            }
+        }
+        side.levelStart = end;
+        return reached;
+    }
+
+    private static int chunkStart(int start, int end, int chunks, int c) {
+        return start + (int) ((long) (end - start) * c / chunks);
+    }
+
+    private static boolean test(long[] bits, int v) {
+        return (bits[v >>> 6] & 1L << v) != 0;
+    }
+
+    private static void set(long[] bits, int v) {
+        bits[v >>> 6] |= 1L << v;
+    }
+
+    // Sets v's bit unless it already was set; safe under concurrent calls.
+    private static boolean claim(long[] bits, int v) {
+        int w = v >>> 6;
+        long bit = 1L << v;
+        long old = bits[w];
+        while ((old & bit) == 0) {
+            if (LONGS.compareAndSet(bits, w, old, old | bit)) {
+                return true;
+            }
+            old = (long) LONGS.getVolatile(bits, w);
+        }
+        return false;
+    }
+
+    // -------------------------------------------------------------
+    // One direction of a search: out is the graph it grows along, in the
+    // opposite graph that its bottom-up levels look through. All vertices
+    // it visited are queue[0, tail); the frontier is queue[levelStart, tail).
+    // -------------------------------------------------------------
+    private static final class Side {
+        CompressedGraph out;
+        CompressedGraph in;
+        int vertexCount;
+        final int parallelism = Runtime.getRuntime().availableProcessors();
+        long[] visited;
+        long[] inFrontier;
+        int[] queue;
+        int levelStart;
+        int tail;
+        // Out-edges of the frontier, and in-edges of unvisited vertices:
+        // the costs of the next level top-down and (at most) bottom-up.
+        long frontierEdges;
+        long unexploredEdges;
+        boolean bottomUp;
+        long visitedVertices;
+        long scannedEdges;
+
+        Side(CompressedGraph out, CompressedGraph in) {
+            this.out = out;
+            this.in = in;
+            vertexCount = out.vertexCount();
+            visited = new long[(vertexCount + 63) >>> 6];
+            inFrontier = new long[visited.length];
+            queue = new int[vertexCount];
+        }
+
+        // Called between searches, when visited is all clear; grows the
+        // arrays by half at least.
+        void retarget(CompressedGraph out, CompressedGraph in) {
+            this.out = out;
+            this.in = in;
+            vertexCount = out.vertexCount();
+            if (queue.length < vertexCount) {
+                int capacity = Math.max(vertexCount, queue.length + (queue.length >> 1));
+                visited = new long[(capacity + 63) >>> 6];
+                inFrontier = new long[visited.length];
+                queue = new int[capacity];
+            }
+        }
+
+        void start(int source) {
+            set(visited, source);
+            queue[0] = source;
+            levelStart = 0;
+            tail = 1;
+            frontierEdges = out.degree(source);
+            unexploredEdges = in.edgeCount() - in.degree(source);
+            bottomUp = false;
+        }
+
+        int frontierSize() {
+            return tail - levelStart;
+        }
+
+        void clear() {
+            visitedVertices += tail;
+            for (int i = 0; i < tail; i++) {
+                visited[queue[i] >>> 6] = 0;
+            }
+            tail = 0;
+        }
+
+        int chunks(int work) {
+            return Math.max(1, Math.min(parallelism * CHUNKS_PER_THREAD, work / (PARALLEL_FRONTIER / 4)));
+        }
+
+        // Expands the frontier by one level; true as soon as a vertex that
+        // other has visited is reached.
+        boolean expand(Side other) {
+            if (!bottomUp && frontierEdges > unexploredEdges / ALPHA) {
+                bottomUp = true;
+            } else if (bottomUp && frontierSize() < vertexCount / BETA) {
+                bottomUp = false;
+            }
+            scannedEdges += bottomUp ? unexploredEdges : frontierEdges;
+            int end = tail;
+            int newFrom = tail;
+            boolean parallel = parallelism > 1
+                    && (bottomUp ? vertexCount : frontierSize()) >= PARALLEL_FRONTIER;
+            boolean met;
+            if (bottomUp) {
+                met = parallel ? bottomUpParallel(other) : bottomUp(other);
+            } else {
+                met = parallel ? topDownParallel(other) : topDown(other);
+            }
+            levelStart = end;
+            frontierEdges = 0;
+            for (int i = newFrom; i < tail; i++) {
+                frontierEdges += out.degree(queue[i]);
+                unexploredEdges -= in.degree(queue[i]);
+            }
+            return met;
+        }
+
+        private boolean topDown(Side other) {
+            for (int i = levelStart, end = tail; i < end; i++) {
+                int u = queue[i];
+                for (int e = out.begin(u); e < out.end(u); e++) {
+                    int v = out.target(e);
+                    if (!test(visited, v)) {
+                        set(visited, v);
+                        queue[tail++] = v;
+                        if (test(other.visited, v)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean bottomUp(Side other) {
+            markFrontier(true);
+            boolean met = false;
+            for (int w = 0; w < visited.length && !met; w++) {
+                long unvisited = ~visited[w];
+                while (unvisited != 0 && !met) {
+                    int v = (w << 6) + Long.numberOfTrailingZeros(unvisited);
+                    unvisited &= unvisited - 1;
+                    if (v >= vertexCount) {
+                        break;
+                    }
+                    if (hasFrontierParent(v)) {
+                        visited[w] |= 1L << v;
+                        queue[tail++] = v;
+                        met = test(other.visited, v);
+                    }
+                }
+            }
+            markFrontier(false);
+            return met;
+        }
+
+        private boolean hasFrontierParent(int v) {
+            for (int e = in.begin(v); e < in.end(v); e++) {
+                if (test(inFrontier, in.target(e))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void markFrontier(boolean on) {
+            for (int i = levelStart; i < tail; i++) {
+                if (on) {
+                    set(inFrontier, queue[i]);
+                } else {
+                    inFrontier[queue[i] >>> 6] = 0;
+                }
+            }
+        }
+
+        private boolean topDownParallel(Side other) {
+            int start = levelStart;
+            int end = tail;
+            int chunks = chunks(end - start);
+            int[][] found = new int[chunks][];
+            int[] counts = new int[chunks];
+            boolean[] met = new boolean[chunks];
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int[] next = new int[16];
+                int count = 0;
+                for (int i = chunkStart(start, end, chunks, c); i < chunkStart(start, end, chunks, c + 1); i++) {
+                    int u = queue[i];
+                    for (int e = out.begin(u); e < out.end(u); e++) {
+                        int v = out.target(e);
+                        if (!test(visited, v) && claim(visited, v)) {
+                            if (count == next.length) {
+                                next = Arrays.copyOf(next, count * 2);
+                            }
+                            next[count++] = v;
+                            met[c] |= test(other.visited, v);
+                        }
+                    }
+                }
+                found[c] = next;
+                counts[c] = count;
+            });
+            return append(found, counts, met);
+        }
+
+        private boolean bottomUpParallel(Side other) {
+            markFrontier(true);
+            int words = visited.length;
+            int chunks = Math.min(parallelism * CHUNKS_PER_THREAD, words);
+            int[][] found = new int[chunks][];
+            int[] counts = new int[chunks];
+            boolean[] met = new boolean[chunks];
+            // Chunks own disjoint ranges of visited words, so plain writes do.
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int[] next = new int[16];
+                int count = 0;
+                for (int w = chunkStart(0, words, chunks, c); w < chunkStart(0, words, chunks, c + 1); w++) {
+                    long unvisited = ~visited[w];
+                    while (unvisited != 0) {
+                        int v = (w << 6) + Long.numberOfTrailingZeros(unvisited);
+                        unvisited &= unvisited - 1;
+                        if (v >= vertexCount) {
+                            break;
+                        }
+                        if (hasFrontierParent(v)) {
+                            visited[w] |= 1L << v;
+                            if (count == next.length) {
+                                next = Arrays.copyOf(next, count * 2);
+                            }
+                            next[count++] = v;
+                            met[c] |= test(other.visited, v);
+                        }
+                    }
+                }
+                found[c] = next;
+                counts[c] = count;
+            });
+            markFrontier(false);
+            return append(found, counts, met);
+        }
+
+        private boolean append(int[][] found, int[] counts, boolean[] met) {
+            boolean any = false;
+            for (int c = 0; c < found.length; c++) {
+                System.arraycopy(found[c], 0, queue, tail, counts[c]);
+                tail += counts[c];
+                any |= met[c];
+            }
+            return any;
+        }
+    }
+}
@@ -1,75 +1,320 @@
 import java.io.*;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
 import java.util.*;
 
 public class Graph {
 
-    private int pathCount = 0;
-    private Map<String, Integer> nameToIndex = new HashMap<>();
-    private List<String> indexToName = new ArrayList<>();
-    private List<List<Edge>> adjacencyList = new ArrayList<>();
+    // Vertex names <-> ids; lookups by name do not allocate.
+    private VertexDictionary dictionary = new VertexDictionary();
+    // Immutable CSR adjacency, rebuilt once at the end of every ReadGraphFromFile
+    // and replaced by a new version after every change (AddEdge, ...).
+    private CompressedGraph graph = CompressedGraph.EMPTY;
+    // Bumped on every change of the graph; tags the cached query answers.
+    private long version;
+    private final QueryCache cache = new QueryCache(QueryCache.DEFAULT_BYTES);
+    // Both directions of the graph as it changes; null until the first change.
+    private GraphOverlay overlay;
+    private GraphOverlay reverseOverlay;
+    // Only non-null while a file is being read.
+    private EdgeBuffer pendingEdges;
+    private String lastLoadReport;
+    // Built on first use and dropped whenever the graph is re-read.
+    private CompressedGraph reverseGraph;
+    private ShortestPathEngine shortestPaths;
+    private Landmarks landmarks;
+    private ContractionHierarchy hierarchy;
+    private ContractionHierarchy.Query hierarchyQuery;
+    private ComponentIndex components;
+    private DegreeIndex degrees;
+    private TraversalEngine traversal;
+    private FrontierSearch frontier;
+    private PathCounter pathCounter;
+    // Neighbors() marks the targets it has listed with neighborEpoch.
+    private int[] neighborMarks;
+    private int neighborEpoch;
+
+    static final int DEFAULT_LANDMARKS = 8;
+
+    // Call counts, latencies and work per operation, see GraphMetrics.
+    private static final GraphMetrics.Operation READ_GRAPH_FROM_FILE = GraphMetrics.operation("ReadGraphFromFile");
+    private static final GraphMetrics.Operation SNAPSHOT = GraphMetrics.operation("Snapshot");
+    private static final GraphMetrics.Operation WRITE_SNAPSHOT = GraphMetrics.operation("WriteSnapshot");
+    private static final GraphMetrics.Operation READ_SNAPSHOT = GraphMetrics.operation("ReadSnapshot");
+    private static final GraphMetrics.Operation IS_DIRECTED = GraphMetrics.operation("IsDirected");
+    private static final GraphMetrics.Operation IS_THERE_A_PATH = GraphMetrics.operation("IsThereAPath");
+    private static final GraphMetrics.Operation BFS_FROM_TO = GraphMetrics.operation("BFSfromTo");
+    private static final GraphMetrics.Operation DFS_FROM_TO = GraphMetrics.operation("DFSfromTo");
+    private static final GraphMetrics.Operation WHAT_IS_SHORTEST_PATH_LENGTH = GraphMetrics
+            .operation("WhatIsShortestPathLength");
+    private static final GraphMetrics.Operation SHORTEST_PATH = GraphMetrics.operation("ShortestPath");
+    private static final GraphMetrics.Operation DISTANCE_MATRIX = GraphMetrics.operation("DistanceMatrix");
+    private static final GraphMetrics.Operation WRITE_DISTANCE_MATRIX = GraphMetrics.operation("WriteDistanceMatrix");
+    private static final GraphMetrics.Operation PREPARE_LANDMARKS = GraphMetrics.operation("PrepareLandmarks");
+    private static final GraphMetrics.Operation SAVE_LANDMARKS = GraphMetrics.operation("SaveLandmarks");
+    private static final GraphMetrics.Operation LOAD_LANDMARKS = GraphMetrics.operation("LoadLandmarks");
+    private static final GraphMetrics.Operation PREPARE_CONTRACTION_HIERARCHY = GraphMetrics
+            .operation("PrepareContractionHierarchy");
+    private static final GraphMetrics.Operation NUMBER_OF_SIMPLE_PATHS = GraphMetrics.operation("NumberOfSimplePaths");
+    private static final GraphMetrics.Operation COUNT_SIMPLE_PATHS = GraphMetrics.operation("CountSimplePaths");
+    private static final GraphMetrics.Operation NEIGHBORS = GraphMetrics.operation("Neighbors");
+    private static final GraphMetrics.Operation HIGHEST_DEGREE = GraphMetrics.operation("HighestDegree");
+    private static final GraphMetrics.Operation TOP_DEGREE_VERTICES = GraphMetrics.operation("TopDegreeVertices");
+    private static final GraphMetrics.Operation DEGREE_HISTOGRAM = GraphMetrics.operation("DegreeHistogram");
+    private static final GraphMetrics.Operation IN_DEGREE = GraphMetrics.operation("InDegree");
+    private static final GraphMetrics.Operation OUT_DEGREE = GraphMetrics.operation("OutDegree");
+    private static final GraphMetrics.Operation ARE_THEY_ADJACENT = GraphMetrics.operation("AreTheyAdjacent");
+    private static final GraphMetrics.Operation IS_THERE_A_CYCLE = GraphMetrics.operation("IsThereACycle");
+    private static final GraphMetrics.Operation NUMBER_OF_VERTICES_IN_COMPONENT = GraphMetrics
+            .operation("NumberOfVerticesInComponent");
+    private static final GraphMetrics.Operation NUMBER_OF_VERTICES_IN_STRONG_COMPONENT = GraphMetrics
+            .operation("NumberOfVerticesInStrongComponent");
+    private static final GraphMetrics.Operation ARE_IN_SAME_COMPONENT = GraphMetrics.operation("AreInSameComponent");
+    private static final GraphMetrics.Operation ARE_STRONGLY_CONNECTED = GraphMetrics.operation("AreStronglyConnected");
+    private static final GraphMetrics.Operation ADD_VERTEX = GraphMetrics.operation("AddVertex");
+    private static final GraphMetrics.Operation ADD_EDGE = GraphMetrics.operation("AddEdge");
+    private static final GraphMetrics.Operation REMOVE_EDGE = GraphMetrics.operation("RemoveEdge");
+    private static final GraphMetrics.Operation SET_EDGE_WEIGHT = GraphMetrics.operation("SetEdgeWeight");
+    private final GraphMetrics.Probe probe = new GraphMetrics.Probe();
 
     private boolean isDirected;
 
-    private static class Edge {
-        int target;
-        int weight;
+    // -------------------------------------------------------------
+    // ReadGraphFromFile(String filename)
+    // Reads lines like "A -> B: 3, C: 2" (see GraphFileParser for the exact
+    // rules) and appends their edges to the graph. LastLoadReport()
+    // describes the read afterwards, including its throughput.
+    // -------------------------------------------------------------
+    public void ReadGraphFromFile(String filename) {
+        ReadGraphFromFile(filename, false);
+    }
 
-        public Edge(int target, int weight) {
-            this.target = target;
-            this.weight = weight;
+    // -------------------------------------------------------------
+    // ReadGraphFromFile(String filename, boolean parallel)
+    // With parallel set, the file is cut into line-aligned chunks that are
+    // parsed on all cores; the chunks are then merged in file order, so
+    // the resulting graph (vertex numbering included) is identical to a
+    // sequential read.
+    // -------------------------------------------------------------
+    public void ReadGraphFromFile(String filename, boolean parallel) {
+        begin();
+        try {
+            // Edges from an earlier read are kept, new ones are appended after them.
+            pendingEdges = graph.edgeCount() == 0 ? new EdgeBuffer() : graph.toEdgeBuffer();
+            long startTime = System.nanoTime();
+            List<GraphFileParser.Chunk> chunks = Collections.emptyList();
+            try (FileInputStream in = new FileInputStream(filename); FileChannel channel = in.getChannel()) {
+                if (parallel) {
+                    chunks = GraphFileParser.parseParallel(channel, Runtime.getRuntime().availableProcessors());
+                } else {
+                    chunks = Collections.singletonList(GraphFileParser.parse(channel, 0, channel.size()));
+                }
+            } catch (IOException e) {
+                System.out.println("Error reading file: " + e.getMessage());
+            }
+            long bytes = 0;
+            long lines = 0;
+            int edgesBefore = pendingEdges.size();
+            for (GraphFileParser.Chunk chunk : chunks) {
+                appendChunk(chunk);
+                bytes += chunk.bytes();
+                lines += chunk.lines();
+                if (chunk.error() != null) {
+                    // A sequential read would have stopped here.
+                    System.out.println("Error reading file: " + chunk.error());
+                    break;
+                }
+            }
+            int edgesRead = pendingEdges.size() - edgesBefore;
+            replaceGraph(new CompressedGraph(dictionary.size(), pendingEdges));
+            pendingEdges = null;
+            if (!chunks.isEmpty()) {
+                lastLoadReport = loadReport(filename, bytes, lines, edgesRead, System.nanoTime() - startTime);
+            }
+        } finally {
+            end(READ_GRAPH_FROM_FILE);
         }
     }
 
-    private int ensureVertex(String cityName) {
-        if (!nameToIndex.containsKey(cityName)) {
-            nameToIndex.put(cityName, indexToName.size());
-            indexToName.add(cityName);
-            adjacencyList.add(new ArrayList<>());
+    // Registers the chunk's vertex names in order of first appearance and
+    // adds its edges under the resulting graph ids.
+    private void appendChunk(GraphFileParser.Chunk chunk) {
+        int[] ids = new int[chunk.vertexCount()];
+        for (int local = 0; local < ids.length; local++) {
+            ids[local] = dictionary.intern(chunk.names(), local);
+        }
+        EdgeBuffer edges = chunk.edges();
+        for (int i = 0; i < edges.size(); i++) {
+            pendingEdges.add(ids[edges.source(i)], ids[edges.target(i)], edges.weight(i));
         }
-        return nameToIndex.get(cityName);
     }
 
-    private void addEdge(String city1, String city2, int weight) {
-        int v1 = ensureVertex(city1);
-        int v2 = ensureVertex(city2);
-        adjacencyList.get(v1).add(new Edge(v2, weight));
+    private static String loadReport(String filename, long bytes, long lines, long edges, long nanos) {
+        double megabytes = bytes / (1024.0 * 1024.0);
+        double seconds = Math.max(nanos, 1) / 1e9;
+        return String.format(Locale.ROOT, "Read %s: %d lines, %d edges, %.2f MB in %.1f ms (%.1f MB/s)", filename,
+                lines, edges, megabytes, seconds * 1000, megabytes / seconds);
     }
 
-    public void ReadGraphFromFile(String filename) {
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty())
-                    continue;
-
-                String[] splitArrow = line.split("->");
-                if (splitArrow.length < 2) {
-                    continue; // malformed line
-                }
-                String source = splitArrow[0].trim();
-                // Right side has edges separated by commas
-                String edgesPart = splitArrow[1].trim();
-                // Example edgesPart = "B:3, C:2, D:1, E:4"
-
-                // Each edge is separated by comma
-                String[] edgeDefs = edgesPart.split(",");
-                for (String ed : edgeDefs) {
-                    ed = ed.trim();
-                    // Ed is something like "B:3"
-                    String[] parts = ed.split(":");
-                    if (parts.length == 2) {
-                        String neighbor = parts[0].trim();
-                        int weight = Integer.parseInt(parts[1].trim());
-                        addEdge(source, neighbor, weight);
-                    }
-                }
+    // Installs a new adjacency structure and drops everything derived from the old one.
+    private void replaceGraph(CompressedGraph newGraph) {
+        graph = newGraph;
+        version++;
+        overlay = null;
+        reverseOverlay = null;
+        reverseGraph = null;
+        shortestPaths = null;
+        landmarks = null;
+        hierarchy = null;
+        hierarchyQuery = null;
+        components = null;
+        degrees = null;
+        traversal = null;
+        frontier = null;
+        pathCounter = null;
+    }
+
+    // Summary of the last ReadGraphFromFile or ReadSnapshot, or null before the first one.
+    public String LastLoadReport() {
+        return lastLoadReport;
+    }
+
+    // Hit and miss counts of the cache behind IsThereAPath and
+    // WhatIsShortestPathLength, which remembers answers until the graph changes.
+    public String CacheReport() {
+        return cache.report();
+    }
+
+    // -------------------------------------------------------------
+    // Snapshot()
+    // Immutable copy of the current graph for concurrent readers, see
+    // GraphQueryService. Landmarks and a contraction hierarchy prepared
+    // here are handed over; later changes to this Graph do not affect it.
+    // -------------------------------------------------------------
+    public GraphSnapshot Snapshot() {
+        begin();
+        try {
+            return new GraphSnapshot(dictionary.copy(), graph, landmarks, hierarchy);
+        } finally {
+            end(SNAPSHOT);
+        }
+    }
+
+    // -------------------------------------------------------------
+    // WriteSnapshot(String filename) / ReadSnapshot(String filename)
+    // Save the graph as a binary snapshot (see GraphSnapshotFile) and
+    // open one again. Reading a snapshot replaces the current graph; its
+    // edges stay in the memory-mapped file instead of being copied, so
+    // opening even a large graph is quick.
+    // -------------------------------------------------------------
+    public boolean WriteSnapshot(String filename) {
+        begin();
+        try {
+            try {
+                GraphSnapshotFile.write(filename, dictionary, graph);
+                return true;
+            } catch (IOException e) {
+                System.out.println("Error writing snapshot: " + e.getMessage());
+                return false;
+            }
+        } finally {
+            end(WRITE_SNAPSHOT);
+        }
+    }
+
+    public boolean ReadSnapshot(String filename) {
+        begin();
+        try {
+            long startTime = System.nanoTime();
+            GraphSnapshotFile snapshot;
+            try {
+                snapshot = GraphSnapshotFile.open(filename);
+            } catch (IOException e) {
+                System.out.println("Error reading snapshot: " + e.getMessage());
+                return false;
             }
-            br.close();
+            dictionary = snapshot.names();
+            replaceGraph(snapshot.graph());
+            lastLoadReport = String.format(Locale.ROOT, "Opened snapshot %s: %d vertices, %d edges in %.1f ms",
+                    filename, graph.vertexCount(), graph.edgeCount(), (System.nanoTime() - startTime) / 1e6);
+            return true;
+        } finally {
+            end(READ_SNAPSHOT);
+        }
+    }
 
-        } catch (Exception e) {
-            System.out.println("Error reading file: " + e.getMessage());
+    private CompressedGraph reverseGraph() {
+        if (reverseGraph == null) {
+            reverseGraph = graph.reverse();
         }
+        return reverseGraph;
+    }
+
+    private ComponentIndex components() {
+        if (components == null) {
+            components = ComponentIndex.build(graph);
+        } else if (components.isStale()) {
+            components = components.refreshed(graph);
+        }
+        return components;
+    }
+
+    private DegreeIndex degrees() {
+        if (degrees == null) {
+            degrees = DegreeIndex.build(graph);
+        }
+        return degrees;
+    }
+
+    private TraversalEngine traversal() {
+        if (traversal == null) {
+            traversal = new TraversalEngine(graph);
+        }
+        return traversal;
+    }
+
+    private FrontierSearch frontier() {
+        if (frontier == null) {
+            frontier = new FrontierSearch(graph, reverseGraph());
+        }
+        return frontier;
+    }
+
+    private PathCounter pathCounter() {
+        if (pathCounter == null) {
+            pathCounter = new PathCounter(graph, reverseGraph());
+        }
+        return pathCounter;
+    }
+
+    private ShortestPathEngine shortestPaths() {
+        if (shortestPaths == null) {
+            shortestPaths = new ShortestPathEngine(graph, reverseGraph());
+        }
+        return shortestPaths;
+    }
+
+    private void begin() {
+        probe.begin(visitedVertices(), scannedEdges());
+    }
+
+    private void end(GraphMetrics.Operation operation) {
+        probe.end(operation, visitedVertices(), scannedEdges());
+    }
+
+    // Work done so far by the current search engines.
+    private long visitedVertices() {
+        return (traversal == null ? 0 : traversal.visitedVertices())
+                + (frontier == null ? 0 : frontier.visitedVertices())
+                + (shortestPaths == null ? 0 : shortestPaths.visitedVertices())
+                + (pathCounter == null ? 0 : pathCounter.visitedVertices());
+    }
+
+    private long scannedEdges() {
+        return (traversal == null ? 0 : traversal.scannedEdges())
+                + (frontier == null ? 0 : frontier.scannedEdges())
+                + (shortestPaths == null ? 0 : shortestPaths.scannedEdges())
+                + (pathCounter == null ? 0 : pathCounter.scannedEdges());
     }
 
     // -------------------------------------------------------------
@@ -78,22 +323,51 @@ public class Graph {
     // otherwise.
     // -------------------------------------------------------------
     public boolean IsDirected() {
-        for (int u = 0; u < adjacencyList.size(); u++) {
-            for (Edge edge : adjacencyList.get(u)) {
-                int v = edge.target;
-                int weight = edge.weight;
-                boolean reverseEdgeExists = false;
-
-                for (Edge reverseEdge : adjacencyList.get(v)) {
-                    if (reverseEdge.target == u && reverseEdge.weight == weight) {
-                        reverseEdgeExists = true;
-                        break;
+        begin();
+        try {
+            // Every edge u -> v needs an edge v -> u of the same weight. The
+            // edges v -> u are u's in-edges, so marking them before looking at
+            // u's out-edges makes this one pass over the edges. Only sources
+            // with several in-edges of different weights need a search.
+            CompressedGraph reverse = reverseGraph();
+            int n = graph.vertexCount();
+            int[] markedFor = new int[n];
+            int[] mixedFor = new int[n];
+            int[] markedWeight = new int[n];
+            Arrays.fill(markedFor, -1);
+            Arrays.fill(mixedFor, -1);
+            for (int u = 0; u < n; u++) {
+                for (int r = reverse.begin(u); r < reverse.end(u); r++) {
+                    int v = reverse.target(r);
+                    if (markedFor[v] != u) {
+                        markedFor[v] = u;
+                        markedWeight[v] = reverse.weight(r);
+                    } else if (markedWeight[v] != reverse.weight(r)) {
+                        mixedFor[v] = u;
                     }
                 }
-                if (!reverseEdgeExists) {
-                    return true;
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int v = graph.target(e);
+                    int weight = graph.weight(e);
+                    if (markedFor[v] != u) {
+                        return true;
+                    }
+                    if (markedWeight[v] != weight && (mixedFor[v] != u || !hasEdge(v, u, weight))) {
+                        return true;
+                    }
                 }
             }
+            return false;
+        } finally {
+            end(IS_DIRECTED);
+        }
+    }
+
+    private boolean hasEdge(int from, int to, int weight) {
+        for (int e = graph.begin(from); e < graph.end(from); e++) {
+            if (graph.target(e) == to && graph.weight(e) == weight) {
+                return true;
+            }
         }
         return false;
     }
@@ -104,31 +378,17 @@ public class Graph {
     // the edges between the vertices while starting a BFS fromv1 until reaching v2.
     // -------------------------------------------------------------
     public boolean IsThereAPath(String v1, String v2) {
-        if (!nameToIndex.containsKey(v1) || !nameToIndex.containsKey(v2)) {
-            return false;
-        }
-        int start = nameToIndex.get(v1);
-        int goal = nameToIndex.get(v2);
-
-        boolean[] visited = new boolean[adjacencyList.size()];
-        Deque<Integer> queue = new ArrayDeque<>();
-        queue.add(start);
-        visited[start] = true;
-
-        while (!queue.isEmpty()) {
-            int current = queue.poll();
-            if (current == goal) {
-                return true;
-            }
-            for (Edge edge : adjacencyList.get(current)) {
-                int neighbor = edge.target;
-                if (!visited[neighbor]) {
-                    visited[neighbor] = true;
-                    queue.add(neighbor);
-                }
+        begin();
+        try {
+            int a = dictionary.id(v1);
+            int b = dictionary.id(v2);
+            if (a < 0 || b < 0) {
+                return false;
             }
+            return cache.reachable(version, frontier(), a, b);
+        } finally {
+            end(IS_THERE_A_PATH);
         }
-        return false;
     }
 
     // -------------------------------------------------------------
@@ -138,216 +398,326 @@ public class Graph {
     // BFS children are visited in ascending order of edge weight.
     // -------------------------------------------------------------
     public void BFSfromTo(String v1, String v2) {
-        if (!nameToIndex.containsKey(v1) || !nameToIndex.containsKey(v2)) {
-            System.out.println("No such vertices.");
-            return;
-        }
-
-        int start = nameToIndex.get(v1);
-        int goal = nameToIndex.get(v2);
-
-        int n = adjacencyList.size();
-        boolean[] visited = new boolean[n];
-        int[] parent = new int[n];
-
-        for (int i = 0; i < parent.length; i++) {
-            parent[i] = -1;
-        }
-
-        Deque<Integer> queue = new ArrayDeque<>();
-        visited[start] = true;
-        queue.offer(start);
-
-        while (!queue.isEmpty()) {
-            int current = queue.poll();
-            if (current == goal) {
-                System.out.println("Path is: " + printPathWithWeightsBFS(parent, start, goal));
+        begin();
+        try {
+            int start = dictionary.id(v1);
+            int finish = dictionary.id(v2);
+            if (start < 0 || finish < 0) {
+                System.out.println("No such vertices.");
                 return;
             }
-            for (Edge edge : adjacencyList.get(current)) {
-                int neighbor = edge.target;
-                if (!visited[neighbor]) {
-                    visited[neighbor] = true;
-                    parent[neighbor] = current;
-                    queue.offer(neighbor);
-                }
+
+            FrontierSearch engine = frontier();
+            if (engine.breadthFirstPath(start, finish)) {
+                int[] path = engine.lastPath();
+                System.out.println("Path is: " + pathToString(path, path.length));
+                return;
             }
+            System.out.println("Between " + v1 + " ve " + v2 + "contains no way.");
+        } finally {
+            end(BFS_FROM_TO);
         }
-        System.out.println("Between " + v1 + " ve " + v2 + "contains no way.");
     }
 
-    private String printPathWithWeightsBFS(int[] parent, int start, int target) {
-        List<Integer> path = new ArrayList<>();
-        int cur = target;
-        while (cur != -1) {
-            path.add(cur);
-            cur = parent[cur];
-        }
-
-        List<Integer> reversedPath = new ArrayList<>();
-        for (int i = path.size() - 1; i >= 0; i--) {
-            reversedPath.add(path.get(i));
-        }
-
-        // PATH maker yapabilirim
-        String pathStr = "";
-        for (int i = 0; i < reversedPath.size(); i++) {
-            pathStr += indexToName.get(reversedPath.get(i));
-            if (i < reversedPath.size() - 1) {
-                int w = getWeight(reversedPath.get(i), reversedPath.get(i + 1));
-                pathStr += " -" + w + "-> ";
+    // PATH maker: "A -3-> B -1-> C"
+    private String pathToString(int[] path, int length) {
+        StringBuilder pathStr = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            pathStr.append(dictionary.name(path[i]));
+            if (i < length - 1) {
+                int w = getWeight(path[i], path[i + 1]);
+                pathStr.append(" -").append(w).append("-> ");
             }
         }
-        return pathStr;
+        return pathStr.toString();
     }
 
     private int getWeight(int from, int to) {
-        for (Edge e : adjacencyList.get(from)) {
-            if (e.target == to) {
-                return e.weight;
-            }
-        }
-        return -1; // Bulunamadıysa
+        int e = graph.findEdge(from, to);
+        return e >= 0 ? graph.weight(e) : -1; // Bulunamadıysa
     }
 
     // -------------------------------------------------------------
     // 4) DFSfromTo(String v1, String v2)
     // Print the sequence of vertices (names) + edges (weights)
     // while starting a DFS from v1 until reaching v2.
-    // We'll do a simple recursive DFS.
+    // The DFS is iterative (see TraversalEngine), so long chains cannot
+    // overflow the stack.
     // -------------------------------------------------------------
     public void DFSfromTo(String v1, String v2) {
-        if (!nameToIndex.containsKey(v1) || !nameToIndex.containsKey(v2)) {
-            System.out.println("No such vertices.");
-            return;
-        }
-        int start = nameToIndex.get(v1);
-        int finish = nameToIndex.get(v2);
-
-        boolean[] visited = new boolean[adjacencyList.size()];
-        List<Integer> path = new ArrayList<>();
-        path.add(start);
+        begin();
+        try {
+            int start = dictionary.id(v1);
+            int finish = dictionary.id(v2);
+            if (start < 0 || finish < 0) {
+                System.out.println("No such vertices.");
+                return;
+            }
 
-        if (!dfsCode(start, finish, visited, path)) {
-            System.out.println(v1 + " --x-- " + v2 + " (no DFS path found)");
+            TraversalEngine engine = traversal();
+            if (engine.depthFirstPath(start, finish)) {
+                int[] path = engine.lastPath();
+                System.out.println("DFS path: " + pathToString(path, path.length));
+            } else {
+                System.out.println(v1 + " --x-- " + v2 + " (no DFS path found)");
+            }
+        } finally {
+            end(DFS_FROM_TO);
         }
     }
 
-    private boolean dfsCode(int current, int goal, boolean[] visited, List<Integer> path) {
-        if (current == goal) {
-            String pathStr = "";
-            for (int i = 0; i < path.size(); i++) {
-                pathStr += indexToName.get(path.get(i));
-                if (i < path.size() - 1) {
-                    int w = getWeight(path.get(i), path.get(i + 1));
-                    pathStr += " -" + w + "-> ";
-                }
+    // -------------------------------------------------------------
+    // 5) WhatIsShortestPathLength(String v1, String v2)
+    // Returns the MINIMUM sum-of-weights over all paths from v1 to v2,
+    // or -1 if there is none. Uses bidirectional Dijkstra, so edge
+    // weights must not be negative. Answers are cached; sources asked
+    // for often get all their distances computed at once.
+    // -------------------------------------------------------------
+    public int WhatIsShortestPathLength(String v1, String v2) {
+        begin();
+        try {
+            int start = dictionary.id(v1);
+            int goal = dictionary.id(v2);
+            if (start < 0 || goal < 0) {
+                System.out.println(v1 + " --x-- " + v2);
+                return -1;
             }
-            System.out.println("DFS path: " + pathStr);
-            return true;
+            if (graph.hasNegativeWeights()) {
+                System.out.println("Shortest paths need non-negative edge weights.");
+                return -1;
+            }
+            int distance = cache.distance(version, shortestPaths(), graph.vertexCount(), start, goal);
+            return distance == ShortestPathEngine.INFINITY ? -1 : distance;
+        } finally {
+            end(WHAT_IS_SHORTEST_PATH_LENGTH);
         }
-        visited[current] = true;
-        for (Edge edge : adjacencyList.get(current)) {
-            int neighbor = edge.target;
-            if (!visited[neighbor]) {
-                path.add(neighbor);
-                if (dfsCode(neighbor, goal, visited, path)) {
-                    return true;
-                }
-                path.remove(path.size() - 1);
+    }
+
+    // -------------------------------------------------------------
+    // 5b) ShortestPath(String v1, String v2)
+    // Same search as WhatIsShortestPathLength, but also returns the path
+    // itself with the weight of every edge on it.
+    // -------------------------------------------------------------
+    public PathResult ShortestPath(String v1, String v2) {
+        return ShortestPath(v1, v2, RoutingMode.BIDIRECTIONAL);
+    }
+
+    // -------------------------------------------------------------
+    // 5c) ShortestPath(String v1, String v2, RoutingMode mode)
+    // Shortest path with an explicit algorithm. ALT uses the landmark
+    // tables from PrepareLandmarks / LoadLandmarks and prepares
+    // DEFAULT_LANDMARKS of them on first use if there are none yet.
+    // CH needs a hierarchy from PrepareContractionHierarchy, which takes
+    // seconds on large graphs and so is never built inside a query;
+    // without one (none prepared, or dropped by an edit) there is no path.
+    // -------------------------------------------------------------
+    public PathResult ShortestPath(String v1, String v2, RoutingMode mode) {
+        begin();
+        try {
+            int start = dictionary.id(v1);
+            int goal = dictionary.id(v2);
+            if (start < 0 || goal < 0 || graph.hasNegativeWeights()) {
+                return PathResult.NOT_FOUND;
             }
+            ShortestPathEngine engine = shortestPaths();
+            int distance;
+            switch (mode) {
+                case DIJKSTRA:
+                    distance = engine.distance(start, goal);
+                    break;
+                case ALT:
+                    if (landmarks == null) {
+                        PrepareLandmarks(DEFAULT_LANDMARKS);
+                    }
+                    distance = engine.aStarDistance(start, goal, landmarks);
+                    break;
+                case CH:
+                    if (hierarchy == null) {
+                        System.out.println("No contraction hierarchy; call PrepareContractionHierarchy first.");
+                        return PathResult.NOT_FOUND;
+                    }
+                    distance = hierarchyQuery.distance(start, goal);
+                    if (distance == ShortestPathEngine.INFINITY) {
+                        return PathResult.NOT_FOUND;
+                    }
+                    return toPathResult(distance, hierarchyQuery.lastPath(), hierarchyQuery.lastPathWeights());
+                default:
+                    distance = engine.bidirectionalDistance(start, goal);
+            }
+            if (distance == ShortestPathEngine.INFINITY) {
+                return PathResult.NOT_FOUND;
+            }
+            return toPathResult(distance, engine.lastPath(), engine.lastPathWeights());
+        } finally {
+            end(SHORTEST_PATH);
         }
-        return false;
     }
 
     // -------------------------------------------------------------
-    // 5) WhatIsShortestPathLength(String v1, String v2)
-    // Returns the MINIMUM sum-of-weights among all simple paths.
-    // Implementation without “known” algorithms -> do naive DFS
-    // of all paths, track min cost. Potentially expensive!
+    // 5d) DistanceMatrix(List<String> sources, List<String> targets)
+    // All shortest path lengths from sources to targets as a row-major
+    // int[] (sources.size() rows of targets.size()), -1 where there is no
+    // path or a vertex is unknown. One Dijkstra per source, run on all
+    // cores (see DistanceMatrix). Returns null if the graph has negative
+    // weights or the matrix would take more than half the heap;
+    // WriteDistanceMatrix streams such matrices to a file instead.
     // -------------------------------------------------------------
-    public int WhatIsShortestPathLength(String v1, String v2) {
-        if (!nameToIndex.containsKey(v1) || !nameToIndex.containsKey(v2)) {
-            System.out.println(v1 + " --x-- " + v2);
-            return -1;
+    public int[] DistanceMatrix(List<String> sources, List<String> targets) {
+        begin();
+        try {
+            if (graph.hasNegativeWeights()) {
+                System.out.println("Shortest paths need non-negative edge weights.");
+                return null;
+            }
+            long bytes = 4L * sources.size() * targets.size();
+            if (bytes > Runtime.getRuntime().maxMemory() / 2 || bytes / 4 > Integer.MAX_VALUE - 8) {
+                System.out.println("The distance matrix is too large for memory; use WriteDistanceMatrix.");
+                return null;
+            }
+            return DistanceMatrix.compute(graph, reverseGraph(), ids(sources), ids(targets));
+        } finally {
+            end(DISTANCE_MATRIX);
         }
-        int start = nameToIndex.get(v1);
-        int goal = nameToIndex.get(v2);
+    }
 
-        boolean[] visited = new boolean[adjacencyList.size()];
-        int[] distance = new int[adjacencyList.size()];
+    public boolean WriteDistanceMatrix(List<String> sources, List<String> targets, String filename) {
+        begin();
+        try {
+            if (graph.hasNegativeWeights()) {
+                System.out.println("Shortest paths need non-negative edge weights.");
+                return false;
+            }
+            try {
+                DistanceMatrix.write(graph, reverseGraph(), ids(sources), ids(targets), filename);
+                return true;
+            } catch (IOException e) {
+                System.out.println("Error writing distance matrix: " + e.getMessage());
+                return false;
+            }
+        } finally {
+            end(WRITE_DISTANCE_MATRIX);
+        }
+    }
 
-        Queue<Integer> queue = new LinkedList<>();
-        queue.offer(start);
-        visited[start] = true;
-        distance[start] = 0;
+    // Vertex ids of names, -1 for unknown ones.
+    private int[] ids(List<String> names) {
+        int[] ids = new int[names.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = dictionary.id(names.get(i));
+        }
+        return ids;
+    }
 
-        while (!queue.isEmpty()) {
-            int current = queue.poll();
+    // -------------------------------------------------------------
+    // PrepareLandmarks(int count) / SaveLandmarks / LoadLandmarks
+    // Precompute the ALT landmark tables (2 * count ints per vertex), and
+    // store them in a file so they need not be recomputed at startup.
+    // A file only loads into the exact graph it was computed for.
+    // -------------------------------------------------------------
+    public void PrepareLandmarks(int count) {
+        begin();
+        try {
+            landmarks = Landmarks.select(graph, shortestPaths(), count);
+        } finally {
+            end(PREPARE_LANDMARKS);
+        }
+    }
 
-            if (current == goal) {
-                return distance[current];
+    public boolean SaveLandmarks(String filename) {
+        begin();
+        try {
+            if (landmarks == null) {
+                System.out.println("No landmarks prepared.");
+                return false;
             }
-
-            for (Edge edge : adjacencyList.get(current)) {
-                int neighbor = edge.weight;
-                if (!visited[neighbor]) {
-                    visited[neighbor] = true;
-                    distance[neighbor] = distance[current] + 1;
-                    queue.offer(neighbor);
-                }
+            try {
+                landmarks.save(filename);
+                return true;
+            } catch (IOException e) {
+                System.out.println("Error writing landmarks: " + e.getMessage());
+                return false;
             }
+        } finally {
+            end(SAVE_LANDMARKS);
         }
+    }
 
-        int sum = 0;
-        for (int i = 0; i < distance.length; i++) {
-            if (distance[i] != 0) {
-                sum++;
+    public boolean LoadLandmarks(String filename) {
+        begin();
+        try {
+            try {
+                landmarks = Landmarks.load(filename, graph);
+                return true;
+            } catch (IOException e) {
+                System.out.println("Error reading landmarks: " + e.getMessage());
+                return false;
             }
+        } finally {
+            end(LOAD_LANDMARKS);
         }
-        return sum - 1;
     }
 
     // -------------------------------------------------------------
-    // 6) NumberOfSimplePaths(String v1, String v2)
-    // Count how many distinct simple paths exist from v1 to v2
+    // PrepareContractionHierarchy()
+    // Contracts the graph (edge-difference ordering, witness searches,
+    // shortcut edges) for RoutingMode.CH queries, here and in snapshots
+    // taken afterwards. Changes to the graph drop the hierarchy; call
+    // this again once they are done.
     // -------------------------------------------------------------
-    public int NumberOfSimplePaths(String v1, String v2) {
-        // If either vertex doesn't exist, there are no paths.
-        if (!nameToIndex.containsKey(v1) || !nameToIndex.containsKey(v2)) {
-            return 0;
+    public void PrepareContractionHierarchy() {
+        begin();
+        try {
+            hierarchy = ContractionHierarchy.build(graph);
+            hierarchyQuery = hierarchy.newQuery();
+        } finally {
+            end(PREPARE_CONTRACTION_HIERARCHY);
         }
+    }
 
-        int start = nameToIndex.get(v1);
-        int goal = nameToIndex.get(v2);
-
-        // Keep track of visited vertices to avoid revisiting them in the same path.
-        boolean[] visited = new boolean[adjacencyList.size()];
-
-        // pathCount is a class-level integer we reset each time.
-        pathCount = 0;
-
-        // Recursively explore all simple paths from 'start' to 'goal'.
-        countAllPaths(start, goal, visited);
-
-        return pathCount;
+    private PathResult toPathResult(int distance, int[] path, int[] weights) {
+        List<String> names = new ArrayList<>(path.length);
+        for (int v : path) {
+            names.add(dictionary.name(v));
+        }
+        return new PathResult(distance, names, weights);
     }
 
-    private void countAllPaths(int current, int goal, boolean[] visited) {
-        // If we've reached the goal, we found a complete path. Increment and return.
-        if (!visited[current]) {
-            if (current == goal) {
-                pathCount++;
-                return;
-            }
+    // -------------------------------------------------------------
+    // 6) NumberOfSimplePaths(String v1, String v2)
+    // Count how many distinct simple paths exist from v1 to v2
+    // A path may not repeat a vertex; parallel edges make distinct paths
+    // and v1 == v2 has the single empty path. Counts above
+    // Integer.MAX_VALUE are reported as Integer.MAX_VALUE. The count is
+    // exact, which on graphs with many cycles can take exponential time;
+    // CountSimplePaths accepts depth and time limits.
+    // -------------------------------------------------------------
+    public int NumberOfSimplePaths(String v1, String v2) {
+        begin();
+        try {
+            PathCountResult result = CountSimplePaths(v1, v2, -1, 0);
+            return result.count().min(BigInteger.valueOf(Integer.MAX_VALUE)).intValue();
+        } finally {
+            end(NUMBER_OF_SIMPLE_PATHS);
         }
-        visited[current] = true;
+    }
 
-        for (Edge e : adjacencyList.get(current)) {
-            int neighbor = e.target;
-            if (!visited[neighbor]) {
-                countAllPaths(neighbor, goal, visited);
+    // -------------------------------------------------------------
+    // CountSimplePaths(String v1, String v2, int maxDepth, long timeLimitMillis)
+    // Number of simple paths from v1 to v2 with at most maxDepth edges
+    // (no limit if negative), see PathCounter. Stops after timeLimitMillis
+    // (no limit if 0 or less), in which case the result is a lower bound.
+    // -------------------------------------------------------------
+    public PathCountResult CountSimplePaths(String v1, String v2, int maxDepth, long timeLimitMillis) {
+        begin();
+        try {
+            int a = dictionary.id(v1);
+            int b = dictionary.id(v2);
+            if (a < 0 || b < 0) {
+                return PathCountResult.NONE;
             }
+            return pathCounter().count(a, b, maxDepth, timeLimitMillis);
+        } finally {
+            end(COUNT_SIMPLE_PATHS);
         }
     }
 
@@ -356,38 +726,130 @@ public class Graph {
     // Return the names of neighbor vertices of v1
     // -------------------------------------------------------------
     public List<String> Neighbors(String v1) {
-        if (!nameToIndex.containsKey(v1)) {
-            return new ArrayList<>();
+        begin();
+        try {
+            int v = dictionary.id(v1);
+            if (v < 0) {
+                return new ArrayList<>();
+            }
+            List<String> uniqueNeighbors = new ArrayList<>(graph.degree(v));
+
+            int epoch = nextNeighborEpoch();
+            for (int e = graph.begin(v); e < graph.end(v); e++) {
+                int target = graph.target(e);
+                if (neighborMarks[target] != epoch) {
+                    neighborMarks[target] = epoch;
+                    uniqueNeighbors.add(dictionary.name(target));
+                }
+            }
+            return uniqueNeighbors;
+        } finally {
+            end(NEIGHBORS);
         }
-        int v = nameToIndex.get(v1);
-        Set<String> uniqueNeighbors = new LinkedHashSet<>();
+    }
 
-        for (Edge e : adjacencyList.get(v)) {
-            uniqueNeighbors.add(indexToName.get(e.target));
+    // Starts a new round of neighborMarks, sized for the current graph.
+    private int nextNeighborEpoch() {
+        if (neighborMarks == null || neighborMarks.length < graph.vertexCount()) {
+            neighborMarks = new int[graph.vertexCount()];
+            neighborEpoch = 0;
         }
-        return new ArrayList<>(uniqueNeighbors);
+        if (++neighborEpoch == Integer.MAX_VALUE) {
+            Arrays.fill(neighborMarks, 0);
+            neighborEpoch = 1;
+        }
+        return neighborEpoch;
     }
 
     // -------------------------------------------------------------
     // 8) HighestDegree()
     // returns the name of the vertex with the highest degree. If there is more than
     // one, it returns the names of all.
+    // The degree of a vertex is its number of distinct neighbors, as
+    // returned by Neighbors(); ties are listed in the order of the vertices.
     // -------------------------------------------------------------
     public List<String> HighestDegree() {
-        int maxDeg = 0;
-        for (int i = 0; i < adjacencyList.size(); i++) {
-            if (Neighbors(indexToName.get(i)).size() > maxDeg) {
-                maxDeg = Neighbors(indexToName.get(i)).size();
+        begin();
+        try {
+            DegreeIndex index = degrees();
+            int maxDeg = index.maxDistinctDegree();
+            int count = 0;
+            while (count < index.vertexCount() && index.distinctDegree(index.byDegree(count)) == maxDeg) {
+                count++;
+            }
+            int[] tied = new int[count];
+            for (int i = 0; i < count; i++) {
+                tied[i] = index.byDegree(i);
             }
+            Arrays.sort(tied);
+
+            List<String> result = new ArrayList<>(count);
+            for (int v : tied) {
+                result.add(dictionary.name(v));
+            }
+            return result;
+        } finally {
+            end(HIGHEST_DEGREE);
         }
+    }
 
-        List<String> result = new ArrayList<>();
-        for (int i = 0; i < adjacencyList.size(); i++) {
-            if (Neighbors(indexToName.get(i)).size() == maxDeg) {
-                result.add(indexToName.get(i));
+    // -------------------------------------------------------------
+    // TopDegreeVertices(int k)
+    // The k vertices with the most distinct neighbors, highest first
+    // (fewer if the graph is smaller). Vertices of equal degree come in
+    // no particular order.
+    // -------------------------------------------------------------
+    public List<String> TopDegreeVertices(int k) {
+        begin();
+        try {
+            DegreeIndex index = degrees();
+            int count = Math.max(0, Math.min(k, index.vertexCount()));
+            List<String> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(dictionary.name(index.byDegree(i)));
             }
+            return result;
+        } finally {
+            end(TOP_DEGREE_VERTICES);
+        }
+    }
+
+    // -------------------------------------------------------------
+    // DegreeHistogram()
+    // Element d is the number of vertices with exactly d distinct neighbors.
+    // -------------------------------------------------------------
+    public int[] DegreeHistogram() {
+        begin();
+        try {
+            return degrees().histogram();
+        } finally {
+            end(DEGREE_HISTOGRAM);
+        }
+    }
+
+    // -------------------------------------------------------------
+    // InDegree(String v1) / OutDegree(String v1)
+    // Number of edges into / out of v1, parallel edges counted
+    // separately; 0 if v1 is not a vertex.
+    // -------------------------------------------------------------
+    public int InDegree(String v1) {
+        begin();
+        try {
+            int v = dictionary.id(v1);
+            return v < 0 ? 0 : degrees().inDegree(v);
+        } finally {
+            end(IN_DEGREE);
+        }
+    }
+
+    public int OutDegree(String v1) {
+        begin();
+        try {
+            int v = dictionary.id(v1);
+            return v < 0 ? 0 : degrees().outDegree(v);
+        } finally {
+            end(OUT_DEGREE);
         }
-        return result;
     }
 
     // -------------------------------------------------------------
@@ -395,76 +857,220 @@ public class Graph {
     // Return true if v1 and v2 are directly connected by an edge.
     // -------------------------------------------------------------
     public boolean AreTheyAdjacent(String v1, String v2) {
-        if (!nameToIndex.containsKey(v1) || !nameToIndex.containsKey(v2)) {
-            return false;
+        begin();
+        try {
+            int a = dictionary.id(v1);
+            int b = dictionary.id(v2);
+            return a >= 0 && b >= 0 && graph.findEdge(a, b) >= 0;
+        } finally {
+            end(ARE_THEY_ADJACENT);
         }
-        int a = nameToIndex.get(v1);
-        int b = nameToIndex.get(v2);
-        for (Edge e : adjacencyList.get(a)) {
-            if (e.target == b) {
-                return true;
-            }
-        }
-        return false;
     }
 
     // -------------------------------------------------------------
     // 10) IsThereACycle(String v1)
     // returns true if there is a cycle path which starts and ends on v1, otherwise
     // false.
+    // A self-loop alone is not a cycle: the path has to leave v1 first.
     // -------------------------------------------------------------
     public boolean IsThereACycle(String v1) {
-        if (!nameToIndex.containsKey(v1)) {
-            return false;
+        begin();
+        try {
+            int v = dictionary.id(v1);
+            return v >= 0 && traversal().liesOnCycle(v);
+        } finally {
+            end(IS_THERE_A_CYCLE);
         }
-        int start = nameToIndex.get(v1);
-        boolean[] visited = new boolean[adjacencyList.size()];
-        return hasCycleDFS(start, start, visited, 0);
     }
 
-    private boolean hasCycleDFS(int current, int start, boolean[] visited, int depth) {
-        // Eğer depth > 0 ve current tekrar start düğümüne eşitse, bir döngü bulunmuş
-        // demektir
-        if (depth > 0 && current == start) {
-            return true;
+    // -------------------------------------------------------------
+    // 11) NumberOfVerticesInComponent(String v1)
+    // Print the number of vertices in the connected component that contains v1.
+    // Edge directions are ignored (weakly connected component); 0 if v1 is
+    // not a vertex. The component index is built once per graph, so every
+    // later call is O(1).
+    // -------------------------------------------------------------
+    public int NumberOfVerticesInComponent(String v1) {
+        begin();
+        try {
+            int v = dictionary.id(v1);
+            if (v < 0) {
+                return 0;
+            }
+            return components().weakComponentSize(v);
+        } finally {
+            end(NUMBER_OF_VERTICES_IN_COMPONENT);
         }
-        visited[current] = true;
+    }
 
-        for (Edge e : adjacencyList.get(current)) {
-            // Eğer Edge sınıfınızda komşu düğüm 'e.target' olarak tutuluyorsa:
-            int neighbor = e.target;
-            // Eğer neighbor start'a eşitse (ve depth > 0) bir döngü bulunmuş demektir
-            if (neighbor == start && depth > 0) {
-                return true;
-            }
-            if (!visited[neighbor]) {
-                if (hasCycleDFS(neighbor, start, visited, depth + 1)) {
-                    return true;
-                }
+    // -------------------------------------------------------------
+    // NumberOfVerticesInStrongComponent(String v1)
+    // Number of vertices u with a path v1 -> u and a path u -> v1
+    // (v1 itself included); 0 if v1 is not a vertex.
+    // -------------------------------------------------------------
+    public int NumberOfVerticesInStrongComponent(String v1) {
+        begin();
+        try {
+            int v = dictionary.id(v1);
+            if (v < 0) {
+                return 0;
             }
+            return components().strongComponentSize(v);
+        } finally {
+            end(NUMBER_OF_VERTICES_IN_STRONG_COMPONENT);
         }
-        return false;
     }
 
     // -------------------------------------------------------------
-    // 11) NumberOfVerticesInComponent(String v1)
-    // Print the number of vertices in the connected component that contains v1.
+    // AreInSameComponent(String v1, String v2) / AreStronglyConnected
+    // O(1) checks whether two vertices share a weakly / strongly connected
+    // component. False if either name is not a vertex.
     // -------------------------------------------------------------
-    public int NumberOfVerticesInComponent(String v1) {
-        int total = 0;
-        if (!nameToIndex.containsKey(v1)) {
-            return 0;
+    public boolean AreInSameComponent(String v1, String v2) {
+        begin();
+        try {
+            int a = dictionary.id(v1);
+            int b = dictionary.id(v2);
+            return a >= 0 && b >= 0 && components().weakComponent(a) == components().weakComponent(b);
+        } finally {
+            end(ARE_IN_SAME_COMPONENT);
+        }
+    }
+
+    public boolean AreStronglyConnected(String v1, String v2) {
+        begin();
+        try {
+            int a = dictionary.id(v1);
+            int b = dictionary.id(v2);
+            return a >= 0 && b >= 0 && components().strongComponent(a) == components().strongComponent(b);
+        } finally {
+            end(ARE_STRONGLY_CONNECTED);
+        }
+    }
+
+    // -------------------------------------------------------------
+    // AddVertex / AddEdge / RemoveEdge / SetEdgeWeight
+    // Change the graph in place; every later query sees the change.
+    // Changes go into a delta overlay over the adjacency arrays (see
+    // GraphOverlay), compacted once it holds too much garbage, so a change
+    // costs about the degree of the vertices involved. Degree and
+    // component indexes follow each change incrementally, and the search
+    // engines move to the new graph with their scratch arrays; the other
+    // caches (landmarks, contraction hierarchy) are dropped.
+    // -------------------------------------------------------------
+
+    // Adds an isolated vertex; false if v1 already is one.
+    public boolean AddVertex(String v1) {
+        begin();
+        try {
+            if (dictionary.id(v1) >= 0) {
+                return false;
+            }
+            beginChange();
+            dictionary.intern(v1);
+            endChange(GraphEdit.addVertex(overlay, reverseOverlay));
+            return true;
+        } finally {
+            end(ADD_VERTEX);
+        }
+    }
+
+    // Adds the edge v1 -> v2, and either vertex if it is new, as a line of
+    // the graph file would.
+    public void AddEdge(String v1, String v2, int weight) {
+        begin();
+        try {
+            AddVertex(v1);
+            AddVertex(v2);
+            beginChange();
+            endChange(GraphEdit.addEdge(overlay, reverseOverlay, dictionary.id(v1), dictionary.id(v2), weight));
+        } finally {
+            end(ADD_EDGE);
         }
-        int start = nameToIndex.get(v1);
-        boolean[] visited = new boolean[adjacencyList.size()];
-        visited[start] = true;
-        for (int i = 0; i < adjacencyList.size(); i++) {
-            if (Neighbors(indexToName.get(i)).contains(v1)) {
-                total++;
+    }
+
+    // Removes every edge v1 -> v2; false if there was none.
+    public boolean RemoveEdge(String v1, String v2) {
+        begin();
+        try {
+            int a = dictionary.id(v1);
+            int b = dictionary.id(v2);
+            if (a < 0 || b < 0) {
+                return false;
+            }
+            beginChange();
+            GraphEdit edit = GraphEdit.removeEdges(overlay, reverseOverlay, a, b);
+            if (edit == null) {
+                return false;
             }
+            endChange(edit);
+            return true;
+        } finally {
+            end(REMOVE_EDGE);
         }
+    }
 
-        return total;
+    // Sets the weight of every edge v1 -> v2; false if there is none.
+    public boolean SetEdgeWeight(String v1, String v2, int weight) {
+        begin();
+        try {
+            int a = dictionary.id(v1);
+            int b = dictionary.id(v2);
+            if (a < 0 || b < 0) {
+                return false;
+            }
+            beginChange();
+            if (!GraphEdit.setWeight(overlay, reverseOverlay, a, b, weight)) {
+                return false;
+            }
+            endChange(null);
+            return true;
+        } finally {
+            end(SET_EDGE_WEIGHT);
+        }
+    }
+
+    private void beginChange() {
+        if (overlay == null) {
+            overlay = new GraphOverlay(graph);
+            reverseOverlay = new GraphOverlay(reverseGraph());
+        }
     }
 
+    // Installs the changed graph; edit is null for a weight change.
+    private void endChange(GraphEdit edit) {
+        if (edit != null) {
+            if (degrees != null) {
+                edit.applyTo(degrees);
+            }
+            if (components != null) {
+                edit.applyTo(components);
+            }
+        }
+        if (overlay.needsCompaction()) {
+            overlay.compact();
+        }
+        if (reverseOverlay.needsCompaction()) {
+            reverseOverlay.compact();
+        }
+        graph = overlay.graph();
+        reverseGraph = reverseOverlay.graph();
+        version++;
+        landmarks = null;
+        hierarchy = null;
+        hierarchyQuery = null;
+        // The search engines keep their O(V) scratch arrays.
+        if (shortestPaths != null) {
+            shortestPaths.retarget(graph, reverseGraph);
+        }
+        if (traversal != null) {
+            traversal.retarget(graph);
+        }
+        if (frontier != null) {
+            frontier.retarget(graph, reverseGraph);
+        }
+        if (pathCounter != null) {
+            pathCounter.retarget(graph, reverseGraph);
+        }
+    }
 }
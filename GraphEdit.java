@@ -0,0 +1,96 @@
+// -------------------------------------------------------------
+// GraphEdit
+// A change to the shape of a graph: a vertex or edge added, or the edges
+// u -> v removed. The static methods apply a change to a forward and a
+// reverse GraphOverlay together and record what the change did, so the
+// cached indexes can follow it with applyTo() instead of being rebuilt;
+// right away (Graph) or replayed later on a copy (GraphEditor).
+// Reweighting does not change the shape and gives no edit.
+// -------------------------------------------------------------
+final class GraphEdit {
+
+    enum Kind {
+        ADD_VERTEX, ADD_EDGE, REMOVE_EDGES
+    }
+
+    final Kind kind;
+    final int u;
+    final int v;
+    // ADD_EDGE: whether u had no edge to v before.
+    // REMOVE_EDGES: how many edges u -> v were removed.
+    private final boolean newNeighbor;
+    private final int removed;
+    // REMOVE_EDGES: whether an edge v -> u remains.
+    private final boolean reverseRemains;
+
+    private GraphEdit(Kind kind, int u, int v, boolean newNeighbor, int removed, boolean reverseRemains) {
+        this.kind = kind;
+        this.u = u;
+        this.v = v;
+        this.newNeighbor = newNeighbor;
+        this.removed = removed;
+        this.reverseRemains = reverseRemains;
+    }
+
+    static GraphEdit addVertex(GraphOverlay forward, GraphOverlay reverse) {
+        int v = forward.vertexCount();
+        forward.addVertex();
+        reverse.addVertex();
+        return new GraphEdit(Kind.ADD_VERTEX, v, v, false, 0, false);
+    }
+
+    static GraphEdit addEdge(GraphOverlay forward, GraphOverlay reverse, int u, int v, int weight) {
+        boolean newNeighbor = forward.count(u, v) == 0;
+        forward.addEdge(u, v, weight);
+        reverse.addEdge(v, u, weight);
+        return new GraphEdit(Kind.ADD_EDGE, u, v, newNeighbor, 0, false);
+    }
+
+    // Removes every edge u -> v; null if there was none.
+    static GraphEdit removeEdges(GraphOverlay forward, GraphOverlay reverse, int u, int v) {
+        int removed = forward.removeEdges(u, v);
+        if (removed == 0) {
+            return null;
+        }
+        reverse.removeEdges(v, u);
+        return new GraphEdit(Kind.REMOVE_EDGES, u, v, false, removed, forward.count(v, u) > 0);
+    }
+
+    // Sets the weight of every edge u -> v; false if there is none.
+    static boolean setWeight(GraphOverlay forward, GraphOverlay reverse, int u, int v, int weight) {
+        if (forward.setWeight(u, v, weight) == 0) {
+            return false;
+        }
+        reverse.setWeight(v, u, weight);
+        return true;
+    }
+
+    void applyTo(DegreeIndex degrees) {
+        switch (kind) {
+            case ADD_VERTEX:
+                degrees.vertexAdded();
+                break;
+            case ADD_EDGE:
+                degrees.edgeAdded(u, v, newNeighbor);
+                break;
+            default:
+                for (int i = 1; i <= removed; i++) {
+                    degrees.edgeRemoved(u, v, i == removed);
+                }
+        }
+    }
+
+    void applyTo(ComponentIndex components) {
+        switch (kind) {
+            case ADD_VERTEX:
+                components.vertexAdded();
+                break;
+            case ADD_EDGE:
+                components.edgeAdded(u, v);
+                break;
+            default:
+                // All edges u -> v are gone; u and v stay linked only through v -> u.
+                components.edgeRemoved(u, v, reverseRemains);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// -------------------------------------------------------------
+// GraphEditor
+// Changes the graph behind a GraphQueryService while it keeps answering
+// queries. Changes collect in a forward and a reverse GraphOverlay;
+// publish() turns them into a new GraphSnapshot and hands it to the
+// service. A query sees either all changes of a publish() or none: it
+// runs on the snapshot that was current when it started, and published
+// snapshots never change.
+//
+// Publishing costs the changed adjacency lists plus a copy of the
+// overlay's page directory, not a rebuild, and a copy of the name
+// dictionary when vertices were added. The previous snapshot's
+// degree and component indexes, if built, are copied and brought up to
+// date by replaying the changes (see GraphEdit); landmarks are not
+// carried over and are built again when first needed. Neither is the
+// contraction hierarchy, which is not rebuilt: CH queries on an edited
+// snapshot fail until a new one is prepared on a Graph.
+//
+// All methods are synchronized, so writers may share an editor. It must
+// be the only one publishing to its service.
+// -------------------------------------------------------------
+public final class GraphEditor {
+
+    private final GraphQueryService service;
+    // The editor's own names; snapshots get copies, which do not change.
+    private final VertexDictionary names;
+    private final GraphOverlay forward;
+    private final GraphOverlay reverse;
+    // Changes to the shape of the graph since the last publish().
+    private final List<GraphEdit> edits = new ArrayList<>();
+    private boolean changed;
+    private GraphSnapshot current;
+
+    public GraphEditor(GraphQueryService service) {
+        this.service = service;
+        current = service.snapshot();
+        names = current.dictionary().copy();
+        forward = new GraphOverlay(current.graph());
+        reverse = new GraphOverlay(current.reverse());
+    }
+
+    // Adds an isolated vertex; false if name already is one.
+    public synchronized boolean addVertex(String name) {
+        if (names.id(name) >= 0) {
+            return false;
+        }
+        names.intern(name);
+        edits.add(GraphEdit.addVertex(forward, reverse));
+        changed = true;
+        return true;
+    }
+
+    // Adds the edge v1 -> v2, and either vertex if it is new.
+    public synchronized void addEdge(String v1, String v2, int weight) {
+        addVertex(v1);
+        addVertex(v2);
+        edits.add(GraphEdit.addEdge(forward, reverse, names.id(v1), names.id(v2), weight));
+        changed = true;
+    }
+
+    // Removes every edge v1 -> v2; false if there was none.
+    public synchronized boolean removeEdge(String v1, String v2) {
+        int a = names.id(v1);
+        int b = names.id(v2);
+        GraphEdit edit = a < 0 || b < 0 ? null : GraphEdit.removeEdges(forward, reverse, a, b);
+        if (edit == null) {
+            return false;
+        }
+        edits.add(edit);
+        changed = true;
+        return true;
+    }
+
+    // Sets the weight of every edge v1 -> v2; false if there is none.
+    public synchronized boolean setEdgeWeight(String v1, String v2, int weight) {
+        int a = names.id(v1);
+        int b = names.id(v2);
+        if (a < 0 || b < 0 || !GraphEdit.setWeight(forward, reverse, a, b, weight)) {
+            return false;
+        }
+        changed = true;
+        return true;
+    }
+
+    // Publishes the changes made so far to the service and returns the
+    // new snapshot; the current one if nothing changed.
+    public synchronized GraphSnapshot publish() {
+        if (!changed) {
+            return current;
+        }
+        if (forward.needsCompaction()) {
+            forward.compact();
+        }
+        if (reverse.needsCompaction()) {
+            reverse.compact();
+        }
+        ComponentIndex components = current.componentsIfBuilt();
+        DegreeIndex degrees = current.degreesIfBuilt();
+        if (!edits.isEmpty()) {
+            components = components == null ? null : components.copy();
+            degrees = degrees == null ? null : degrees.copy();
+            for (GraphEdit edit : edits) {
+                if (components != null) {
+                    edit.applyTo(components);
+                }
+                if (degrees != null) {
+                    edit.applyTo(degrees);
+                }
+            }
+        }
+        // Without new vertices the names are those of the current snapshot.
+        VertexDictionary published = names.size() == current.dictionary().size() ? current.dictionary()
+                : names.copy();
+        current = new GraphSnapshot(published, forward.graph(), reverse.graph(), components, degrees);
+        edits.clear();
+        changed = false;
+        service.publish(current);
+        return current;
+    }
+}
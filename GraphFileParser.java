@@ -0,0 +1,332 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// -------------------------------------------------------------
+// GraphFileParser
+// Byte-level reader for the adjacency text format
+//     Source -> B: 3, C: 2, D: 1
+// It scans the raw bytes of a FileChannel through one large buffer and
+// never creates a String per line or per token: a vertex name is decoded
+// once, the first time its bytes are seen, and weights are parsed
+// straight from the bytes.
+//
+// The rules are exactly those of the old split()-based reader:
+//  - a line without "->" is skipped; only the text between the first and
+//    second "->" holds edges;
+//  - entries are separated by ',' and trimmed; an entry is an edge only if
+//    splitting it on ':' (dropping trailing empty parts) gives exactly two
+//    parts, e.g. "B:3" or "B:3:" but not "C1", "C1:" or "B:3:4";
+//  - the source vertex is only registered once one of its entries is valid;
+//  - a weight that Integer.parseInt rejects ends the whole read; what was
+//    read before it is kept.
+// -------------------------------------------------------------
+final class GraphFileParser {
+
+    private static final int BUFFER_SIZE = 1 << 23;
+    // Parallel reads split the file into about four chunks per thread, but
+    // never into chunks smaller than this.
+    private static final long MIN_CHUNK_SIZE = 4L << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private GraphFileParser() {
+    }
+
+    // Parses the bytes [from, to) of channel, which must start at the
+    // beginning of a line. Never throws; I/O and format errors end the
+    // chunk early and are reported through Chunk.error().
+    static Chunk parse(FileChannel channel, long from, long to) {
+        Chunk chunk = new Chunk();
+        byte[] buf = new byte[(int) Math.min(BUFFER_SIZE, Math.max(to - from, 16))];
+        ByteBuffer wrapper = ByteBuffer.wrap(buf);
+        long position = from;
+        int filled = 0;
+        // "\r\n" ends one line, not two, as with BufferedReader.readLine().
+        boolean afterCarriageReturn = false;
+        try {
+            while (true) {
+                // Fill the buffer after the carried-over partial line.
+                int limit = (int) Math.min(buf.length, filled + (to - position));
+                wrapper.limit(limit).position(filled);
+                while (wrapper.hasRemaining()) {
+                    int n = channel.read(wrapper, position + wrapper.position() - filled);
+                    if (n < 0) {
+                        break;
+                    }
+                }
+                int read = wrapper.position() - filled;
+                position += read;
+                filled += read;
+                chunk.bytes += read;
+                boolean last = position >= to || read == 0;
+
+                int lineStart = 0;
+                for (int i = filled - read; i < filled; i++) {
+                    byte c = buf[i];
+                    if (c == '\n' || c == '\r') {
+                        if (c == '\r' || !afterCarriageReturn) {
+                            chunk.parseLine(buf, lineStart, i);
+                        }
+                        lineStart = i + 1;
+                    }
+                    afterCarriageReturn = c == '\r';
+                }
+                if (last) {
+                    if (lineStart < filled) {
+                        chunk.parseLine(buf, lineStart, filled);
+                    }
+                    break;
+                }
+                // Keep the unfinished line; grow if it fills the whole buffer.
+                filled -= lineStart;
+                System.arraycopy(buf, lineStart, buf, 0, filled);
+                if (filled == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                    wrapper = ByteBuffer.wrap(buf);
+                }
+            }
+        } catch (NumberFormatException | IOException e) {
+            chunk.error = e.getMessage();
+        }
+        return chunk;
+    }
+
+    // -------------------------------------------------------------
+    // Splits the file into chunks that start and end on line boundaries
+    // and parses them concurrently on a fork-join pool. The chunks come
+    // back in file order, so merging them in that order numbers the
+    // vertices exactly as a sequential read would.
+    // -------------------------------------------------------------
+    static List<Chunk> parseParallel(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        int chunks = (int) Math.max(1, Math.min((long) parallelism * CHUNKS_PER_THREAD, size / MIN_CHUNK_SIZE));
+        long[] bounds = new long[chunks + 1];
+        bounds[chunks] = size;
+        for (int i = 1; i < chunks; i++) {
+            bounds[i] = nextLineStart(channel, Math.max(bounds[i - 1], size / chunks * i), size);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                tasks.add(pool.submit(() -> parse(channel, from, to)));
+            }
+            List<Chunk> result = new ArrayList<>(chunks);
+            for (ForkJoinTask<Chunk> task : tasks) {
+                result.add(task.join());
+            }
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // First position at or after pos that starts a new line ("\r\n" counts
+    // as one terminator), or size if there is none.
+    private static long nextLineStart(FileChannel channel, long pos, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        while (pos < size) {
+            buffer.clear();
+            int n = channel.read(buffer, pos);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                byte c = buffer.get(i);
+                if (c == '\n') {
+                    return pos + i + 1;
+                }
+                if (c == '\r') {
+                    long next = pos + i + 1;
+                    if (next < size && readByte(channel, next) == '\n') {
+                        next++;
+                    }
+                    return next;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    private static byte readByte(FileChannel channel, long pos) throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        channel.read(one, pos);
+        return one.get(0);
+    }
+
+    private static boolean isSpace(byte c) {
+        return (c & 0xFF) <= ' ';
+    }
+
+    // -------------------------------------------------------------
+    // Chunk
+    // Result of parsing one region of the file: the vertex names in order
+    // of first appearance, and the edges between them using those local
+    // ids. The caller maps the local ids onto graph ids.
+    // -------------------------------------------------------------
+    static final class Chunk {
+        private final VertexDictionary names = new VertexDictionary();
+        private final EdgeBuffer edges = new EdgeBuffer(1024);
+        private String error;
+        private long bytes;
+        private long lines;
+
+        int vertexCount() {
+            return names.size();
+        }
+
+        // Names by local id.
+        VertexDictionary names() {
+            return names;
+        }
+
+        EdgeBuffer edges() {
+            return edges;
+        }
+
+        // Message of the error that stopped this chunk, or null.
+        String error() {
+            return error;
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        long lines() {
+            return lines;
+        }
+
+        private void parseLine(byte[] b, int start, int end) {
+            lines++;
+            int arrow = indexOfArrow(b, start, end);
+            if (arrow < 0) {
+                return;
+            }
+            int segmentEnd = indexOfArrow(b, arrow + 2, end);
+            if (segmentEnd < 0) {
+                segmentEnd = end;
+            }
+            int sourceStart = start;
+            int sourceEnd = arrow;
+            int source = -1;
+
+            int entryStart = arrow + 2;
+            while (entryStart <= segmentEnd) {
+                int entryEnd = entryStart;
+                while (entryEnd < segmentEnd && b[entryEnd] != ',') {
+                    entryEnd++;
+                }
+                if (parseEntry(b, entryStart, entryEnd)) {
+                    if (source < 0) {
+                        source = internTrimmed(b, sourceStart, sourceEnd);
+                    }
+                    int target = internTrimmed(b, entryNameStart, entryNameEnd);
+                    edges.add(source, target, entryWeight);
+                }
+                entryStart = entryEnd + 1;
+            }
+        }
+
+        // Set by parseEntry for a valid entry.
+        private int entryNameStart;
+        private int entryNameEnd;
+        private int entryWeight;
+
+        // True if the entry is an edge "name : weight"; see the class comment.
+        private boolean parseEntry(byte[] b, int start, int end) {
+            while (start < end && isSpace(b[start])) {
+                start++;
+            }
+            while (end > start && isSpace(b[end - 1])) {
+                end--;
+            }
+            int colon = start;
+            while (colon < end && b[colon] != ':') {
+                colon++;
+            }
+            if (colon == end) {
+                return false; // no ':' at all
+            }
+            int weightStart = colon + 1;
+            int weightEnd = weightStart;
+            while (weightEnd < end && b[weightEnd] != ':') {
+                weightEnd++;
+            }
+            if (weightEnd == weightStart) {
+                return false; // "B:" or "B::3"
+            }
+            for (int i = weightEnd; i < end; i++) {
+                if (b[i] != ':') {
+                    return false; // a third non-empty part, "B:3:4"
+                }
+            }
+            entryNameStart = start;
+            entryNameEnd = colon;
+            entryWeight = parseInt(b, weightStart, weightEnd);
+            return true;
+        }
+
+        private int internTrimmed(byte[] b, int start, int end) {
+            while (start < end && isSpace(b[start])) {
+                start++;
+            }
+            while (end > start && isSpace(b[end - 1])) {
+                end--;
+            }
+            return names.intern(b, start, end);
+        }
+
+        private static int indexOfArrow(byte[] b, int start, int end) {
+            for (int i = start; i < end - 1; i++) {
+                if (b[i] == '-' && b[i + 1] == '>') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Integer.parseInt on the trimmed bytes. Short plain-ASCII numbers are
+        // handled inline; anything else goes through Integer.parseInt itself
+        // so that results and error messages stay identical.
+        private static int parseInt(byte[] b, int start, int end) {
+            while (start < end && isSpace(b[start])) {
+                start++;
+            }
+            while (end > start && isSpace(b[end - 1])) {
+                end--;
+            }
+            int i = start;
+            boolean negative = false;
+            if (i < end && (b[i] == '-' || b[i] == '+')) {
+                negative = b[i] == '-';
+                i++;
+            }
+            int digits = end - i;
+            if (digits > 0 && digits <= 9) {
+                int value = 0;
+                for (; i < end; i++) {
+                    int d = b[i] - '0';
+                    if (d < 0 || d > 9) {
+                        break;
+                    }
+                    value = value * 10 + d;
+                }
+                if (i == end) {
+                    return negative ? -value : value;
+                }
+            }
+            return Integer.parseInt(new String(b, start, end - start, StandardCharsets.UTF_8));
+        }
+    }
+}
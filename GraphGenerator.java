@@ -0,0 +1,380 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+// -------------------------------------------------------------
+// GraphGenerator
+// Writes synthetic graphs in the format ReadGraphFromFile reads:
+//     v0 -> v1: 3, v100: 7
+// Usage:
+//     java GraphGenerator <model> <vertices> [--degree d] [--seed s]
+//         [--weights min:max] [--missing fraction] [--undirected] [--out file]
+// Models:
+//     grid   road network: vertices on a square lattice, row by row, with
+//            two-way streets to the 4 neighbors; --missing drops that
+//            fraction of the streets (both directions)
+//     er     Erdős–Rényi: every ordered pair is an edge with probability
+//            degree / (vertices - 1), so out-degrees average --degree
+//     ba     Barabási–Albert: vertex i > 0 links to --degree earlier
+//            vertices chosen with probability proportional to their
+//            degree (repeats possible), giving a power-law degree tail
+//     chain  v0 -> v1 -> ... -> v(n-1)
+// --undirected adds the reverse of every er, ba and chain edge with the
+// same weight. Weights are uniform in --weights (default 1:9).
+//
+// The output streams: no model keeps per-vertex or per-edge state, so
+// memory stays constant up to 10^8 edges and beyond. Every random choice
+// is a hash of the seed and the edge it belongs to, which makes a file
+// depend only on its arguments. For ba this needs one trick: choosing an
+// endpoint of a uniformly random earlier edge is choosing a vertex by
+// degree, and the endpoints of edge j can be recomputed from j alone
+// (its source is fixed, its target is itself such a choice), so no
+// endpoint list is stored; the expected recomputation depth is 2.
+// Vertices without any edge do not appear, as the format cannot express
+// them.
+// -------------------------------------------------------------
+public final class GraphGenerator {
+
+    private enum Model {
+        GRID, ER, BA, CHAIN
+    }
+
+    private final Model model;
+    private final int vertices;
+    private final int degree;
+    private final long seed;
+    private final int minWeight;
+    private final int maxWeight;
+    private final double missing;
+    private final boolean undirected;
+    private final Output out;
+    private long edges;
+    private long lines;
+
+    private GraphGenerator(Model model, int vertices, int degree, long seed, int minWeight, int maxWeight,
+            double missing, boolean undirected, OutputStream out) {
+        this.model = model;
+        this.vertices = vertices;
+        this.degree = degree;
+        this.seed = seed;
+        this.minWeight = minWeight;
+        this.maxWeight = maxWeight;
+        this.missing = missing;
+        this.undirected = undirected;
+        this.out = new Output(out);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            return;
+        }
+        Model model;
+        int vertices;
+        int degree = 3;
+        long seed = 42;
+        int minWeight = 1;
+        int maxWeight = 9;
+        double missing = 0;
+        boolean undirected = false;
+        String file = null;
+        try {
+            model = Model.valueOf(args[0].toUpperCase(Locale.ROOT));
+            vertices = Integer.parseInt(args[1]);
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--degree":
+                        degree = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--weights":
+                        String[] range = args[++i].split(":");
+                        minWeight = Integer.parseInt(range[0]);
+                        maxWeight = Integer.parseInt(range[range.length - 1]);
+                        break;
+                    case "--missing":
+                        missing = Double.parseDouble(args[++i]);
+                        break;
+                    case "--undirected":
+                        undirected = true;
+                        break;
+                    case "--out":
+                        file = args[++i];
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            printUsage();
+            return;
+        }
+        if (vertices < 1 || degree < 0 || minWeight > maxWeight || missing < 0 || missing > 1) {
+            System.err.println("Invalid arguments: need vertices >= 1, degree >= 0, min <= max weight"
+                    + " and 0 <= missing <= 1");
+            return;
+        }
+
+        long start = System.nanoTime();
+        GraphGenerator generator;
+        try (OutputStream stream = file == null ? System.out
+                : new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            generator = new GraphGenerator(model, vertices, degree, seed, minWeight, maxWeight, missing, undirected,
+                    stream);
+            generator.generate();
+        } catch (IOException e) {
+            System.err.println("Error writing graph: " + e.getMessage());
+            return;
+        }
+        System.err.printf(Locale.ROOT, "Wrote %d edges on %d lines in %.1f s%n", generator.edges, generator.lines,
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java GraphGenerator <grid|er|ba|chain> <vertices> [--degree d] [--seed s]"
+                + " [--weights min:max] [--missing fraction] [--undirected] [--out file]");
+    }
+
+    private void generate() throws IOException {
+        switch (model) {
+            case GRID:
+                grid();
+                break;
+            case ER:
+                erdosRenyi();
+                break;
+            case BA:
+                barabasiAlbert();
+                break;
+            default:
+                chain();
+        }
+        out.flush();
+    }
+
+    private void grid() throws IOException {
+        int side = (int) Math.ceil(Math.sqrt(vertices));
+        long keep = (long) ((1 - missing) * (1L << 53));
+        for (int u = 0; u < vertices; u++) {
+            int col = u % side;
+            int[] neighbors = { u - side, col > 0 ? u - 1 : -1, col < side - 1 ? u + 1 : -1, u + side };
+            int written = 0;
+            for (int v : neighbors) {
+                if (v < 0 || v >= vertices) {
+                    continue;
+                }
+                // Both directions of a street hash the same pair.
+                long street = (long) Math.min(u, v) << 32 | Math.max(u, v);
+                if ((hash(street, 1) >>> 11) >= keep) {
+                    continue;
+                }
+                edge(u, v, weight(street), written++);
+            }
+            endLine(written);
+        }
+    }
+
+    private void erdosRenyi() throws IOException {
+        if (vertices < 2) {
+            return;
+        }
+        double p = Math.min(1.0, (double) degree / (vertices - 1));
+        double logMiss = Math.log1p(-p);
+        for (int u = 0; u < vertices; u++) {
+            // Undirected graphs draw each unordered pair once, from its smaller end.
+            long candidates = undirected ? vertices - 1 - u : vertices - 1;
+            int written = 0;
+            long offset = -1;
+            for (long draw = 0; (offset = nextCandidate(u, draw, offset, p, logMiss)) < candidates; draw++) {
+                int v = erTarget(u, offset);
+                edge(u, v, weight((long) u << 32 | v), written++);
+            }
+            endLine(written);
+            if (undirected) {
+                // Replay the same draws for the reverse edges.
+                offset = -1;
+                for (long draw = 0; (offset = nextCandidate(u, draw, offset, p, logMiss)) < candidates; draw++) {
+                    int v = erTarget(u, offset);
+                    edge(v, u, weight((long) u << 32 | v), 0);
+                    endLine(1);
+                }
+            }
+        }
+    }
+
+    // Index of u's next edge among its candidate targets: a geometric skip
+    // past the candidates that are not edges.
+    private long nextCandidate(int u, long draw, long offset, double p, double logMiss) {
+        if (p >= 1) {
+            return offset + 1;
+        }
+        double r = (hash((long) u << 32 | draw, 2) >>> 11) * 0x1.0p-53;
+        return offset + 1 + (long) Math.floor(Math.log1p(-r) / logMiss);
+    }
+
+    // Candidates are the vertices after u (undirected) or all but u.
+    private int erTarget(int u, long offset) {
+        if (undirected) {
+            return (int) (u + 1 + offset);
+        }
+        return (int) (offset >= u ? offset + 1 : offset);
+    }
+
+    private void barabasiAlbert() throws IOException {
+        if (degree == 0) {
+            return;
+        }
+        for (int u = 1; u < vertices; u++) {
+            long firstEdge = (long) (u - 1) * degree;
+            for (int i = 0; i < degree; i++) {
+                long k = firstEdge + i;
+                edge(u, baTarget(k), weight(k), i);
+            }
+            endLine(degree);
+            if (undirected) {
+                for (int i = 0; i < degree; i++) {
+                    long k = firstEdge + i;
+                    edge(baTarget(k), u, weight(k), 0);
+                    endLine(1);
+                }
+            }
+        }
+    }
+
+    // Target of BA edge k, whose source is k / degree + 1: an endpoint of a
+    // uniform edge among those of earlier vertices.
+    private int baTarget(long k) {
+        for (int depth = 0;; depth++) {
+            long source = k / degree + 1;
+            if (source == 1) {
+                return 0;
+            }
+            long h = hash(k, 3 + depth);
+            long j = Math.floorMod(h >>> 1, (source - 1) * degree);
+            if ((h & 1) == 0) {
+                return (int) (j / degree + 1);
+            }
+            k = j;
+        }
+    }
+
+    private void chain() throws IOException {
+        for (int u = 0; u < vertices; u++) {
+            int written = 0;
+            if (undirected && u > 0) {
+                edge(u, u - 1, weight(u - 1), written++);
+            }
+            if (u + 1 < vertices) {
+                edge(u, u + 1, weight(u), written++);
+            }
+            endLine(written);
+        }
+    }
+
+    // Appends u -> v to the current line, starting it when index is 0.
+    private void edge(int u, int v, int weight, int index) throws IOException {
+        if (index == 0) {
+            out.name(u);
+            out.text(" -> ");
+        } else {
+            out.text(", ");
+        }
+        out.name(v);
+        out.text(": ");
+        out.number(weight);
+        edges++;
+    }
+
+    private void endLine(int written) throws IOException {
+        if (written > 0) {
+            out.newline();
+            lines++;
+        }
+    }
+
+    private int weight(long key) {
+        long range = (long) maxWeight - minWeight + 1;
+        return (int) (minWeight + Math.floorMod(hash(key, 0), range));
+    }
+
+    // SplitMix64 finalizer over the seed, a key and a stream number.
+    private long hash(long key, int stream) {
+        long z = seed + key * 0x9E3779B97F4A7C15L + stream * 0xD1B54A32D192ED03L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // -------------------------------------------------------------
+    // ASCII output through one reused buffer; names and numbers are
+    // formatted straight into it.
+    // -------------------------------------------------------------
+    private static final class Output {
+        private final OutputStream stream;
+        private final byte[] buf = new byte[1 << 16];
+        private int size;
+
+        Output(OutputStream stream) {
+            this.stream = stream;
+        }
+
+        void name(int v) throws IOException {
+            reserve(12);
+            buf[size++] = 'v';
+            digits(v);
+        }
+
+        void number(long value) throws IOException {
+            reserve(20);
+            if (value < 0) {
+                buf[size++] = '-';
+                value = -value;
+            }
+            digits(value);
+        }
+
+        void text(String s) throws IOException {
+            reserve(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                buf[size++] = (byte) s.charAt(i);
+            }
+        }
+
+        void newline() throws IOException {
+            reserve(1);
+            buf[size++] = '\n';
+        }
+
+        void flush() throws IOException {
+            stream.write(buf, 0, size);
+            size = 0;
+            stream.flush();
+        }
+
+        private void digits(long value) {
+            int length = 1;
+            for (long rest = value / 10; rest > 0; rest /= 10) {
+                length++;
+            }
+            int end = size + length;
+            int i = end;
+            do {
+                buf[--i] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            size = end;
+        }
+
+        private void reserve(int bytes) throws IOException {
+            if (size + bytes > buf.length) {
+                stream.write(buf, 0, size);
+                size = 0;
+            }
+        }
+    }
+}
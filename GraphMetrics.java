@@ -0,0 +1,261 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+// -------------------------------------------------------------
+// GraphMetrics
+// Process-wide counters for the Graph operations. Every operation keeps
+// its number of calls and a latency histogram (see LatencyHistogram),
+// and the vertices visited, edges scanned and bytes allocated by all of
+// its calls, in LongAdders. Recording a call is two clock reads, two
+// reads of the thread's allocation counter and a few uncontended adds,
+// so the metrics stay on by default; "-Dpro3.metrics=false" or
+// setEnabled(false) turns them off.
+//
+// Bytes are those allocated by the calling thread (when the JVM can tell,
+// see allocationTracked()); work done on other threads, as in parallel
+// reads and DistanceMatrix, shows up in the latency only. Vertex and edge
+// counts come from the search engines and are estimates where an engine
+// cannot count exactly (see FrontierSearch).
+//
+// registerMBeans() publishes every operation over JMX as
+// Pro3:type=GraphOperation,name=<operation>; dump() is the same as text.
+// -------------------------------------------------------------
+public final class GraphMetrics {
+
+    // The JMX view of one operation; times are in microseconds.
+    public interface OperationMBean {
+        long getCalls();
+
+        double getMeanMicros();
+
+        long getP50Micros();
+
+        long getP99Micros();
+
+        long getMaxMicros();
+
+        long getVerticesVisited();
+
+        long getEdgesScanned();
+
+        long getBytesAllocated();
+    }
+
+    static final class Operation implements OperationMBean {
+        final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder vertices = new LongAdder();
+        private final LongAdder edges = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private Operation(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, long vertexCount, long edgeCount, long byteCount) {
+            latency.record(nanos);
+            vertices.add(vertexCount);
+            edges.add(edgeCount);
+            bytes.add(byteCount);
+        }
+
+        @Override
+        public long getCalls() {
+            return latency.count();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return latency.meanNanos() / 1e3;
+        }
+
+        @Override
+        public long getP50Micros() {
+            return latency.percentileNanos(0.50) / 1000;
+        }
+
+        @Override
+        public long getP99Micros() {
+            return latency.percentileNanos(0.99) / 1000;
+        }
+
+        @Override
+        public long getMaxMicros() {
+            return latency.maxNanos() / 1000;
+        }
+
+        @Override
+        public long getVerticesVisited() {
+            return vertices.sum();
+        }
+
+        @Override
+        public long getEdgesScanned() {
+            return edges.sum();
+        }
+
+        @Override
+        public long getBytesAllocated() {
+            return bytes.sum();
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Measures the calls of one Graph. Calls made from inside a measured
+    // call (ShortestPath preparing its landmarks, ...) count towards the
+    // outer one only. Not thread-safe, like Graph itself.
+    // -------------------------------------------------------------
+    static final class Probe {
+        private int depth;
+        private boolean active;
+        private long startNanos;
+        private long startBytes;
+        private long startVertices;
+        private long startEdges;
+
+        void begin(long visitedVertices, long scannedEdges) {
+            if (depth++ > 0) {
+                return;
+            }
+            active = enabled;
+            if (active) {
+                startVertices = visitedVertices;
+                startEdges = scannedEdges;
+                startBytes = allocatedBytes();
+                startNanos = System.nanoTime();
+            }
+        }
+
+        // The engines may have been replaced during the call, so the
+        // counts can go backwards; such calls count no work.
+        void end(Operation operation, long visitedVertices, long scannedEdges) {
+            if (--depth > 0 || !active) {
+                return;
+            }
+            long nanos = System.nanoTime() - startNanos;
+            long bytes = allocatedBytes() - startBytes;
+            operation.record(nanos, Math.max(0, visitedVertices - startVertices),
+                    Math.max(0, scannedEdges - startEdges), Math.max(0, bytes));
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationCounter();
+    private static final Map<String, Operation> OPERATIONS = new LinkedHashMap<>();
+    private static volatile boolean enabled = !"false".equals(System.getProperty("pro3.metrics"));
+    private static MBeanServer server;
+
+    private GraphMetrics() {
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            try {
+                if (counter.isThreadAllocatedMemorySupported()) {
+                    counter.setThreadAllocatedMemoryEnabled(true);
+                    return counter;
+                }
+            } catch (UnsupportedOperationException e) {
+                // Not available on this JVM.
+            }
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATIONS == null ? 0 : ALLOCATIONS.getCurrentThreadAllocatedBytes();
+    }
+
+    // The operation of that name, created (and published, once
+    // registerMBeans() has run) on first use.
+    static synchronized Operation operation(String name) {
+        Operation operation = OPERATIONS.get(name);
+        if (operation == null) {
+            operation = new Operation(name);
+            OPERATIONS.put(name, operation);
+            if (server != null) {
+                register(operation);
+            }
+        }
+        return operation;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    // Whether bytes allocated are measured; they read 0 otherwise.
+    public static boolean allocationTracked() {
+        return ALLOCATIONS != null;
+    }
+
+    // -------------------------------------------------------------
+    // registerMBeans()
+    // Publishes every operation on the platform MBean server, now and as
+    // new ones appear. Calling it again does nothing.
+    // -------------------------------------------------------------
+    public static synchronized void registerMBeans() {
+        if (server != null) {
+            return;
+        }
+        server = ManagementFactory.getPlatformMBeanServer();
+        for (Operation operation : OPERATIONS.values()) {
+            register(operation);
+        }
+    }
+
+    private static void register(Operation operation) {
+        try {
+            ObjectName name = new ObjectName("Pro3:type=GraphOperation,name=" + ObjectName.quote(operation.name));
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new StandardMBean(operation, OperationMBean.class), name);
+            }
+        } catch (JMException e) {
+            System.out.println("Error registering metrics for " + operation.name + ": " + e.getMessage());
+        }
+    }
+
+    // -------------------------------------------------------------
+    // dump()
+    // One line per operation that has been called: calls, mean / p50 /
+    // p99 / max latency, and the vertices, edges and bytes per call.
+    // -------------------------------------------------------------
+    public static String dump() {
+        List<Operation> operations;
+        synchronized (GraphMetrics.class) {
+            operations = new ArrayList<>(OPERATIONS.values());
+        }
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "%-28s %8s %10s %9s %9s %9s %11s %11s %11s",
+                "operation", "calls", "mean us", "p50 us", "p99 us", "max us", "vertices", "edges", "bytes"));
+        if (!enabled) {
+            text.append("\n(metrics are off)");
+        }
+        for (Operation op : operations) {
+            long calls = op.getCalls();
+            if (calls == 0) {
+                continue;
+            }
+            text.append(String.format(Locale.ROOT, "%n%-28s %8d %10.1f %9d %9d %9d %11.1f %11.1f %11s", op.name, calls,
+                    op.getMeanMicros(), op.getP50Micros(), op.getP99Micros(), op.getMaxMicros(),
+                    (double) op.getVerticesVisited() / calls, (double) op.getEdgesScanned() / calls,
+                    allocationTracked() ? String.format(Locale.ROOT, "%.1f", (double) op.getBytesAllocated() / calls)
+                            : "-"));
+        }
+        return text.toString();
+    }
+}
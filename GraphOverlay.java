@@ -0,0 +1,272 @@
+import java.util.Arrays;
+
+// -------------------------------------------------------------
+// GraphOverlay
+// Mutable edge store for one direction of a changing graph, publishing
+// immutable CompressedGraph versions. It is the writer's side: one
+// thread at a time may change it, while any number of threads read the
+// versions it published.
+//
+// Layout: a compact base graph that is never written, plus a delta. When
+// a vertex's edges change, its whole edge list is copied to the end of
+// the tail arrays and changed there, and the vertex's begin/end move to
+// the copy. The begin/end values are kept in pages of PAGE_SIZE
+// vertices; a page is created from the base offsets the first time one
+// of its vertices moves.
+//
+// Publication is copy-on-write. graph() clones the page directory for
+// the new version. From then on, every page and tail slot that version
+// can see is frozen: a later change copies a page before writing it,
+// and it only writes tail slots past the published end. So published
+// versions never see a partly applied change and readers never wait.
+// A list that was already copied since the last publication is changed
+// in place, so a batch of changes to one vertex copies it only once.
+//
+// Old copies are garbage. Once garbage passes a quarter of the live
+// edges, needsCompaction() is true and compact() rewrites everything as
+// a new compact base.
+// -------------------------------------------------------------
+final class GraphOverlay {
+
+    private static final int PAGE_SIZE = 1 << CompressedGraph.PAGE_BITS;
+    private static final int MIN_GARBAGE = 1 << 12;
+    private static final int[] NO_EDGES = new int[0];
+
+    private CompressedGraph base;
+    private int baseSlots;
+    private int[][] beginPages;
+    private int[][] endPages;
+    // Pages created or copied since the last publication.
+    private boolean[] ownedPages;
+    private int[] tailTargets;
+    private int[] tailWeights;
+    private int tailSize;
+    // Tail slots [0, publishedTail) may be read by published versions.
+    private int publishedTail;
+    private int vertexCount;
+    private int edgeCount;
+    private boolean negativeWeights;
+    // The last published version; null once something changed since.
+    private CompressedGraph published;
+
+    GraphOverlay(CompressedGraph graph) {
+        reset(graph.compact());
+    }
+
+    private void reset(CompressedGraph compact) {
+        base = compact;
+        baseSlots = compact.edgeCount();
+        beginPages = null;
+        endPages = null;
+        ownedPages = null;
+        tailTargets = NO_EDGES;
+        tailWeights = NO_EDGES;
+        tailSize = 0;
+        publishedTail = 0;
+        vertexCount = compact.vertexCount();
+        edgeCount = compact.edgeCount();
+        negativeWeights = compact.hasNegativeWeights();
+        published = compact;
+    }
+
+    int vertexCount() {
+        return vertexCount;
+    }
+
+    // The current state as an immutable graph, published on first call
+    // after a change.
+    CompressedGraph graph() {
+        if (published == null) {
+            published = new CompressedGraph(base, vertexCount, edgeCount, beginPages.clone(), endPages.clone(),
+                    tailTargets, tailWeights, negativeWeights);
+            Arrays.fill(ownedPages, false);
+            publishedTail = tailSize;
+        }
+        return published;
+    }
+
+    boolean needsCompaction() {
+        long garbage = (long) baseSlots + tailSize - edgeCount;
+        return garbage > Math.max(MIN_GARBAGE, edgeCount / 4);
+    }
+
+    // Rewrites the current state as a new compact base. Versions published
+    // before stay valid; they keep the old arrays.
+    void compact() {
+        reset(graph().compact());
+    }
+
+    // -------------------------------------------------------------
+    // Changes
+    // -------------------------------------------------------------
+    void addVertex() {
+        int v = vertexCount++;
+        ensurePages(vertexCount);
+        setRange(v, 0, 0);
+        published = null;
+    }
+
+    void addEdge(int u, int v, int weight) {
+        if (!writable(u) || end(u) != baseSlots + tailSize) {
+            relocate(u);
+        }
+        ensureTail(1);
+        tailTargets[tailSize] = v;
+        tailWeights[tailSize] = weight;
+        tailSize++;
+        setRange(u, begin(u), end(u) + 1);
+        edgeCount++;
+        negativeWeights |= weight < 0;
+        published = null;
+    }
+
+    // Removes every edge u -> v; returns how many there were.
+    int removeEdges(int u, int v) {
+        if (count(u, v) == 0) {
+            return 0;
+        }
+        if (!writable(u)) {
+            relocate(u);
+        }
+        int begin = begin(u);
+        int kept = begin;
+        for (int e = begin; e < end(u); e++) {
+            int slot = e - baseSlots;
+            if (tailTargets[slot] != v) {
+                tailTargets[kept - baseSlots] = tailTargets[slot];
+                tailWeights[kept - baseSlots] = tailWeights[slot];
+                kept++;
+            }
+        }
+        int removed = end(u) - kept;
+        setRange(u, begin, kept);
+        edgeCount -= removed;
+        published = null;
+        return removed;
+    }
+
+    // Sets the weight of every edge u -> v; returns how many there are.
+    int setWeight(int u, int v, int weight) {
+        int count = count(u, v);
+        if (count == 0) {
+            return 0;
+        }
+        if (!writable(u)) {
+            relocate(u);
+        }
+        for (int e = begin(u); e < end(u); e++) {
+            if (tailTargets[e - baseSlots] == v) {
+                tailWeights[e - baseSlots] = weight;
+            }
+        }
+        // Only ever turns on; compaction recomputes it from the weights.
+        negativeWeights |= weight < 0;
+        published = null;
+        return count;
+    }
+
+    // Number of edges u -> v.
+    int count(int u, int v) {
+        int count = 0;
+        for (int e = begin(u); e < end(u); e++) {
+            if (target(e) == v) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // -------------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------------
+    private int begin(int v) {
+        int[] page = beginPages == null ? null : beginPages[v >>> CompressedGraph.PAGE_BITS];
+        return page != null ? page[v & CompressedGraph.PAGE_MASK] : base.begin(v);
+    }
+
+    private int end(int v) {
+        int[] page = endPages == null ? null : endPages[v >>> CompressedGraph.PAGE_BITS];
+        return page != null ? page[v & CompressedGraph.PAGE_MASK] : base.end(v);
+    }
+
+    private int target(int e) {
+        return e < baseSlots ? base.target(e) : tailTargets[e - baseSlots];
+    }
+
+    private int weight(int e) {
+        return e < baseSlots ? base.weight(e) : tailWeights[e - baseSlots];
+    }
+
+    // Whether u's edges are in tail slots no published version can see.
+    private boolean writable(int u) {
+        return begin(u) >= baseSlots + publishedTail;
+    }
+
+    // Copies u's edges to the end of the tail and points u at the copy.
+    private void relocate(int u) {
+        int begin = begin(u);
+        int end = end(u);
+        ensureTail(end - begin);
+        int start = baseSlots + tailSize;
+        for (int e = begin; e < end; e++) {
+            tailTargets[tailSize] = target(e);
+            tailWeights[tailSize] = weight(e);
+            tailSize++;
+        }
+        setRange(u, start, start + end - begin);
+    }
+
+    private void ensureTail(int more) {
+        if (tailSize + more > tailTargets.length) {
+            if ((long) baseSlots + tailSize + more > Integer.MAX_VALUE) {
+                throw new IllegalStateException("graph overlay is full; compact it");
+            }
+            // A new array: published versions keep reading the old one.
+            int capacity = Math.max(Math.max(16, tailSize + more), tailTargets.length * 2);
+            tailTargets = Arrays.copyOf(tailTargets, capacity);
+            tailWeights = Arrays.copyOf(tailWeights, capacity);
+        }
+    }
+
+    private void ensurePages(int vertices) {
+        int pages = (vertices + PAGE_SIZE - 1) >>> CompressedGraph.PAGE_BITS;
+        if (beginPages == null) {
+            int capacity = Math.max(pages, (base.vertexCount() + PAGE_SIZE - 1) >>> CompressedGraph.PAGE_BITS);
+            beginPages = new int[capacity][];
+            endPages = new int[capacity][];
+            ownedPages = new boolean[capacity];
+        } else if (pages > beginPages.length) {
+            int capacity = Math.max(pages, beginPages.length + (beginPages.length >> 1));
+            beginPages = Arrays.copyOf(beginPages, capacity);
+            endPages = Arrays.copyOf(endPages, capacity);
+            ownedPages = Arrays.copyOf(ownedPages, capacity);
+        }
+    }
+
+    private void setRange(int v, int begin, int end) {
+        ensurePages(v + 1);
+        int p = v >>> CompressedGraph.PAGE_BITS;
+        if (!ownedPages[p]) {
+            int[] begins;
+            int[] ends;
+            if (beginPages[p] != null) {
+                begins = beginPages[p].clone();
+                ends = endPages[p].clone();
+            } else {
+                // First change in this page: start from the base ranges.
+                begins = new int[PAGE_SIZE];
+                ends = new int[PAGE_SIZE];
+                int first = p << CompressedGraph.PAGE_BITS;
+                for (int i = 0; i < PAGE_SIZE && first + i < base.vertexCount(); i++) {
+                    begins[i] = base.begin(first + i);
+                    ends[i] = base.end(first + i);
+                }
+            }
+            beginPages[p] = begins;
+            endPages[p] = ends;
+            ownedPages[p] = true;
+        }
+        beginPages[p][v & CompressedGraph.PAGE_MASK] = begin;
+        endPages[p][v & CompressedGraph.PAGE_MASK] = end;
+    }
+}
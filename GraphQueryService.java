@@ -0,0 +1,505 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// -------------------------------------------------------------
+// GraphQueryService
+// Thread-safe query facade over a published GraphSnapshot. It answers
+// the Graph operations with result values instead of printing, so any
+// number of request threads can share one loaded graph.
+//
+// Searches need O(V) scratch space (distances, parents, marks, heaps).
+// Rather than a ThreadLocal, which would cost one set per thread and so
+// does not suit many short-lived threads, idle scratch sets wait in a
+// lock-free pool: a query takes one, or allocates one if the pool is
+// empty, and returns it afterwards. At most MAX_POOLED sets are kept.
+// The snapshot is read through one volatile field, so the query path
+// takes no locks; publish() switches to a new snapshot, and scratch
+// built for an older one is moved to the new one when it is next taken,
+// keeping its arrays.
+//
+// isThereAPath and shortestPathLength answers are cached per snapshot
+// (see QueryCache), so repeated hot pairs cost a table lookup. Cache
+// lookups take no locks either; storing the answer after a miss takes
+// a lock on one of the cache's stripes. The first query that needs a
+// snapshot index (components, degrees, landmarks, ...) builds it, and
+// concurrent ones wait for that build (see LazyIndex). Neither holds a
+// monitor: the stripe locks are java.util.concurrent locks and index
+// waits park on a FutureTask, so they do not pin the virtual threads
+// GraphServer runs requests on.
+// -------------------------------------------------------------
+public final class GraphQueryService {
+
+    private static final int MAX_POOLED = 4 * Runtime.getRuntime().availableProcessors();
+
+    private volatile GraphSnapshot snapshot;
+    private final ConcurrentLinkedQueue<Scratch> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private final QueryCache cache;
+
+    public GraphQueryService(GraphSnapshot snapshot) {
+        this(snapshot, QueryCache.DEFAULT_BYTES);
+    }
+
+    // cacheBytes caps the memory of the reachability and distance cache;
+    // 0 turns the cache off.
+    public GraphQueryService(GraphSnapshot snapshot, long cacheBytes) {
+        this.snapshot = snapshot;
+        this.cache = new QueryCache(cacheBytes);
+    }
+
+    public GraphSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // Queries that start after this call see next.
+    public void publish(GraphSnapshot next) {
+        snapshot = next;
+    }
+
+    // Hit and miss counts of the query cache, as one line.
+    public String cacheReport() {
+        return cache.report();
+    }
+
+    QueryCache cache() {
+        return cache;
+    }
+
+    // -------------------------------------------------------------
+    // Queries. Unknown vertex names never throw: they give false, 0, an
+    // empty list or PathResult.NOT_FOUND.
+    // -------------------------------------------------------------
+    public boolean isThereAPath(String v1, String v2) {
+        Scratch scratch = acquire();
+        try {
+            int a = scratch.snapshot.id(v1);
+            int b = scratch.snapshot.id(v2);
+            return a >= 0 && b >= 0 && cache.reachable(scratch.snapshot.version(), scratch.frontier(), a, b);
+        } finally {
+            release(scratch);
+        }
+    }
+
+    // Path found by BFS (fewest edges), as BFSfromTo prints it.
+    public PathResult bfsPath(String v1, String v2) {
+        Scratch scratch = acquire();
+        try {
+            int a = scratch.snapshot.id(v1);
+            int b = scratch.snapshot.id(v2);
+            if (a < 0 || b < 0 || !scratch.frontier().breadthFirstPath(a, b)) {
+                return PathResult.NOT_FOUND;
+            }
+            return toPathResult(scratch.snapshot, scratch.frontier().lastPath());
+        } finally {
+            release(scratch);
+        }
+    }
+
+    // Path found by DFS, as DFSfromTo prints it.
+    public PathResult dfsPath(String v1, String v2) {
+        Scratch scratch = acquire();
+        try {
+            int a = scratch.snapshot.id(v1);
+            int b = scratch.snapshot.id(v2);
+            if (a < 0 || b < 0 || !scratch.traversal().depthFirstPath(a, b)) {
+                return PathResult.NOT_FOUND;
+            }
+            return toPathResult(scratch.snapshot, scratch.traversal().lastPath());
+        } finally {
+            release(scratch);
+        }
+    }
+
+    public PathResult shortestPath(String v1, String v2) {
+        return shortestPath(v1, v2, RoutingMode.BIDIRECTIONAL);
+    }
+
+    // Same algorithms as Graph.ShortestPath(v1, v2, mode); ALT prepares
+    // landmarks on first use. CH throws IllegalStateException unless the
+    // snapshot came from a Graph with a prepared contraction hierarchy;
+    // snapshots published by a GraphEditor have none.
+    public PathResult shortestPath(String v1, String v2, RoutingMode mode) {
+        Scratch scratch = acquire();
+        try {
+            GraphSnapshot s = scratch.snapshot;
+            int a = s.id(v1);
+            int b = s.id(v2);
+            if (a < 0 || b < 0 || s.graph().hasNegativeWeights()) {
+                return PathResult.NOT_FOUND;
+            }
+            if (mode == RoutingMode.CH) {
+                ContractionHierarchy.Query query = scratch.hierarchyQuery();
+                int distance = query.distance(a, b);
+                if (distance == ShortestPathEngine.INFINITY) {
+                    return PathResult.NOT_FOUND;
+                }
+                return toPathResult(s, distance, query.lastPath(), query.lastPathWeights());
+            }
+            ShortestPathEngine engine = scratch.shortestPaths();
+            int distance;
+            switch (mode) {
+                case DIJKSTRA:
+                    distance = engine.distance(a, b);
+                    break;
+                case ALT:
+                    distance = engine.aStarDistance(a, b, s.landmarks());
+                    break;
+                default:
+                    distance = engine.bidirectionalDistance(a, b);
+            }
+            if (distance == ShortestPathEngine.INFINITY) {
+                return PathResult.NOT_FOUND;
+            }
+            return toPathResult(s, distance, engine.lastPath(), engine.lastPathWeights());
+        } finally {
+            release(scratch);
+        }
+    }
+
+    // Shortest path length, or -1 if there is no path.
+    public int shortestPathLength(String v1, String v2) {
+        Scratch scratch = acquire();
+        try {
+            GraphSnapshot s = scratch.snapshot;
+            int a = s.id(v1);
+            int b = s.id(v2);
+            if (a < 0 || b < 0 || s.graph().hasNegativeWeights()) {
+                return -1;
+            }
+            int distance = cache.distance(s.version(), scratch.shortestPaths(), s.vertexCount(), a, b);
+            return distance == ShortestPathEngine.INFINITY ? -1 : distance;
+        } finally {
+            release(scratch);
+        }
+    }
+
+    // See Graph.CountSimplePaths.
+    public PathCountResult countSimplePaths(String v1, String v2, int maxDepth, long timeLimitMillis) {
+        GraphSnapshot s = snapshot;
+        int a = s.id(v1);
+        int b = s.id(v2);
+        if (a < 0 || b < 0) {
+            return PathCountResult.NONE;
+        }
+        return s.pathCounter().count(a, b, maxDepth, timeLimitMillis);
+    }
+
+    // Distinct out-neighbors, in edge order.
+    public List<String> neighbors(String v1) {
+        Scratch scratch = acquire();
+        try {
+            GraphSnapshot s = scratch.snapshot;
+            int v = s.id(v1);
+            if (v < 0) {
+                return Collections.emptyList();
+            }
+            CompressedGraph g = s.graph();
+            int[] seen = scratch.marks();
+            int epoch = scratch.nextEpoch();
+            List<String> result = new ArrayList<>(g.degree(v));
+            for (int e = g.begin(v); e < g.end(v); e++) {
+                int w = g.target(e);
+                if (seen[w] != epoch) {
+                    seen[w] = epoch;
+                    result.add(s.name(w));
+                }
+            }
+            return result;
+        } finally {
+            release(scratch);
+        }
+    }
+
+    public boolean areAdjacent(String v1, String v2) {
+        GraphSnapshot s = snapshot;
+        int a = s.id(v1);
+        int b = s.id(v2);
+        return a >= 0 && b >= 0 && s.graph().findEdge(a, b) >= 0;
+    }
+
+    // Whether v1 lies on a cycle of at least two vertices.
+    public boolean isThereACycle(String v1) {
+        GraphSnapshot s = snapshot;
+        int v = s.id(v1);
+        // Such a cycle exists exactly when v1's strong component has another vertex.
+        return v >= 0 && s.components().strongComponentSize(v) > 1;
+    }
+
+    // Size of v1's weakly connected component, 0 for an unknown vertex.
+    public int componentSize(String v1) {
+        GraphSnapshot s = snapshot;
+        int v = s.id(v1);
+        return v < 0 ? 0 : s.components().weakComponentSize(v);
+    }
+
+    public int strongComponentSize(String v1) {
+        GraphSnapshot s = snapshot;
+        int v = s.id(v1);
+        return v < 0 ? 0 : s.components().strongComponentSize(v);
+    }
+
+    public boolean areInSameComponent(String v1, String v2) {
+        GraphSnapshot s = snapshot;
+        int a = s.id(v1);
+        int b = s.id(v2);
+        return a >= 0 && b >= 0 && s.components().weakComponent(a) == s.components().weakComponent(b);
+    }
+
+    // Vertices with the most distinct neighbors, in vertex order.
+    public List<String> highestDegree() {
+        GraphSnapshot s = snapshot;
+        DegreeIndex index = s.degrees();
+        int max = index.maxDistinctDegree();
+        List<Integer> tied = new ArrayList<>();
+        for (int i = 0; i < index.vertexCount() && index.distinctDegree(index.byDegree(i)) == max; i++) {
+            tied.add(index.byDegree(i));
+        }
+        Collections.sort(tied);
+        List<String> result = new ArrayList<>(tied.size());
+        for (int v : tied) {
+            result.add(s.name(v));
+        }
+        return result;
+    }
+
+    public List<String> topDegreeVertices(int k) {
+        GraphSnapshot s = snapshot;
+        DegreeIndex index = s.degrees();
+        int count = Math.max(0, Math.min(k, index.vertexCount()));
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(s.name(index.byDegree(i)));
+        }
+        return result;
+    }
+
+    // -------------------------------------------------------------
+    // Single-source batches: one search from source answers the query
+    // for every target at once. Unknown targets give false / -1.
+    // -------------------------------------------------------------
+    public boolean[] reachable(String source, List<String> targets) {
+        boolean[] result = new boolean[targets.size()];
+        Scratch scratch = acquire();
+        try {
+            GraphSnapshot s = scratch.snapshot;
+            int v = s.id(source);
+            int[] ids = knownIds(s, targets);
+            if (v < 0 || ids.length == 0) {
+                return result;
+            }
+            boolean[] found = new boolean[ids.length];
+            scratch.traversal().reachable(v, ids, found);
+            for (int i = 0, k = 0; i < result.length; i++) {
+                if (s.id(targets.get(i)) >= 0) {
+                    result[i] = found[k++];
+                }
+            }
+            return result;
+        } finally {
+            release(scratch);
+        }
+    }
+
+    // Shortest path lengths from source, -1 where there is no path (or the
+    // graph has negative weights).
+    public int[] shortestPathLengths(String source, List<String> targets) {
+        int[] result = new int[targets.size()];
+        Arrays.fill(result, -1);
+        Scratch scratch = acquire();
+        try {
+            GraphSnapshot s = scratch.snapshot;
+            int v = s.id(source);
+            int[] ids = knownIds(s, targets);
+            if (v < 0 || ids.length == 0 || s.graph().hasNegativeWeights()) {
+                return result;
+            }
+            int[] distances = new int[ids.length];
+            int[] tree = cache.tree(s.version(), v);
+            if (tree != null) {
+                for (int i = 0; i < ids.length; i++) {
+                    distances[i] = tree[ids[i]];
+                }
+            } else {
+                scratch.shortestPaths().distancesTo(v, ids, distances);
+            }
+            for (int i = 0, k = 0; i < result.length; i++) {
+                if (s.id(targets.get(i)) >= 0) {
+                    int d = distances[k++];
+                    result[i] = d == ShortestPathEngine.INFINITY ? -1 : d;
+                }
+            }
+            return result;
+        } finally {
+            release(scratch);
+        }
+    }
+
+    public boolean[] adjacent(String source, List<String> targets) {
+        boolean[] result = new boolean[targets.size()];
+        Scratch scratch = acquire();
+        try {
+            GraphSnapshot s = scratch.snapshot;
+            int v = s.id(source);
+            if (v < 0) {
+                return result;
+            }
+            // Mark the out-neighbors once, then every target is a lookup.
+            CompressedGraph g = s.graph();
+            int[] marks = scratch.marks();
+            int epoch = scratch.nextEpoch();
+            for (int e = g.begin(v); e < g.end(v); e++) {
+                marks[g.target(e)] = epoch;
+            }
+            for (int i = 0; i < result.length; i++) {
+                int w = s.id(targets.get(i));
+                result[i] = w >= 0 && marks[w] == epoch;
+            }
+            return result;
+        } finally {
+            release(scratch);
+        }
+    }
+
+    // Ids of the targets that name a vertex, in order.
+    private static int[] knownIds(GraphSnapshot s, List<String> targets) {
+        int[] ids = new int[targets.size()];
+        int count = 0;
+        for (String target : targets) {
+            int id = s.id(target);
+            if (id >= 0) {
+                ids[count++] = id;
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    // -------------------------------------------------------------
+    // Scratch pool
+    // -------------------------------------------------------------
+    private Scratch acquire() {
+        GraphSnapshot current = snapshot;
+        Scratch scratch;
+        if ((scratch = pool.poll()) != null) {
+            pooled.decrementAndGet();
+            if (scratch.snapshot != current) {
+                scratch.retarget(current);
+            }
+            return scratch;
+        }
+        return new Scratch(current);
+    }
+
+    private void release(Scratch scratch) {
+        if (pooled.incrementAndGet() <= MAX_POOLED) {
+            pool.offer(scratch);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    private static PathResult toPathResult(GraphSnapshot s, int[] path) {
+        CompressedGraph g = s.graph();
+        int[] weights = new int[Math.max(path.length - 1, 0)];
+        long distance = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = g.weight(g.findEdge(path[i], path[i + 1]));
+            distance += weights[i];
+        }
+        int clamped = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, distance));
+        return toPathResult(s, clamped, path, weights);
+    }
+
+    private static PathResult toPathResult(GraphSnapshot s, int distance, int[] path, int[] weights) {
+        List<String> names = new ArrayList<>(path.length);
+        for (int v : path) {
+            names.add(s.name(v));
+        }
+        return new PathResult(distance, names, weights);
+    }
+
+    // One set of per-query working memory for one snapshot; used by one
+    // thread at a time. The parts are created when a query first needs them.
+    private static final class Scratch {
+        GraphSnapshot snapshot;
+        private TraversalEngine traversal;
+        private FrontierSearch frontier;
+        private ShortestPathEngine shortestPaths;
+        private ContractionHierarchy.Query hierarchyQuery;
+        private int[] marks;
+        private int epoch;
+
+        Scratch(GraphSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        // Moves the engines to next, which they have not searched yet.
+        void retarget(GraphSnapshot next) {
+            snapshot = next;
+            if (traversal != null) {
+                traversal.retarget(next.graph());
+            }
+            if (frontier != null) {
+                frontier.retarget(next.graph(), next.reverse());
+            }
+            if (shortestPaths != null) {
+                shortestPaths.retarget(next.graph(), next.reverse());
+            }
+            hierarchyQuery = null;
+            if (marks != null && marks.length < next.vertexCount()) {
+                marks = Arrays.copyOf(marks, Math.max(next.vertexCount(), marks.length + (marks.length >> 1)));
+            }
+        }
+
+        TraversalEngine traversal() {
+            if (traversal == null) {
+                traversal = new TraversalEngine(snapshot.graph());
+            }
+            return traversal;
+        }
+
+        FrontierSearch frontier() {
+            if (frontier == null) {
+                frontier = new FrontierSearch(snapshot.graph(), snapshot.reverse());
+            }
+            return frontier;
+        }
+
+        ShortestPathEngine shortestPaths() {
+            if (shortestPaths == null) {
+                shortestPaths = new ShortestPathEngine(snapshot.graph(), snapshot.reverse());
+            }
+            return shortestPaths;
+        }
+
+        ContractionHierarchy.Query hierarchyQuery() {
+            if (hierarchyQuery == null) {
+                ContractionHierarchy hierarchy = snapshot.hierarchy();
+                if (hierarchy == null) {
+                    throw new IllegalStateException("no contraction hierarchy prepared");
+                }
+                hierarchyQuery = hierarchy.newQuery();
+            }
+            return hierarchyQuery;
+        }
+
+        int[] marks() {
+            if (marks == null) {
+                marks = new int[snapshot.vertexCount()];
+            }
+            return marks;
+        }
+
+        int nextEpoch() {
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+}
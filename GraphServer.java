@@ -0,0 +1,309 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// -------------------------------------------------------------
+// GraphServer
+// Local HTTP server answering the Graph operations as JSON, on top of a
+// GraphQueryService. All endpoints take GET parameters:
+//     /path?from=A&to=B         {"from":"A","to":"B","result":true}
+//     /bfs, /dfs, /shortest     the path as {"found","distance","path","weights"};
+//                               /shortest also takes mode=DIJKSTRA|BIDIRECTIONAL|ALT|CH;
+//                               CH needs a prepared hierarchy (Main --ch)
+//     /neighbors?vertex=A       {"vertex":"A","neighbors":[...]}
+//     /adjacent?from=A&to=B     {"from":"A","to":"B","result":false}
+//     /cycle?vertex=A           {"vertex":"A","result":true}
+//     /component?vertex=A       {"vertex":"A","size":57,"strongSize":12}
+//     /stats                    latency percentiles per endpoint, cache counters
+// POST /batch takes a body of queries in the BatchQueryRunner format
+// (JSON lines, or CSV with ?format=csv) and streams the answers back.
+//
+// Unknown vertices give 404, missing parameters 400. Every reply has a
+// Content-Length (batch replies are chunked), so HTTP/1.1 clients keep
+// their connections open between requests.
+//
+// Requests run on a virtual thread each when the JDK has them (Java 21
+// and later) and on a cached thread pool otherwise; queries are short
+// and CPU-bound, and GraphQueryService keeps the per-query memory in a
+// pool rather than per thread, so either way scales with the clients.
+// -------------------------------------------------------------
+final class GraphServer {
+
+    private interface Endpoint {
+        String answer(Map<String, String> params);
+    }
+
+    // Error reply: status and message.
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final GraphQueryService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+
+    GraphServer(GraphQueryService service, int port) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = newExecutor();
+        server.setExecutor(executor);
+
+        get("path", p -> {
+            String from = vertex(p, "from");
+            String to = vertex(p, "to");
+            return pair(from, to).append("\"result\":").append(service.isThereAPath(from, to)).append('}')
+                    .toString();
+        });
+        get("bfs", p -> path(service.bfsPath(vertex(p, "from"), vertex(p, "to"))));
+        get("dfs", p -> path(service.dfsPath(vertex(p, "from"), vertex(p, "to"))));
+        get("shortest", p -> {
+            String from = vertex(p, "from");
+            String to = vertex(p, "to");
+            RoutingMode mode = mode(p);
+            try {
+                return path(service.shortestPath(from, to, mode));
+            } catch (IllegalStateException e) {
+                // mode=CH on a snapshot without a contraction hierarchy.
+                throw new HttpError(400, e.getMessage());
+            }
+        });
+        get("neighbors", p -> {
+            String v = vertex(p, "vertex");
+            StringBuilder json = single(v).append("\"neighbors\":");
+            return strings(json, service.neighbors(v)).append('}').toString();
+        });
+        get("adjacent", p -> {
+            String from = vertex(p, "from");
+            String to = vertex(p, "to");
+            return pair(from, to).append("\"result\":").append(service.areAdjacent(from, to)).append('}')
+                    .toString();
+        });
+        get("cycle", p -> {
+            String v = vertex(p, "vertex");
+            return single(v).append("\"result\":").append(service.isThereACycle(v)).append('}').toString();
+        });
+        get("component", p -> {
+            String v = vertex(p, "vertex");
+            return single(v).append("\"size\":").append(service.componentSize(v)).append(",\"strongSize\":")
+                    .append(service.strongComponentSize(v)).append('}').toString();
+        });
+        get("stats", p -> stats());
+        latencies.put("batch", new LatencyHistogram());
+        server.createContext("/batch", this::batch);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    // Waits up to delaySeconds for running requests, then stops.
+    void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void get(String name, Endpoint endpoint) {
+        LatencyHistogram latency = new LatencyHistogram();
+        latencies.put(name, latency);
+        server.createContext("/" + name, exchange -> {
+            long start = System.nanoTime();
+            try {
+                int status = 200;
+                String body;
+                if (!exchange.getRequestMethod().equals("GET")) {
+                    status = 405;
+                    body = error("use GET");
+                } else {
+                    try {
+                        body = endpoint.answer(params(exchange.getRequestURI().getRawQuery()));
+                    } catch (HttpError e) {
+                        status = e.status;
+                        body = error(e.getMessage());
+                    }
+                }
+                send(exchange, status, body);
+            } finally {
+                exchange.close();
+                latency.record(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private void batch(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                send(exchange, 405, error("use POST"));
+                return;
+            }
+            boolean csv;
+            try {
+                csv = "csv".equals(params(exchange.getRequestURI().getRawQuery()).get("format"));
+            } catch (HttpError e) {
+                send(exchange, e.status, error(e.getMessage()));
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", csv ? "text/csv" : "application/x-ndjson");
+            exchange.sendResponseHeaders(200, 0);
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+            new BatchQueryRunner(service, csv).run(in, out);
+            out.flush();
+        } finally {
+            exchange.close();
+            latencies.get("batch").record(System.nanoTime() - start);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String vertex(Map<String, String> params, String key) {
+        String name = params.get(key);
+        if (name == null || name.isEmpty()) {
+            throw new HttpError(400, "missing parameter '" + key + "'");
+        }
+        if (service.snapshot().id(name) < 0) {
+            throw new HttpError(404, "unknown vertex '" + name + "'");
+        }
+        return name;
+    }
+
+    private static RoutingMode mode(Map<String, String> params) {
+        String mode = params.get("mode");
+        if (mode == null) {
+            return RoutingMode.BIDIRECTIONAL;
+        }
+        try {
+            return RoutingMode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, "unknown mode '" + mode + "'");
+        }
+    }
+
+    private static Map<String, String> params(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            try {
+                params.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+                        URLDecoder.decode(value, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new HttpError(400, "malformed query string");
+            }
+        }
+        return params;
+    }
+
+    // -------------------------------------------------------------
+    // JSON
+    // -------------------------------------------------------------
+    private static StringBuilder single(String vertex) {
+        return field(new StringBuilder("{"), "vertex", vertex).append(',');
+    }
+
+    private static StringBuilder pair(String from, String to) {
+        StringBuilder json = field(new StringBuilder("{"), "from", from).append(',');
+        return field(json, "to", to).append(',');
+    }
+
+    private static String path(PathResult result) {
+        StringBuilder json = new StringBuilder("{\"found\":").append(result.found());
+        json.append(",\"distance\":").append(result.distance()).append(",\"path\":");
+        strings(json, result.vertices()).append(",\"weights\":[");
+        for (int i = 0; i < result.edgeCount(); i++) {
+            json.append(i > 0 ? "," : "").append(result.weight(i));
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String error(String message) {
+        return field(new StringBuilder("{"), "error", message).append('}').toString();
+    }
+
+    private static StringBuilder field(StringBuilder json, String key, String value) {
+        json.append('"').append(key).append("\":");
+        return BatchQueryRunner.JsonLine.quote(json, value);
+    }
+
+    private static StringBuilder strings(StringBuilder json, List<String> values) {
+        json.append('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            BatchQueryRunner.JsonLine.quote(json, values.get(i));
+        }
+        return json.append(']');
+    }
+
+    private String stats() {
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(entry.getKey()).append("\":{\"count\":").append(h.count());
+            json.append(String.format(Locale.ROOT, ",\"meanMicros\":%.1f", h.meanNanos() / 1e3));
+            json.append(",\"p50Micros\":").append(h.percentileNanos(0.50) / 1000);
+            json.append(",\"p90Micros\":").append(h.percentileNanos(0.90) / 1000);
+            json.append(",\"p99Micros\":").append(h.percentileNanos(0.99) / 1000);
+            json.append(",\"p999Micros\":").append(h.percentileNanos(0.999) / 1000);
+            json.append(",\"maxMicros\":").append(h.maxNanos() / 1000).append('}');
+        }
+        QueryCache cache = service.cache();
+        json.append(",\"cache\":{\"hits\":").append(cache.hits()).append(",\"misses\":").append(cache.misses());
+        json.append(",\"evictions\":").append(cache.evictions()).append(",\"rejections\":").append(cache.rejections());
+        json.append(",\"trees\":").append(cache.treeCount()).append('}');
+        return json.append('}').toString();
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// -------------------------------------------------------------
+// GraphSnapshot
+// An immutable view of a loaded graph: vertex names, the CSR adjacency
+// and the indexes derived from them. Every index is built on first use
+// by the thread that asks first (see LazyIndex), so any number of
+// threads can share one snapshot. Threads asking while it is being
+// built wait for it without holding a monitor, and a build of one index
+// never holds up readers of another.
+//
+// Graph.Snapshot() takes one; GraphQueryService answers queries on it.
+// A GraphEditor publishes a new snapshot per batch of changes and hands
+// over the indexes it could carry forward.
+// -------------------------------------------------------------
+public final class GraphSnapshot {
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    // Unique per snapshot; tags cached query answers (see QueryCache).
+    private final long version = VERSIONS.incrementAndGet();
+    private final VertexDictionary names;
+    private final CompressedGraph graph;
+
+    private final LazyIndex<CompressedGraph> reverse;
+    private final LazyIndex<ComponentIndex> components;
+    private final LazyIndex<DegreeIndex> degrees;
+    private final LazyIndex<PathCounter> pathCounter = new LazyIndex<>();
+    private final LazyIndex<Landmarks> landmarks;
+    private final ContractionHierarchy hierarchy;
+
+    // names must not be modified afterwards. landmarks and hierarchy may
+    // be null; landmarks are then built on first use, while a missing
+    // hierarchy stays missing (see hierarchy()).
+    GraphSnapshot(VertexDictionary names, CompressedGraph graph, Landmarks landmarks,
+            ContractionHierarchy hierarchy) {
+        this(names, graph, null, null, null, landmarks, hierarchy);
+    }
+
+    // A snapshot of a changed graph (see GraphEditor). names may hold
+    // more vertices than graph; those are not visible here. reverse,
+    // components and degrees may be null; components may be stale and
+    // is then refreshed on first use.
+    GraphSnapshot(VertexDictionary names, CompressedGraph graph, CompressedGraph reverse,
+            ComponentIndex components, DegreeIndex degrees) {
+        this(names, graph, reverse, components, degrees, null, null);
+    }
+
+    private GraphSnapshot(VertexDictionary names, CompressedGraph graph, CompressedGraph reverse,
+            ComponentIndex components, DegreeIndex degrees, Landmarks landmarks, ContractionHierarchy hierarchy) {
+        this.names = names;
+        this.graph = graph;
+        this.reverse = new LazyIndex<>(reverse);
+        this.components = new LazyIndex<>(components);
+        this.degrees = new LazyIndex<>(degrees);
+        this.landmarks = new LazyIndex<>(landmarks);
+        this.hierarchy = hierarchy;
+    }
+
+    long version() {
+        return version;
+    }
+
+    public int vertexCount() {
+        return graph.vertexCount();
+    }
+
+    public int edgeCount() {
+        return graph.edgeCount();
+    }
+
+    // Vertex names by id, decoded as they are read.
+    public List<String> names() {
+        return names.asList(graph.vertexCount());
+    }
+
+    VertexDictionary dictionary() {
+        return names;
+    }
+
+    // Id of the named vertex, or -1.
+    int id(String name) {
+        int id = names.id(name);
+        return id >= graph.vertexCount() ? -1 : id;
+    }
+
+    String name(int v) {
+        return names.name(v);
+    }
+
+    CompressedGraph graph() {
+        return graph;
+    }
+
+    CompressedGraph reverse() {
+        return reverse.get(graph::reverse);
+    }
+
+    ComponentIndex components() {
+        ComponentIndex c = components.get(() -> ComponentIndex.build(graph));
+        return c.isStale() ? components.replace(c, () -> c.refreshed(graph)) : c;
+    }
+
+    // Never updated incrementally here: a snapshot does not change.
+    DegreeIndex degrees() {
+        return degrees.get(() -> DegreeIndex.build(graph));
+    }
+
+    PathCounter pathCounter() {
+        return pathCounter.get(() -> new PathCounter(graph, reverse()));
+    }
+
+    Landmarks landmarks() {
+        return landmarks.get(() -> Landmarks.select(graph, new ShortestPathEngine(graph, reverse()),
+                Graph.DEFAULT_LANDMARKS));
+    }
+
+    // The hierarchy handed over by Graph.Snapshot, or null. Building one
+    // takes seconds on large graphs, far too long for a query to wait
+    // (and every edit would start over), so it is only ever built by
+    // Graph.PrepareContractionHierarchy.
+    ContractionHierarchy hierarchy() {
+        return hierarchy;
+    }
+
+    // The indexes built so far, or null; for carrying them forward to the
+    // next snapshot without building them.
+    ComponentIndex componentsIfBuilt() {
+        return components.ifBuilt();
+    }
+
+    DegreeIndex degreesIfBuilt() {
+        return degrees.ifBuilt();
+    }
+}
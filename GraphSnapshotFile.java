@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+// -------------------------------------------------------------
+// GraphSnapshotFile
+// Versioned binary image of a graph that opens without parsing:
+//
+//     header (64 bytes)   magic "GSN1", version, vertex count n, edge
+//                         count m, name bytes, flags, CRC32C of the body
+//     name offsets        int[n + 1], byte offsets into the name bytes
+//     name bytes          UTF-8 names, back to back
+//     offsets             int[n + 1]  \
+//     targets             int[m]       > the CompressedGraph arrays
+//     weights             int[m]      /
+//
+// Ints are little-endian and every section starts on an 8-byte boundary.
+// open() maps the CSR sections read-only and hands the mappings straight
+// to CompressedGraph, so edges are read from the page cache, which all
+// processes opening the same file share. Only the names are copied onto
+// the heap, in a single read: the name sections are laid out as a
+// VertexDictionary keeps them.
+// -------------------------------------------------------------
+final class GraphSnapshotFile {
+
+    private static final int MAGIC = 0x47534E31; // "GSN1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int FLAG_NEGATIVE_WEIGHTS = 1;
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private final VertexDictionary names;
+    private final CompressedGraph graph;
+
+    private GraphSnapshotFile(VertexDictionary names, CompressedGraph graph) {
+        this.names = names;
+        this.graph = graph;
+    }
+
+    // Vertex names by id.
+    VertexDictionary names() {
+        return names;
+    }
+
+    CompressedGraph graph() {
+        return graph;
+    }
+
+    // -------------------------------------------------------------
+    // Writes names (indexed by vertex id) and graph to filename. The
+    // header is written last, so a file cut short never has a valid one.
+    //
+    // The file is written under a temporary name in the same directory,
+    // forced to disk and then renamed over filename. Rewriting the
+    // snapshot this process has open is therefore safe: its mappings keep
+    // the old file, which is never truncated under them. A crash leaves
+    // the old file or the new one under the real name, never part of one.
+    // -------------------------------------------------------------
+    static void write(String filename, VertexDictionary names, CompressedGraph graph) throws IOException {
+        // A changed graph is written in its compact layout.
+        graph = graph.compact();
+        int n = graph.vertexCount();
+        if (names.size() != n) {
+            throw new IllegalArgumentException("names do not match the graph");
+        }
+        ByteBuffer nameBytes = names.byteBuffer(n);
+        long nameLength = nameBytes.remaining();
+
+        Path target = Paths.get(filename).toAbsolutePath();
+        // Created like any new file (not as a private temp file), so the
+        // snapshot keeps the usual permissions.
+        Path temporary = target.resolveSibling(
+                target.getFileName() + "." + Long.toHexString(System.nanoTime()) + ".tmp");
+        FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            try (channel) {
+                CRC32C crc = new CRC32C();
+                channel.position(HEADER_SIZE);
+                writeInts(channel, names.offsetBuffer(n), crc);
+                // In slices, so the channel's temporary direct buffer stays small.
+                while (nameBytes.hasRemaining()) {
+                    ByteBuffer slice = nameBytes.slice().limit(Math.min(CHUNK_BYTES, nameBytes.remaining()));
+                    nameBytes.position(nameBytes.position() + slice.remaining());
+                    write(channel, slice, crc);
+                }
+                write(channel, ByteBuffer.allocate(padding(nameLength)), crc);
+
+                writeInts(channel, graph.offsetBuffer(), crc);
+                writeInts(channel, graph.targetBuffer(), crc);
+                writeInts(channel, graph.weightBuffer(), crc);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(graph.edgeCount()).putLong(nameLength);
+                header.putInt(graph.hasNegativeWeights() ? FLAG_NEGATIVE_WEIGHTS : 0).putInt((int) crc.getValue());
+                header.clear();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Maps a snapshot and checks its header and checksum. Verifying the
+    // checksum reads the file once, sequentially, which also warms the
+    // page cache for the queries that follow.
+    // -------------------------------------------------------------
+    static GraphSnapshotFile open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("not a graph snapshot");
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("not a graph snapshot");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported snapshot version " + version);
+            }
+            int n = header.getInt();
+            int m = header.getInt();
+            long nameBytes = header.getLong();
+            int flags = header.getInt();
+            int checksum = header.getInt();
+            if (n < 0 || m < 0 || nameBytes < 0) {
+                throw new IOException("corrupt snapshot header");
+            }
+
+            long position = HEADER_SIZE;
+            long[] sizes = { 4L * (n + 1), nameBytes, 4L * (n + 1), 4L * m, 4L * m };
+            MappedByteBuffer[] sections = new MappedByteBuffer[sizes.length];
+            CRC32C crc = new CRC32C();
+            for (int i = 0; i < sizes.length; i++) {
+                long size = sizes[i] + padding(sizes[i]);
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("snapshot section too large to map");
+                }
+                if (position + size > channel.size()) {
+                    throw new IOException("snapshot is truncated");
+                }
+                sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                crc.update(sections[i].duplicate());
+                sections[i].limit((int) sizes[i]).order(ByteOrder.LITTLE_ENDIAN);
+                position += size;
+            }
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("snapshot checksum mismatch");
+            }
+
+            VertexDictionary names;
+            try {
+                names = VertexDictionary.fromUtf8(n, sections[0].asIntBuffer(), sections[1]);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("corrupt snapshot name table (" + e.getMessage() + ")");
+            }
+
+            IntBuffer offsets = sections[2].asIntBuffer();
+            if (offsets.get(0) != 0 || offsets.get(n) != m) {
+                throw new IOException("corrupt snapshot offsets");
+            }
+            CompressedGraph graph = new CompressedGraph(offsets, sections[3].asIntBuffer(),
+                    sections[4].asIntBuffer(), (flags & FLAG_NEGATIVE_WEIGHTS) != 0);
+            return new GraphSnapshotFile(names, graph);
+        }
+    }
+
+    // Bytes needed after a section of the given size to reach the next 8-byte boundary.
+    private static int padding(long size) {
+        return (int) (-size & 7);
+    }
+
+    // Writes the ints little-endian, padded to a multiple of 8 bytes.
+    private static void writeInts(FileChannel channel, IntBuffer values, CRC32C crc) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        IntBuffer ints = buffer.asIntBuffer();
+        while (values.hasRemaining()) {
+            int len = Math.min(ints.capacity(), values.remaining());
+            ints.clear();
+            ints.put(values.slice().limit(len));
+            values.position(values.position() + len);
+            buffer.clear().limit(len * Integer.BYTES);
+            write(channel, buffer, crc);
+        }
+        if (values.capacity() % 2 != 0) {
+            write(channel, ByteBuffer.allocate(Integer.BYTES), crc);
+        }
+    }
+
+    // Writes the buffer's remaining bytes.
+    private static void write(FileChannel channel, ByteBuffer buffer, CRC32C crc) throws IOException {
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
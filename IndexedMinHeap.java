@@ -0,0 +1,128 @@
+import java.util.Arrays;
+
+// -------------------------------------------------------------
+// IndexedMinHeap
+// 4-ary min-heap of vertex ids in [0, capacity) keyed by int priorities.
+// Every id is in the heap at most once; position[] remembers where it
+// sits so a key can be lowered in O(log n) without searching. All
+// storage is allocated up front, so pushes and polls never allocate.
+// -------------------------------------------------------------
+final class IndexedMinHeap {
+
+    private static final int ARITY = 4;
+
+    private final int[] items;
+    private final int[] keys;
+    private final int[] position;
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        items = new int[capacity];
+        keys = new int[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int item) {
+        return position[item] >= 0;
+    }
+
+    // Key of the minimum element; the heap must not be empty.
+    int peekKey() {
+        return keys[0];
+    }
+
+    int peek() {
+        return items[0];
+    }
+
+    // Inserts item, or lowers its key if it is already queued with a larger one.
+    void insertOrDecrease(int item, int key) {
+        int i = position[item];
+        if (i < 0) {
+            i = size++;
+        } else if (keys[i] <= key) {
+            return;
+        }
+        siftUp(i, item, key);
+    }
+
+    // Inserts item, or moves it to its new key in either direction.
+    void update(int item, int key) {
+        int i = position[item];
+        if (i < 0) {
+            siftUp(size++, item, key);
+        } else if (key < keys[i]) {
+            siftUp(i, item, key);
+        } else {
+            siftDown(i, item, key);
+        }
+    }
+
+    // Removes and returns the item with the smallest key.
+    int poll() {
+        int top = items[0];
+        position[top] = -1;
+        size--;
+        if (size > 0) {
+            siftDown(0, items[size], keys[size]);
+        }
+        return top;
+    }
+
+    // Empties the heap in O(size), leaving it ready for the next query.
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            position[items[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int i, int item, int key) {
+        while (i > 0) {
+            int parent = (i - 1) / ARITY;
+            if (keys[parent] <= key) {
+                break;
+            }
+            place(i, items[parent], keys[parent]);
+            i = parent;
+        }
+        place(i, item, key);
+    }
+
+    private void siftDown(int i, int item, int key) {
+        while (true) {
+            int first = i * ARITY + 1;
+            if (first >= size) {
+                break;
+            }
+            int last = Math.min(first + ARITY, size);
+            int best = first;
+            for (int c = first + 1; c < last; c++) {
+                if (keys[c] < keys[best]) {
+                    best = c;
+                }
+            }
+            if (keys[best] >= key) {
+                break;
+            }
+            place(i, items[best], keys[best]);
+            i = best;
+        }
+        place(i, item, key);
+    }
+
+    private void place(int i, int item, int key) {
+        items[i] = item;
+        keys[i] = key;
+        position[item] = i;
+    }
+}
@@ -0,0 +1,247 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+// -------------------------------------------------------------
+// Landmarks
+// Precomputed distances to and from K landmark vertices, used as the
+// A* heuristic of ALT routing (A*, Landmarks, Triangle inequality).
+// For any landmark L the triangle inequality gives
+//     d(v, t) >= d(L, t) - d(L, v)   and   d(v, t) >= d(v, L) - d(t, L)
+// and the largest of these bounds over all landmarks is an admissible,
+// consistent estimate of the remaining distance.
+//
+// Tables are stored vertex-major (all K entries of a vertex next to
+// each other) so one heuristic evaluation touches few cache lines.
+// -------------------------------------------------------------
+final class Landmarks {
+
+    private static final int MAGIC = 0x414C5431; // "ALT1"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 24;
+    private static final int INFINITY = ShortestPathEngine.INFINITY;
+
+    private final int[] landmarks;
+    private final int[] fromLandmark; // [v * K + k] = d(landmark k, v)
+    private final int[] toLandmark; // [v * K + k] = d(v, landmark k)
+    private final int vertexCount;
+    private final long graphFingerprint;
+
+    private Landmarks(int vertexCount, int[] landmarks, int[] fromLandmark, int[] toLandmark,
+            long graphFingerprint) {
+        this.vertexCount = vertexCount;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+        this.graphFingerprint = graphFingerprint;
+    }
+
+    // -------------------------------------------------------------
+    // Farthest-point selection: the first landmark is the vertex farthest
+    // from vertex 0, every next one is the vertex whose round-trip
+    // distance to the nearest chosen landmark is largest. Vertices no
+    // landmark can reach (or be reached from) count as infinitely far,
+    // so every part of a disconnected graph gets covered first.
+    // -------------------------------------------------------------
+    static Landmarks select(CompressedGraph graph, ShortestPathEngine engine, int count) {
+        int n = graph.vertexCount();
+        int k = Math.max(0, Math.min(count, n));
+        int[] chosen = new int[k];
+        int[] from = new int[Math.multiplyExact(n, k)];
+        int[] to = new int[from.length];
+        int[] forwardDist = new int[n];
+        int[] backwardDist = new int[n];
+
+        // closest[v] = smallest round trip from v to any chosen landmark.
+        long[] closest = new long[n];
+        if (k > 0) {
+            engine.distancesFrom(0, false, forwardDist);
+            engine.distancesFrom(0, true, backwardDist);
+            for (int v = 0; v < n; v++) {
+                closest[v] = roundTrip(forwardDist[v], backwardDist[v]);
+            }
+        }
+
+        for (int i = 0; i < k; i++) {
+            int next = 0;
+            for (int v = 1; v < n; v++) {
+                if (closest[v] > closest[next]) {
+                    next = v;
+                }
+            }
+            chosen[i] = next;
+            engine.distancesFrom(next, false, forwardDist);
+            engine.distancesFrom(next, true, backwardDist);
+            for (int v = 0; v < n; v++) {
+                from[v * k + i] = forwardDist[v];
+                to[v * k + i] = backwardDist[v];
+                long trip = roundTrip(forwardDist[v], backwardDist[v]);
+                closest[v] = i == 0 ? trip : Math.min(closest[v], trip);
+            }
+            closest[next] = -1; // never pick the same vertex twice
+        }
+        return new Landmarks(n, chosen, from, to, graph.fingerprint());
+    }
+
+    private static long roundTrip(int forward, int backward) {
+        if (forward == INFINITY || backward == INFINITY) {
+            return Long.MAX_VALUE;
+        }
+        return (long) forward + backward;
+    }
+
+    int count() {
+        return landmarks.length;
+    }
+
+    // -------------------------------------------------------------
+    // Lower bound on d(v, target). Returns INFINITY when the tables prove
+    // that target cannot be reached from v at all.
+    // -------------------------------------------------------------
+    int lowerBound(int v, int target) {
+        int k = landmarks.length;
+        int vBase = v * k;
+        int tBase = target * k;
+        int best = 0;
+        for (int i = 0; i < k; i++) {
+            int lv = fromLandmark[vBase + i];
+            int lt = fromLandmark[tBase + i];
+            int vl = toLandmark[vBase + i];
+            int tl = toLandmark[tBase + i];
+            if (lv != INFINITY && lt == INFINITY) {
+                return INFINITY; // L reaches v but not target
+            }
+            if (vl == INFINITY && tl != INFINITY) {
+                return INFINITY; // target reaches L but v does not
+            }
+            if (lv != INFINITY && lt - lv > best) {
+                best = lt - lv;
+            }
+            if (vl != INFINITY && tl != INFINITY && vl - tl > best) {
+                best = vl - tl;
+            }
+        }
+        return best;
+    }
+
+    // -------------------------------------------------------------
+    // Binary file: magic, version, vertex count, landmark count, graph
+    // fingerprint, landmark ids, both tables, then the CRC32C of the ids
+    // and tables. Little-endian ints.
+    // -------------------------------------------------------------
+    void save(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(vertexCount).putInt(landmarks.length).putLong(graphFingerprint);
+            header.flip();
+            writeFully(channel, header);
+            CRC32C crc = new CRC32C();
+            writeInts(channel, landmarks, crc);
+            writeInts(channel, fromLandmark, crc);
+            writeInts(channel, toLandmark, crc);
+            ByteBuffer checksum = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            checksum.putInt((int) crc.getValue()).flip();
+            writeFully(channel, checksum);
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Reads a file written by save() for this graph. The counts are
+    // checked against the file size before anything is allocated, and the
+    // ids and checksum before the tables are used: a damaged table would
+    // not fail, it would make the heuristic overestimate and ALT return
+    // paths that are not shortest.
+    // -------------------------------------------------------------
+    static Landmarks load(String filename, CompressedGraph graph) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("not a landmark file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported landmark file version " + version);
+            }
+            int n = header.getInt();
+            int k = header.getInt();
+            long fingerprint = header.getLong();
+            if (n != graph.vertexCount() || fingerprint != graph.fingerprint()) {
+                throw new IOException("landmarks were computed for a different graph");
+            }
+            if (k <= 0 || k > n || (long) n * k > Integer.MAX_VALUE - 8) {
+                throw new IOException("corrupt landmark count " + k);
+            }
+            long expected = HEADER_SIZE + 4L * (k + 2L * n * k) + Integer.BYTES;
+            if (channel.size() != expected) {
+                throw new IOException("landmark file is " + channel.size() + " bytes, expected " + expected);
+            }
+            CRC32C crc = new CRC32C();
+            int[] chosen = readInts(channel, k, crc);
+            for (int landmark : chosen) {
+                if (landmark < 0 || landmark >= n) {
+                    throw new IOException("corrupt landmark id " + landmark);
+                }
+            }
+            int[] from = readInts(channel, n * k, crc);
+            int[] to = readInts(channel, from.length, crc);
+            ByteBuffer checksum = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, checksum);
+            if (checksum.getInt(0) != (int) crc.getValue()) {
+                throw new IOException("landmark checksum mismatch");
+            }
+            return new Landmarks(n, chosen, from, to, fingerprint);
+        }
+    }
+
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private static void writeInts(FileChannel channel, int[] values, CRC32C crc) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        IntBuffer ints = buffer.asIntBuffer();
+        for (int i = 0; i < values.length; i += ints.capacity()) {
+            int len = Math.min(ints.capacity(), values.length - i);
+            ints.clear();
+            ints.put(values, i, len);
+            buffer.clear().limit(len * Integer.BYTES);
+            crc.update(buffer.duplicate());
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static int[] readInts(FileChannel channel, int count, CRC32C crc) throws IOException {
+        int[] values = new int[count];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        IntBuffer ints = buffer.asIntBuffer();
+        for (int i = 0; i < count; i += ints.capacity()) {
+            int len = Math.min(ints.capacity(), count - i);
+            buffer.clear().limit(len * Integer.BYTES);
+            readFully(channel, buffer);
+            crc.update(buffer.flip());
+            ints.clear();
+            ints.get(values, i, len);
+        }
+        return values;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+    }
+}
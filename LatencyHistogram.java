@@ -0,0 +1,101 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// -------------------------------------------------------------
+// LatencyHistogram
+// Lock-free histogram of durations in nanoseconds. Values below 16 get
+// a bucket each; above that every power of two is split into 8 buckets,
+// so a percentile is reported within 12.5% of the true value while the
+// whole range up to Long.MAX_VALUE fits in 488 counters. Every counter
+// is a LongAdder, which spreads concurrent increments over per-thread
+// cells once they contend and sums the cells on read, so threads
+// recording at the same time do not fight over one cache line. After
+// those cells exist recording never allocates, so it can sit on every
+// request path.
+// -------------------------------------------------------------
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 8;
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[bucket(nanos)].increment();
+        count.increment();
+        sum.add(nanos);
+        // Only a new maximum writes the shared field.
+        if (nanos > max.get()) {
+            max.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    double meanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    long maxNanos() {
+        return max.get();
+    }
+
+    // Upper bound of the bucket holding the given quantile (0..1); 0 when
+    // nothing was recorded. Concurrent records may or may not be counted.
+    long percentileNanos(double quantile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int bucket(long v) {
+        if (v < LINEAR) {
+            return (int) v;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    // Largest value that falls into bucket i.
+    private static long upperBound(int i) {
+        if (i < LINEAR) {
+            return i;
+        }
+        int exponent = (i - LINEAR) / SUB_BUCKETS + 4;
+        long sub = (i - LINEAR) % SUB_BUCKETS;
+        long low = (SUB_BUCKETS + sub) << (exponent - 3);
+        return low + (1L << (exponent - 3)) - 1;
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+// -------------------------------------------------------------
+// LazyIndex
+// A value built once, on first use, and then shared by every thread.
+// The first caller installs a FutureTask with one compare-and-set and
+// runs it on its own thread; callers arriving meanwhile wait for that
+// task rather than build a second copy. Waiting parks the thread (no
+// monitor is held), so a virtual thread waiting here gives up its
+// carrier. Once built, get() costs two volatile reads.
+//
+// A build that throws is taken out again, so the next caller retries;
+// the callers that were waiting for it see the same exception.
+// -------------------------------------------------------------
+final class LazyIndex<T> {
+
+    private final AtomicReference<FutureTask<T>> task = new AtomicReference<>();
+
+    LazyIndex() {
+    }
+
+    // Already built, e.g. handed over from an earlier snapshot; null
+    // leaves it to be built on first use.
+    LazyIndex(T value) {
+        if (value != null) {
+            FutureTask<T> done = new FutureTask<>(() -> value);
+            done.run();
+            task.set(done);
+        }
+    }
+
+    // The value, built by build if nobody has yet.
+    T get(Callable<T> build) {
+        while (true) {
+            FutureTask<T> current = task.get();
+            if (current != null) {
+                return await(current);
+            }
+            FutureTask<T> next = new FutureTask<>(build);
+            if (task.compareAndSet(null, next)) {
+                return run(next, null);
+            }
+        }
+    }
+
+    // Replaces stale, the current value, by what rebuild returns. If
+    // another thread already replaced it, returns that value instead.
+    T replace(T stale, Callable<T> rebuild) {
+        while (true) {
+            FutureTask<T> current = task.get();
+            T value = await(current);
+            if (value != stale) {
+                return value;
+            }
+            FutureTask<T> next = new FutureTask<>(rebuild);
+            if (task.compareAndSet(current, next)) {
+                return run(next, current);
+            }
+        }
+    }
+
+    // The value if it has been built, else null; never builds or waits.
+    T ifBuilt() {
+        FutureTask<T> current = task.get();
+        if (current == null || !current.isDone()) {
+            return null;
+        }
+        try {
+            return await(current);
+        } catch (RuntimeException | Error e) {
+            return null;
+        }
+    }
+
+    private T run(FutureTask<T> next, FutureTask<T> previous) {
+        next.run();
+        try {
+            return await(next);
+        } catch (RuntimeException | Error e) {
+            task.compareAndSet(next, previous);
+            throw e;
+        }
+    }
+
+    // FutureTask.get without the checked exceptions. An interrupt does not
+    // abandon the wait, since the value is needed either way; the flag is
+    // set again afterwards.
+    private static <T> T await(FutureTask<T> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
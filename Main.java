@@ -1,10 +1,94 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
 import java.util.Scanner;
 
 public class Main {
+
+    private static final long PATH_COUNT_TIME_LIMIT_MILLIS = 10_000;
+    private static final int DEFAULT_PORT = 8080;
+
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
         Graph graph = new Graph();
-        graph.ReadGraphFromFile("graph.txt");
+        // "--parallel" parses the graph file on all cores, "--snapshot <file>"
+        // opens a binary snapshot instead of graph.txt and "--write-snapshot
+        // <file>" saves the graph as one after loading. "--batch <file>" answers
+        // the queries in file (see BatchQueryRunner) instead of showing the
+        // menu, writing the results to "--out <file>" or standard output.
+        // "--serve [port]" runs GraphServer (port 8080 by default) instead;
+        // "--ch" prepares the contraction hierarchy its mode=CH queries use.
+        boolean parallel = false;
+        String snapshot = null;
+        String writeSnapshot = null;
+        String batch = null;
+        String out = null;
+        int serve = -1;
+        boolean hierarchy = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--parallel")) {
+                parallel = true;
+            } else if (args[i].equals("--snapshot") && i + 1 < args.length) {
+                snapshot = args[++i];
+            } else if (args[i].equals("--write-snapshot") && i + 1 < args.length) {
+                writeSnapshot = args[++i];
+            } else if (args[i].equals("--batch") && i + 1 < args.length) {
+                batch = args[++i];
+            } else if (args[i].equals("--out") && i + 1 < args.length) {
+                out = args[++i];
+            } else if (args[i].equals("--ch")) {
+                hierarchy = true;
+            } else if (args[i].equals("--serve")) {
+                serve = DEFAULT_PORT;
+                if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                    serve = Integer.parseInt(args[++i]);
+                }
+            }
+        }
+        // Operation metrics are readable over JMX while the program runs,
+        // and menu option 13 prints them.
+        if (GraphMetrics.isEnabled()) {
+            GraphMetrics.registerMBeans();
+        }
+        if (snapshot != null) {
+            graph.ReadSnapshot(snapshot);
+        } else {
+            graph.ReadGraphFromFile("graph.txt", parallel);
+        }
+        if (writeSnapshot != null) {
+            graph.WriteSnapshot(writeSnapshot);
+        }
+        if (batch != null) {
+            // Standard output may carry the results, so reports go to stderr.
+            if (graph.LastLoadReport() != null) {
+                System.err.println(graph.LastLoadReport());
+            }
+            runBatch(graph, batch, out);
+            return;
+        }
+        if (graph.LastLoadReport() != null) {
+            System.out.println(graph.LastLoadReport());
+        }
+        if (serve >= 0) {
+            if (hierarchy) {
+                graph.PrepareContractionHierarchy();
+            }
+            try {
+                GraphServer server = new GraphServer(new GraphQueryService(graph.Snapshot()), serve);
+                server.start();
+                System.out.println("Serving on http://localhost:" + server.port() + "/");
+            } catch (IOException e) {
+                System.out.println("Error starting server: " + e.getMessage());
+            }
+            // The server's threads keep the JVM running.
+            return;
+        }
         boolean cont = false;
         while (!cont) {
             printMenu();
@@ -46,10 +130,11 @@ public class Main {
                     String spSource = scanner.nextLine().trim();
                     System.out.print("Enter destination vertex for shortest path: ");
                     String spDest = scanner.nextLine().trim();
-                    int shortestPathLength = graph.WhatIsShortestPathLength(spSource, spDest);
-                    if (shortestPathLength != -1) {
+                    PathResult shortestPath = graph.ShortestPath(spSource, spDest);
+                    if (shortestPath.found()) {
                         System.out.println("Shortest path length from " + spSource + " to " + spDest + " is: "
-                                + shortestPathLength);
+                                + shortestPath.distance());
+                        System.out.println("Shortest path: " + shortestPath);
                     } else {
                         System.out.println("No path found from " + spSource + " to " + spDest + ".");
                     }
@@ -59,7 +144,9 @@ public class Main {
                     String pathSource = scanner.nextLine().trim();
                     System.out.print("Enter destination vertex to count paths: ");
                     String pathDest = scanner.nextLine().trim();
-                    int numberOfPaths = graph.NumberOfSimplePaths(pathSource, pathDest);
+                    // Exact counts can take exponentially long on cyclic graphs.
+                    PathCountResult numberOfPaths = graph.CountSimplePaths(pathSource, pathDest, -1,
+                            PATH_COUNT_TIME_LIMIT_MILLIS);
                     System.out.println(
                             "Number of simple paths from " + pathSource + " to " + pathDest + " is: " + numberOfPaths);
                     break;
@@ -96,14 +183,33 @@ public class Main {
                 case "12":
                     cont = true;
                     break;
+                case "13":
+                    System.out.println(GraphMetrics.dump());
+                    break;
                 default:
-                    System.out.println("Invalid choice. Please select a valid option (1-11).");
+                    System.out.println("Invalid choice. Please select a valid option (1-13).");
             }
             System.out.println("---------------------------------------------");
         }
         scanner.close();
     }
 
+    private static void runBatch(Graph graph, String batch, String out) {
+        BatchQueryRunner runner = new BatchQueryRunner(new GraphQueryService(graph.Snapshot()),
+                batch.toLowerCase(Locale.ROOT).endsWith(".csv"));
+        long start = System.nanoTime();
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(batch), StandardCharsets.UTF_8);
+                Writer writer = out != null ? Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)
+                        : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            runner.run(in, writer);
+        } catch (IOException e) {
+            System.err.println("Error running batch: " + e.getMessage());
+            return;
+        }
+        System.err.printf("Answered %d queries (%d rejected) in %.1f ms%n", runner.answered(), runner.failed(),
+                (System.nanoTime() - start) / 1e6);
+    }
+
     final static void printMenu() {
         System.out.println("Please select an operation:");
         System.out.println("1. Check if the graph is directed");
@@ -118,5 +224,6 @@ public class Main {
         System.out.println("10. Check if there's a cycle involving a vertex");
         System.out.println("11. Find the number of vertices in a vertex's connected component");
         System.out.println("12. Exit");
+        System.out.println("13. Show operation metrics");
     }
 }
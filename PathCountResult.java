@@ -0,0 +1,49 @@
+import java.math.BigInteger;
+
+// -------------------------------------------------------------
+// PathCountResult
+// Number of simple paths found by a path count, and how it was found.
+// When a time limit cut the count short, isExact() is false and count()
+// is only a lower bound.
+// -------------------------------------------------------------
+public final class PathCountResult {
+
+    public enum Method {
+        // Source equals target, or no path can exist.
+        TRIVIAL,
+        // Dynamic programming over the acyclic part of the graph that
+        // lies between source and target.
+        DYNAMIC_PROGRAMMING,
+        // Backtracking enumeration, because that part contains cycles.
+        ENUMERATION
+    }
+
+    static final PathCountResult NONE = new PathCountResult(BigInteger.ZERO, true, Method.TRIVIAL);
+
+    private final BigInteger count;
+    private final boolean exact;
+    private final Method method;
+
+    PathCountResult(BigInteger count, boolean exact, Method method) {
+        this.count = count;
+        this.exact = exact;
+        this.method = method;
+    }
+
+    public BigInteger count() {
+        return count;
+    }
+
+    public boolean isExact() {
+        return exact;
+    }
+
+    public Method method() {
+        return method;
+    }
+
+    @Override
+    public String toString() {
+        return exact ? count.toString() : "at least " + count + " (time limit reached)";
+    }
+}
@@ -0,0 +1,481 @@
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+// -------------------------------------------------------------
+// PathCounter
+// Counts simple paths (no vertex twice, parallel edges distinct) from a
+// source to a target, optionally with at most maxDepth edges.
+//
+// Only vertices that lie on some source -> target walk matter: those the
+// source reaches without passing the target and that can reach the
+// target, within the depth limit. If that relevant subgraph has no cycle
+// (edges into the source and out of the target are ignored, since no
+// simple path uses them), every walk is a simple path and the count is a
+// dynamic program over a topological order, exact and linear in the size
+// of the subgraph (times maxDepth when a depth limit applies). The count
+// is kept in a long and redone with BigInteger if it overflows.
+//
+// Otherwise the paths are enumerated with backtracking, one fork-join
+// task per distinct first hop, each with its own TraversalEngine and its
+// own counter. A time limit stops every task; the result then is a lower
+// bound.
+//
+// With a depth limit, the hop distances to the target are only searched
+// up to the limit, so a short count stays near the source and target
+// however large the graph. The O(V) arrays behind a count are kept per
+// thread and epoch-stamped like the TraversalEngine marks, so they are
+// allocated once rather than per count.
+//
+// A PathCounter is thread-safe; it keeps one TraversalEngine and one
+// set of scratch arrays per thread. retarget() moves it to a changed
+// graph between counts; each thread's engine and scratch follow on their
+// next use.
+// -------------------------------------------------------------
+final class PathCounter {
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private CompressedGraph graph;
+    private CompressedGraph reverse;
+    private final ThreadLocal<TraversalEngine> engines;
+    private final ThreadLocal<Scratch> scratches;
+    // Vertices visited and edges scanned by all counts so far, on all threads.
+    private final LongAdder visitedVertices = new LongAdder();
+    private final LongAdder scannedEdges = new LongAdder();
+
+    // reverse must be graph.reverse().
+    PathCounter(CompressedGraph graph, CompressedGraph reverse) {
+        this.graph = graph;
+        this.reverse = reverse;
+        this.engines = ThreadLocal.withInitial(() -> new TraversalEngine(this.graph));
+        this.scratches = ThreadLocal.withInitial(() -> new Scratch(this.graph.vertexCount()));
+    }
+
+    // Counts on graph and reverse from now on; not while a count runs.
+    void retarget(CompressedGraph graph, CompressedGraph reverse) {
+        this.graph = graph;
+        this.reverse = reverse;
+    }
+
+    // maxDepth < 0 means no depth limit, timeLimitMillis <= 0 no time limit.
+    PathCountResult count(int source, int target, int maxDepth, long timeLimitMillis) {
+        if (source == target) {
+            return new PathCountResult(BigInteger.ONE, true, PathCountResult.Method.TRIVIAL);
+        }
+        int limit = maxDepth < 0 ? INFINITY : maxDepth;
+        Scratch scratch = scratches.get();
+        int n = graph.vertexCount();
+        if (scratch.capacity() < n) {
+            scratch = new Scratch(Math.max(n, scratch.capacity() + (scratch.capacity() >> 1)));
+            scratches.set(scratch);
+        }
+        if (scratch.inUse) {
+            // A count run by this thread while it waits for its own tasks.
+            scratch = new Scratch(graph.vertexCount());
+        }
+        scratch.inUse = true;
+        try {
+            return count(scratch, source, target, limit, timeLimitMillis);
+        } finally {
+            scratch.inUse = false;
+        }
+    }
+
+    private PathCountResult count(Scratch scratch, int source, int target, int limit, long timeLimitMillis) {
+        Hops hops = hopsTo(scratch, target, limit);
+        if (hops.get(source) > limit) {
+            return PathCountResult.NONE;
+        }
+        Subgraph relevant = new Subgraph(graph, scratch, source, target, hops, limit);
+        visitedVertices.add(relevant.size);
+        scannedEdges.add(relevant.targets.length);
+        int[] order = relevant.topologicalOrder();
+        if (order != null) {
+            BigInteger count;
+            try {
+                count = BigInteger.valueOf(relevant.countLong(order, limit));
+            } catch (ArithmeticException overflow) {
+                count = relevant.countBig(order, limit);
+            }
+            return new PathCountResult(count, true, PathCountResult.Method.DYNAMIC_PROGRAMMING);
+        }
+        return enumerate(scratch, source, target, hops, limit, timeLimitMillis);
+    }
+
+    long visitedVertices() {
+        return visitedVertices.sum();
+    }
+
+    long scannedEdges() {
+        return scannedEdges.sum();
+    }
+
+    // Breadth-first hop distance to target from every vertex within limit
+    // hops of it; INFINITY for the others.
+    private Hops hopsTo(Scratch scratch, int target, int limit) {
+        Hops hops = scratch.hops;
+        hops.nextEpoch();
+        int[] queue = scratch.queue;
+        int head = 0;
+        int tail = 0;
+        hops.set(target, 0);
+        queue[tail++] = target;
+        long edges = 0;
+        while (head < tail) {
+            int v = queue[head++];
+            int next = hops.get(v) + 1;
+            if (next > limit) {
+                break; // BFS order: every vertex still queued is as far
+            }
+            edges += reverse.degree(v);
+            for (int e = reverse.begin(v); e < reverse.end(v); e++) {
+                int u = reverse.target(e);
+                if (hops.get(u) == INFINITY) {
+                    hops.set(u, next);
+                    queue[tail++] = u;
+                }
+            }
+        }
+        visitedVertices.add(tail);
+        scannedEdges.add(edges);
+        return hops;
+    }
+
+    private PathCountResult enumerate(Scratch scratch, int source, int target, Hops hops, int limit,
+            long timeLimitMillis) {
+        long deadline = 0;
+        if (timeLimitMillis > 0) {
+            deadline = System.nanoTime() + timeLimitMillis * 1_000_000L;
+            if (deadline == 0) {
+                deadline = 1;
+            }
+        }
+
+        // One task per distinct first hop; parallel edges only multiply its count.
+        BigInteger total = BigInteger.ZERO;
+        List<FirstHopTask> tasks = new ArrayList<>();
+        // Edges per first hop, counted in the local array of the scratch,
+        // which the subgraph is done with.
+        int[] hopEdges = scratch.local;
+        int[] counted = scratch.localStamp;
+        int epoch = scratch.nextLocalEpoch();
+        for (int e = graph.begin(source); e < graph.end(source); e++) {
+            int first = graph.target(e);
+            if (counted[first] != epoch) {
+                counted[first] = epoch;
+                hopEdges[first] = 0;
+            }
+            hopEdges[first]++;
+        }
+        for (int e = graph.begin(source); e < graph.end(source); e++) {
+            int first = graph.target(e);
+            int multiplicity = hopEdges[first];
+            if (multiplicity == 0 || first == source || hops.get(first) > limit - 1) {
+                continue;
+            }
+            hopEdges[first] = 0;
+            if (first == target) {
+                total = total.add(BigInteger.valueOf(multiplicity));
+            } else {
+                FirstHopTask task = new FirstHopTask(source, first, target, multiplicity, limit - 1, deadline, hops);
+                tasks.add(task);
+                ForkJoinPool.commonPool().execute(task);
+            }
+        }
+
+        boolean exact = true;
+        for (FirstHopTask task : tasks) {
+            total = total.add(task.join());
+            exact &= !task.timedOut;
+        }
+        return new PathCountResult(total, exact, PathCountResult.Method.ENUMERATION);
+    }
+
+    // Counts the paths that start with source -> first (times the number of
+    // such edges), with its own counter and the engine of its thread.
+    private final class FirstHopTask extends RecursiveTask<BigInteger> {
+        private static final long serialVersionUID = 1L;
+
+        private final int source;
+        private final int first;
+        private final int target;
+        private final int multiplicity;
+        private final int maxDepth;
+        private final long deadline;
+        private final Hops hops;
+        // Written before the task completes, read after join().
+        boolean timedOut;
+
+        FirstHopTask(int source, int first, int target, int multiplicity, int maxDepth, long deadline, Hops hops) {
+            this.source = source;
+            this.first = first;
+            this.target = target;
+            this.multiplicity = multiplicity;
+            this.maxDepth = maxDepth;
+            this.deadline = deadline;
+            this.hops = hops;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            TraversalEngine engine = engines.get();
+            if (engine.graph() != graph) {
+                engine.retarget(graph);
+            }
+            long vertices = engine.visitedVertices();
+            long edges = engine.scannedEdges();
+            long count = engine.countSimplePaths(first, target, maxDepth, deadline, source, hops);
+            timedOut = engine.timedOut();
+            visitedVertices.add(engine.visitedVertices() - vertices);
+            scannedEdges.add(engine.scannedEdges() - edges);
+            return BigInteger.valueOf(count).multiply(BigInteger.valueOf(multiplicity));
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Hop distances to the target of the current count, valid where
+    // stamped with the current epoch and INFINITY elsewhere. Written by
+    // one thread, then only read, by the enumeration tasks too.
+    // -------------------------------------------------------------
+    static final class Hops {
+        private final int[] hops;
+        private final int[] stamp;
+        private int epoch;
+
+        Hops(int n) {
+            hops = new int[n];
+            stamp = new int[n];
+        }
+
+        int get(int v) {
+            return stamp[v] == epoch ? hops[v] : INFINITY;
+        }
+
+        void set(int v, int h) {
+            hops[v] = h;
+            stamp[v] = epoch;
+        }
+
+        void nextEpoch() {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                epoch = 1;
+            }
+        }
+    }
+
+    // -------------------------------------------------------------
+    // The O(V) arrays of one count, reused by the next count on the same
+    // thread. local[v] is valid where localStamp[v] == localEpoch.
+    // -------------------------------------------------------------
+    private static final class Scratch {
+        final Hops hops;
+        final int[] queue;
+        final int[] local;
+        final int[] localStamp;
+        final int[] vertices;
+        final int[] depth;
+        int localEpoch;
+        boolean inUse;
+
+        Scratch(int n) {
+            hops = new Hops(n);
+            queue = new int[n];
+            local = new int[n];
+            localStamp = new int[n];
+            vertices = new int[n];
+            depth = new int[n];
+        }
+
+        int capacity() {
+            return queue.length;
+        }
+
+        // Local id of v in the current subgraph, or -1.
+        int local(int v) {
+            return localStamp[v] == localEpoch ? local[v] : -1;
+        }
+
+        int nextLocalEpoch() {
+            if (++localEpoch == Integer.MAX_VALUE) {
+                Arrays.fill(localStamp, 0);
+                localEpoch = 1;
+            }
+            return localEpoch;
+        }
+    }
+
+    // -------------------------------------------------------------
+    // The relevant subgraph with local vertex ids, as a small CSR.
+    // -------------------------------------------------------------
+    private static final class Subgraph {
+        final int size;
+        final int source;
+        final int target;
+        final int[] offsets;
+        final int[] targets;
+
+        Subgraph(CompressedGraph graph, Scratch scratch, int globalSource, int globalTarget, Hops hops, int limit) {
+            // Breadth-first from the source, entering only vertices that can
+            // still reach the target within the limit, and not leaving the target.
+            int[] local = scratch.local;
+            int[] localStamp = scratch.localStamp;
+            int epoch = scratch.nextLocalEpoch();
+            int[] vertices = scratch.vertices;
+            int[] depth = scratch.depth;
+            int count = 0;
+            local[globalSource] = count;
+            localStamp[globalSource] = epoch;
+            depth[count] = 0;
+            vertices[count++] = globalSource;
+            for (int head = 0; head < count; head++) {
+                int u = vertices[head];
+                if (u == globalTarget) {
+                    continue;
+                }
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int v = graph.target(e);
+                    int h = hops.get(v);
+                    if (localStamp[v] != epoch && h != INFINITY && (long) depth[head] + 1 + h <= limit) {
+                        depth[count] = depth[head] + 1;
+                        local[v] = count;
+                        localStamp[v] = epoch;
+                        vertices[count++] = v;
+                    }
+                }
+            }
+
+            size = count;
+            source = scratch.local(globalSource);
+            target = scratch.local(globalTarget);
+            // Edges between relevant vertices, minus self-loops, edges into the
+            // source and edges out of the target.
+            offsets = new int[count + 1];
+            for (int i = 0; i < count; i++) {
+                offsets[i + 1] = offsets[i];
+                if (i == target) {
+                    continue;
+                }
+                int u = vertices[i];
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    if (keep(scratch.local(graph.target(e)), i)) {
+                        offsets[i + 1]++;
+                    }
+                }
+            }
+            targets = new int[offsets[count]];
+            for (int i = 0; i < count; i++) {
+                if (i == target) {
+                    continue;
+                }
+                int u = vertices[i];
+                int slot = offsets[i];
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int w = scratch.local(graph.target(e));
+                    if (keep(w, i)) {
+                        targets[slot++] = w;
+                    }
+                }
+            }
+        }
+
+        private boolean keep(int w, int from) {
+            return w >= 0 && w != source && w != from;
+        }
+
+        // Kahn's algorithm; null if the subgraph has a cycle.
+        int[] topologicalOrder() {
+            int[] inDegree = new int[size];
+            for (int w : targets) {
+                inDegree[w]++;
+            }
+            int[] order = new int[size];
+            int tail = 0;
+            for (int v = 0; v < size; v++) {
+                if (inDegree[v] == 0) {
+                    order[tail++] = v;
+                }
+            }
+            for (int head = 0; head < tail; head++) {
+                int v = order[head];
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    if (--inDegree[targets[e]] == 0) {
+                        order[tail++] = targets[e];
+                    }
+                }
+            }
+            return tail == size ? order : null;
+        }
+
+        // Paths from source to target; throws ArithmeticException on overflow.
+        long countLong(int[] order, int limit) {
+            if (limit >= size - 1) {
+                // No path in a DAG of this size can exceed the limit.
+                long[] ways = new long[size];
+                for (int i = size - 1; i >= 0; i--) {
+                    int v = order[i];
+                    long sum = v == target ? 1 : 0;
+                    for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                        sum = Math.addExact(sum, ways[targets[e]]);
+                    }
+                    ways[v] = sum;
+                }
+                return ways[source];
+            }
+            // Layered: ways[v] = paths from v to target with at most k edges.
+            long[] ways = new long[size];
+            long[] next = new long[size];
+            ways[target] = 1;
+            for (int k = 1; k <= limit; k++) {
+                for (int v = 0; v < size; v++) {
+                    long sum = v == target ? 1 : 0;
+                    for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                        sum = Math.addExact(sum, ways[targets[e]]);
+                    }
+                    next[v] = sum;
+                }
+                long[] t = ways;
+                ways = next;
+                next = t;
+            }
+            return ways[source];
+        }
+
+        // The same as countLong, without overflow.
+        BigInteger countBig(int[] order, int limit) {
+            BigInteger[] ways = new BigInteger[size];
+            Arrays.fill(ways, BigInteger.ZERO);
+            if (limit >= size - 1) {
+                for (int i = size - 1; i >= 0; i--) {
+                    int v = order[i];
+                    BigInteger sum = v == target ? BigInteger.ONE : BigInteger.ZERO;
+                    for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                        sum = sum.add(ways[targets[e]]);
+                    }
+                    ways[v] = sum;
+                }
+                return ways[source];
+            }
+            BigInteger[] next = new BigInteger[size];
+            ways[target] = BigInteger.ONE;
+            for (int k = 1; k <= limit; k++) {
+                for (int v = 0; v < size; v++) {
+                    BigInteger sum = v == target ? BigInteger.ONE : BigInteger.ZERO;
+                    for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                        sum = sum.add(ways[targets[e]]);
+                    }
+                    next[v] = sum;
+                }
+                BigInteger[] t = ways;
+                ways = next;
+                next = t;
+            }
+            return ways[source];
+        }
+    }
+}
@@ -0,0 +1,57 @@
+import java.util.Collections;
+import java.util.List;
+
+// -------------------------------------------------------------
+// PathResult
+// A path returned by a query: its vertices (names), the weight of each
+// edge between them and the total distance. toString() prints it in the
+// usual "A -3-> B -1-> C" form.
+// -------------------------------------------------------------
+public final class PathResult {
+
+    static final PathResult NOT_FOUND = new PathResult(-1, Collections.emptyList(), new int[0]);
+
+    private final int distance;
+    private final List<String> vertices;
+    private final int[] weights;
+
+    PathResult(int distance, List<String> vertices, int[] weights) {
+        this.distance = distance;
+        this.vertices = Collections.unmodifiableList(vertices);
+        this.weights = weights;
+    }
+
+    public boolean found() {
+        return !vertices.isEmpty();
+    }
+
+    // Sum of the edge weights, or -1 if no path was found.
+    public int distance() {
+        return distance;
+    }
+
+    public List<String> vertices() {
+        return vertices;
+    }
+
+    // Weight of the edge between vertices().get(i) and vertices().get(i + 1).
+    public int weight(int i) {
+        return weights[i];
+    }
+
+    public int edgeCount() {
+        return weights.length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder pathStr = new StringBuilder();
+        for (int i = 0; i < vertices.size(); i++) {
+            pathStr.append(vertices.get(i));
+            if (i < weights.length) {
+                pathStr.append(" -").append(weights[i]).append("-> ");
+            }
+        }
+        return pathStr.toString();
+    }
+}
@@ -0,0 +1,606 @@
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+// -------------------------------------------------------------
+// QueryCache
+// Bounded, thread-safe cache of reachability and distance answers, keyed
+// by (operation, v1, v2) and tagged with the version of the graph they
+// were computed on: a lookup under another version finds nothing. The
+// first answer stored under a newer version drops the older entries;
+// answers still arriving from queries on an older version are not
+// stored, so they cannot wipe out the newer ones.
+//
+// Pairs live in STRIPES open-addressing tables of primitive keys and
+// values, so a lookup never allocates. Lookups take no lock: they read a
+// stripe optimistically under its StampedLock and only retry under the
+// read lock if a store overlapped them. Stores take the stripe's write
+// lock. A full stripe evicts by CLOCK, which approximates LRU, and
+// admits a new pair only if a TinyLFU frequency sketch has seen it more
+// often than the pair it would evict. Thus one-off queries do not flush
+// the hot origin/destination pairs.
+//
+// A source that misses HOT_SOURCE distance queries under one version gets
+// its whole single-source distance tree cached, and every later query
+// from it under that version is a lookup. The tree is built on a
+// background thread (see becameHot), so a point query never pays for a
+// whole Dijkstra; the counts start over with every version, so a graph
+// that changes between queries does not keep rebuilding trees. The
+// trees sit in a small table that is replaced, not changed, when a tree
+// is added, so reading it takes no lock; the least recently used trees
+// are evicted. Half of the byte budget goes to pairs, half to trees.
+//
+// Answers are raw: a distance is ShortestPathEngine.INFINITY when there
+// is no path, and reachability is 1 or 0.
+//
+// A cache of 0 bytes is off and computes every query. DEFAULT_BYTES is 0
+// under "-Dpro3.cache=false", which turns off the caches of Graph and
+// GraphQueryService, e.g. to time the searches themselves.
+// -------------------------------------------------------------
+final class QueryCache {
+
+    static final int REACHABLE = 0;
+    static final int DISTANCE = 1;
+    static final int MISS = Integer.MIN_VALUE;
+    static final long DEFAULT_BYTES = "false".equals(System.getProperty("pro3.cache")) ? 0 : 32L << 20;
+
+    static final int HOT_SOURCE = 8;
+    private static final int STRIPES = 16;
+    private static final int MISS_SLOTS = 1024;
+    // Key, value and CLOCK bit per slot, half the slots in use, and four
+    // sketch counters per entry.
+    private static final int BYTES_PER_ENTRY = 2 * (8 + 4 + 1) + 4;
+    private static final long EMPTY = -1L; // operation 3, never a real key
+
+    private static final AtomicReferenceFieldUpdater<Stripe, FrequencySketch> SKETCH = AtomicReferenceFieldUpdater
+            .newUpdater(Stripe.class, FrequencySketch.class, "sketch");
+
+    private final boolean enabled;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long treeBytes;
+    private final Executor treeBuilder;
+    private final ReentrantLock treeLock = new ReentrantLock();
+    private volatile Trees trees = new Trees(0, new int[0], new int[0][], new long[0]);
+    // Distance misses per source under missVersion, guarded by treeLock.
+    // An open-addressing table that starts over when it is 3/4 full.
+    private volatile long missVersion;
+    private final int[] missSources = new int[MISS_SLOTS];
+    private final int[] missCounts = new int[MISS_SLOTS];
+    private int missSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder treeHits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    QueryCache(long maxBytes) {
+        this(maxBytes, TreeBuilder.INSTANCE);
+    }
+
+    // Distance trees are built by the tasks given to treeBuilder.
+    QueryCache(long maxBytes, Executor treeBuilder) {
+        this.treeBuilder = treeBuilder;
+        Arrays.fill(missSources, -1);
+        enabled = maxBytes > 0;
+        long perStripe = Math.max(1, maxBytes / 2 / STRIPES / BYTES_PER_ENTRY);
+        int entries = (int) Math.min(1 << 24, Long.highestOneBit(perStripe));
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(Math.max(entries, 4));
+        }
+        treeBytes = maxBytes / 2;
+    }
+
+    // -------------------------------------------------------------
+    // Whether b is reachable from a, from the cache or else from search.
+    // -------------------------------------------------------------
+    boolean reachable(long version, FrontierSearch search, int a, int b) {
+        if (!enabled) {
+            return search.reachable(a, b);
+        }
+        int cached = get(version, REACHABLE, a, b);
+        if (cached != MISS) {
+            return cached == 1;
+        }
+        boolean found = search.reachable(a, b);
+        put(version, REACHABLE, a, b, found ? 1 : 0);
+        return found;
+    }
+
+    // -------------------------------------------------------------
+    // Distance from a to b (INFINITY if none), from the cache or else from
+    // a bidirectional search of engine. The miss that makes a hot source
+    // hands the source's whole tree to the background builder.
+    // -------------------------------------------------------------
+    int distance(long version, ShortestPathEngine engine, int vertexCount, int a, int b) {
+        if (!enabled) {
+            return engine.bidirectionalDistance(a, b);
+        }
+        int distance = get(version, DISTANCE, a, b);
+        if (distance != MISS) {
+            return distance;
+        }
+        distance = engine.bidirectionalDistance(a, b);
+        put(version, DISTANCE, a, b, distance);
+        if (4L * vertexCount <= treeBytes && becameHot(version, a)) {
+            CompressedGraph forward = engine.forward();
+            CompressedGraph backward = engine.backward();
+            treeBuilder.execute(() -> buildTree(version, forward, backward, a));
+        }
+        return distance;
+    }
+
+    // -------------------------------------------------------------
+    // The cached answer of op for (a, b) under version, or MISS.
+    // -------------------------------------------------------------
+    int get(long version, int op, int a, int b) {
+        if (!enabled) {
+            return MISS;
+        }
+        int[] tree = tree(version, a);
+        if (tree != null) {
+            treeHits.increment();
+            return op == DISTANCE ? tree[b] : tree[b] == ShortestPathEngine.INFINITY ? 0 : 1;
+        }
+        long key = key(op, a, b);
+        long hash = mix(key);
+        Stripe stripe = stripe(hash);
+        stripe.sketch().increment(hash);
+        int value = stripe.get(version, key, hash);
+        (value == MISS ? misses : hits).increment();
+        return value;
+    }
+
+    void put(long version, int op, int a, int b, int value) {
+        if (!enabled) {
+            return;
+        }
+        long key = key(op, a, b);
+        long hash = mix(key);
+        stripe(hash).put(version, key, hash, value);
+    }
+
+    // Counts a distance miss of source under version; true for exactly
+    // the HOT_SOURCE-th one, so each tree is asked for once per version.
+    private boolean becameHot(long version, int source) {
+        treeLock.lock();
+        try {
+            if (version < missVersion) {
+                return false;
+            }
+            if (version > missVersion || 4 * (missSize + 1) > 3 * MISS_SLOTS) {
+                Arrays.fill(missSources, -1);
+                missSize = 0;
+                missVersion = version;
+            }
+            int i = (int) mix(source) & (MISS_SLOTS - 1);
+            while (missSources[i] != -1 && missSources[i] != source) {
+                i = (i + 1) & (MISS_SLOTS - 1);
+            }
+            if (missSources[i] == -1) {
+                missSources[i] = source;
+                missCounts[i] = 0;
+                missSize++;
+            }
+            return ++missCounts[i] == HOT_SOURCE;
+        } finally {
+            treeLock.unlock();
+        }
+    }
+
+    // Runs on the tree builder. Skipped if the graph changed meanwhile.
+    private void buildTree(long version, CompressedGraph forward, CompressedGraph backward, int source) {
+        if (version < missVersion) {
+            return;
+        }
+        int[] tree = new int[forward.vertexCount()];
+        new ShortestPathEngine(forward, backward).distancesFrom(source, false, tree);
+        putTree(version, source, tree);
+    }
+
+    private Stripe stripe(long hash) {
+        return stripes[(int) (hash >>> 60) & (STRIPES - 1)];
+    }
+
+    // The cached distance tree of source, or null.
+    int[] tree(long version, int source) {
+        Trees t = trees;
+        if (t.version != version || t.sources.length == 0) {
+            return null;
+        }
+        int mask = t.sources.length - 1;
+        for (int i = (int) mix(source) & mask; t.sources[i] != -1; i = (i + 1) & mask) {
+            if (t.sources[i] == source) {
+                // Racy, but only a hint for eviction.
+                t.lastUse[i] = System.nanoTime();
+                return t.distances[i];
+            }
+        }
+        return null;
+    }
+
+    // Trees computed on an older version than the cached ones are dropped.
+    void putTree(long version, int source, int[] distances) {
+        treeLock.lock();
+        try {
+            addTree(version, source, distances);
+        } finally {
+            treeLock.unlock();
+        }
+    }
+
+    private void addTree(long version, int source, int[] distances) {
+        Trees old = trees;
+        if (version < old.version) {
+            return;
+        }
+        int count = old.version == version ? old.count : 0;
+        int[] sources = new int[count + 1];
+        int[][] kept = new int[count + 1][];
+        long[] lastUse = new long[count + 1];
+        long bytes = 4L * distances.length;
+        sources[0] = source;
+        kept[0] = distances;
+        lastUse[0] = System.nanoTime();
+        int n = 1;
+        for (int i = 0; i < old.sources.length && count > 0; i++) {
+            if (old.sources[i] != -1 && old.sources[i] != source) {
+                sources[n] = old.sources[i];
+                kept[n] = old.distances[i];
+                lastUse[n] = old.lastUse[i];
+                bytes += 4L * kept[n++].length;
+            }
+        }
+        // Evict the least recently used until the rest fits.
+        while (bytes > treeBytes && n > 1) {
+            int oldest = 1;
+            for (int i = 2; i < n; i++) {
+                if (lastUse[i] < lastUse[oldest]) {
+                    oldest = i;
+                }
+            }
+            bytes -= 4L * kept[oldest].length;
+            n--;
+            sources[oldest] = sources[n];
+            kept[oldest] = kept[n];
+            lastUse[oldest] = lastUse[n];
+            evictions.increment();
+        }
+        trees = new Trees(version, Arrays.copyOf(sources, n), Arrays.copyOf(kept, n), Arrays.copyOf(lastUse, n));
+    }
+
+    long hits() {
+        return hits.sum() + treeHits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    // Pairs not admitted because they were rarer than the pair they would evict.
+    long rejections() {
+        return rejections.sum();
+    }
+
+    int treeCount() {
+        return trees.count;
+    }
+
+    String report() {
+        if (!enabled) {
+            return "Query cache: off";
+        }
+        long h = hits();
+        long m = misses();
+        return String.format(Locale.ROOT,
+                "Query cache: %d hits (%d from %d distance trees), %d misses, %.1f%% hit rate, %d evicted, %d not admitted",
+                h, treeHits.sum(), treeCount(), m, h + m == 0 ? 0.0 : 100.0 * h / (h + m), evictions(),
+                rejections());
+    }
+
+    // -------------------------------------------------------------
+    // The default tree builder: one daemon thread, shared by all caches,
+    // that goes away when it has been idle for a while.
+    // -------------------------------------------------------------
+    private static final class TreeBuilder {
+        static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), task -> {
+                        Thread thread = new Thread(task, "pro3-distance-trees");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    // -------------------------------------------------------------
+    // An immutable open-addressing table of distance trees by source.
+    // -------------------------------------------------------------
+    private static final class Trees {
+        final long version;
+        final int count;
+        final int[] sources;
+        final int[][] distances;
+        final long[] lastUse;
+
+        Trees(long version, int[] sources, int[][] distances, long[] lastUse) {
+            this.version = version;
+            count = sources.length;
+            int capacity = count == 0 ? 0 : Integer.highestOneBit(count * 2 - 1) * 2;
+            this.sources = new int[capacity];
+            this.distances = new int[capacity][];
+            this.lastUse = new long[capacity];
+            Arrays.fill(this.sources, -1);
+            for (int j = 0; j < count; j++) {
+                int i = (int) mix(sources[j]) & (capacity - 1);
+                while (this.sources[i] != -1) {
+                    i = (i + 1) & (capacity - 1);
+                }
+                this.sources[i] = sources[j];
+                this.distances[i] = distances[j];
+                this.lastUse[i] = lastUse[j];
+            }
+        }
+    }
+
+    private static long key(int op, int a, int b) {
+        return (long) op << 62 | (long) a << 31 | b;
+    }
+
+    // SplitMix64 finalizer.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // -------------------------------------------------------------
+    // One stripe: a linear-probing table that grows up to twice
+    // maxEntries slots, and its frequency sketch. The table is changed
+    // only under the write lock; get() reads it optimistically.
+    // -------------------------------------------------------------
+    private final class Stripe {
+        final int maxEntries;
+        final StampedLock lock = new StampedLock();
+        private volatile FrequencySketch sketch;
+        long version;
+        long[] keys = new long[16];
+        int[] values = new int[16];
+        boolean[] referenced = new boolean[16];
+        int size;
+        int hand;
+
+        Stripe(int maxEntries) {
+            this.maxEntries = maxEntries;
+            Arrays.fill(keys, EMPTY);
+        }
+
+        // Created on first use, as it is allocated at its full size. The
+        // sketch outlives version changes: how often a pair is asked for
+        // says something about the workload, not about the graph.
+        FrequencySketch sketch() {
+            FrequencySketch current = sketch;
+            if (current == null) {
+                SKETCH.compareAndSet(this, null, new FrequencySketch(4 * maxEntries));
+                current = sketch;
+            }
+            return current;
+        }
+
+        // The value of key under version current, or MISS.
+        int get(long current, long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                int value = read(current, key, hash);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return read(current, key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // Without the read lock this may see a store half done, so the
+        // arrays are checked before use and the probe is bounded; get()
+        // throws such a result away. The CLOCK bit is only a hint and is
+        // set either way.
+        private int read(long current, long key, long hash) {
+            long[] k = keys;
+            int[] v = values;
+            boolean[] r = referenced;
+            if (version != current || v.length != k.length || r.length != k.length) {
+                return MISS;
+            }
+            int mask = k.length - 1;
+            int i = (int) hash & mask;
+            for (int probes = 0; probes < k.length && k[i] != EMPTY; probes++, i = (i + 1) & mask) {
+                if (k[i] == key) {
+                    if (!r[i]) {
+                        r[i] = true;
+                    }
+                    return v[i];
+                }
+            }
+            return MISS;
+        }
+
+        void put(long current, long key, long hash, int value) {
+            long stamp = lock.writeLock();
+            try {
+                if (current < version) {
+                    return; // computed on a graph that has since changed
+                }
+                if (current > version) {
+                    Arrays.fill(keys, EMPTY);
+                    size = 0;
+                    version = current;
+                }
+                insert(key, hash, value);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void insert(long key, long hash, int value) {
+            int mask = keys.length - 1;
+            for (int i = (int) hash & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+            }
+            if (size == maxEntries) {
+                int victim = victim();
+                if (sketch().frequency(hash) <= sketch().frequency(mix(keys[victim]))) {
+                    rejections.increment();
+                    return;
+                }
+                remove(victim);
+                evictions.increment();
+            } else if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            mask = keys.length - 1;
+            int i = (int) hash & mask;
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            referenced[i] = false;
+            size++;
+        }
+
+        // CLOCK: the first slot after the hand whose bit is clear; bits
+        // passed on the way are cleared.
+        private int victim() {
+            while (true) {
+                hand = (hand + 1) & (keys.length - 1);
+                if (keys[hand] != EMPTY) {
+                    if (!referenced[hand]) {
+                        return hand;
+                    }
+                    referenced[hand] = false;
+                }
+            }
+        }
+
+        // Linear-probing deletion: shifts later entries of the run back so
+        // that no lookup stops early at the hole.
+        private void remove(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            for (int i = (slot + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                int home = (int) mix(keys[i]) & mask;
+                // Move i into the hole unless its home lies cyclically in (hole, i].
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    referenced[hole] = referenced[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = EMPTY;
+            size--;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldReferenced = referenced;
+            keys = new long[oldKeys.length * 2];
+            values = new int[keys.length];
+            referenced = new boolean[keys.length];
+            Arrays.fill(keys, EMPTY);
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != EMPTY) {
+                    int i = (int) mix(oldKeys[j]) & mask;
+                    while (keys[i] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                    referenced[i] = oldReferenced[j];
+                }
+            }
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Count-min sketch of 4-bit counters, four per key. All counters are
+    // halved every 10 * width increments, so old popularity fades.
+    //
+    // Updated without any lock, as every lookup counts its key: increments
+    // racing on the same word may be lost or undone, which only makes the
+    // estimates a little low, but a counter never carries into the next.
+    // Counters at 15 are no longer written, so the hottest keys cost
+    // lookups no writes at all.
+    // -------------------------------------------------------------
+    private static final class FrequencySketch {
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int counters) {
+            int words = Math.max(1, Integer.highestOneBit(Math.max(counters, 16)) / 16);
+            table = new long[words];
+            sampleSize = 10 * words * 16;
+        }
+
+        int frequency(long hash) {
+            int min = 15;
+            for (int row = 0; row < 4; row++) {
+                int index = index(hash, row);
+                min = Math.min(min, (int) (table[index >>> 4] >>> ((index & 15) << 2)) & 15);
+            }
+            return min;
+        }
+
+        void increment(long hash) {
+            boolean added = false;
+            for (int row = 0; row < 4; row++) {
+                int index = index(hash, row);
+                int shift = (index & 15) << 2;
+                // One read: a word re-read after the check could hold a 15
+                // written meanwhile, and adding to it would carry over.
+                long word = table[index >>> 4];
+                if (((word >>> shift) & 15) != 15) {
+                    table[index >>> 4] = word + (1L << shift);
+                    added = true;
+                }
+            }
+            // >= as a racing reset may have left additions past sampleSize.
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int index(long hash, int row) {
+            long h = (hash >>> (row << 4)) * (2 * row + 1) + row;
+            return (int) (h ^ (h >>> 32)) & (table.length * 16 - 1);
+        }
+    }
+}
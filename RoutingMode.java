@@ -0,0 +1,16 @@
+// -------------------------------------------------------------
+// RoutingMode
+// Algorithm used by Graph.ShortestPath(v1, v2, mode). All modes return
+// the same distances; they differ only in how much of the graph they
+// explore and in what preprocessing they need.
+// -------------------------------------------------------------
+public enum RoutingMode {
+    // Plain Dijkstra from v1, stopping when v2 is settled.
+    DIJKSTRA,
+    // Dijkstra from both ends at once; the default.
+    BIDIRECTIONAL,
+    // A* with landmark lower bounds; see Graph.PrepareLandmarks.
+    ALT,
+    // Contraction Hierarchies; see Graph.PrepareContractionHierarchy.
+    CH
+}
@@ -0,0 +1,395 @@
+import java.util.Arrays;
+
+// -------------------------------------------------------------
+// ShortestPathEngine
+// Single-pair weighted shortest paths over a CompressedGraph: Dijkstra
+// in a one-directional and a bidirectional flavour, and landmark-guided
+// A* (ALT). Weights must be non-negative and path lengths must fit in
+// an int.
+//
+// All scratch arrays are allocated once per engine and reused: instead
+// of clearing distances before every query, each entry carries the
+// epoch of the query that wrote it, and stale entries read as infinity.
+// An engine is therefore cheap to query repeatedly, but it is not
+// thread-safe; use one engine per thread. retarget() moves an engine to
+// a changed graph and keeps its scratch arrays.
+// -------------------------------------------------------------
+final class ShortestPathEngine {
+
+    static final int INFINITY = Integer.MAX_VALUE;
+
+    private CompressedGraph forward;
+    private CompressedGraph backward;
+    private final Search forwardSearch;
+    private Search backwardSearch;
+    // wanted[v] == epoch marks a target of distancesTo not settled yet.
+    private int[] wanted;
+    private int epoch;
+
+    // Outcome of the last query, used by lastPath() / lastPathWeights().
+    private int lastSource = -1;
+    private int lastMeeting = -1;
+    private boolean lastBidirectional;
+    // Vertices settled and edges relaxed by all queries so far.
+    private long visitedVertices;
+    private long scannedEdges;
+
+    // backward must be forward.reverse(); it is only used by bidirectionalDistance.
+    ShortestPathEngine(CompressedGraph forward, CompressedGraph backward) {
+        this.forward = forward;
+        this.backward = backward;
+        this.forwardSearch = new Search(forward.vertexCount());
+    }
+
+    // Searches forward and backward from now on, e.g. the graph after an
+    // edit. The scratch arrays are kept, and grown if vertices were added.
+    void retarget(CompressedGraph forward, CompressedGraph backward) {
+        this.forward = forward;
+        this.backward = backward;
+        int n = forward.vertexCount();
+        forwardSearch.ensureCapacity(n);
+        if (backwardSearch != null) {
+            backwardSearch.ensureCapacity(n);
+        }
+        if (wanted != null && wanted.length < n) {
+            wanted = Arrays.copyOf(wanted, forwardSearch.dist.length);
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Plain Dijkstra from source, stopping as soon as target is settled.
+    // Returns the distance or INFINITY if target is unreachable.
+    // -------------------------------------------------------------
+    int distance(int source, int target) {
+        nextEpoch();
+        Search f = forwardSearch;
+        f.start(source, epoch);
+        while (!f.heap.isEmpty()) {
+            int u = f.heap.poll();
+            if (u == target) {
+                break;
+            }
+            relax(f, null, forward, u);
+        }
+        f.heap.clear();
+        remember(source, target, false);
+        return f.distanceOf(target, epoch);
+    }
+
+    // -------------------------------------------------------------
+    // Bidirectional Dijkstra: a forward search from source and a backward
+    // search from target (over the reversed graph) grow towards each other.
+    // The side with the smaller queue head is expanded; the search stops
+    // once the two heads together can no longer beat the best meeting
+    // point found so far.
+    // -------------------------------------------------------------
+    int bidirectionalDistance(int source, int target) {
+        if (source == target) {
+            return distance(source, target);
+        }
+        if (backwardSearch == null) {
+            backwardSearch = new Search(forwardSearch.dist.length);
+        }
+        nextEpoch();
+        Search f = forwardSearch;
+        Search b = backwardSearch;
+        f.start(source, epoch);
+        b.start(target, epoch);
+        f.best = INFINITY;
+        f.meeting = -1;
+
+        while (!f.heap.isEmpty() && !b.heap.isEmpty()) {
+            if ((long) f.heap.peekKey() + b.heap.peekKey() >= f.best) {
+                break;
+            }
+            if (f.heap.peekKey() <= b.heap.peekKey()) {
+                relax(f, b, forward, f.heap.poll());
+            } else {
+                relax(b, f, backward, b.heap.poll());
+            }
+        }
+        f.heap.clear();
+        b.heap.clear();
+        remember(source, f.meeting, f.meeting >= 0);
+        return f.best;
+    }
+
+    // -------------------------------------------------------------
+    // A* from source to target, guided by the landmark lower bounds.
+    // The ALT heuristic is consistent, so the first time target is
+    // polled its distance is final, exactly as in plain Dijkstra.
+    // -------------------------------------------------------------
+    int aStarDistance(int source, int target, Landmarks landmarks) {
+        nextEpoch();
+        Search f = forwardSearch;
+        if (f.potential == null) {
+            f.potential = new int[f.dist.length];
+        }
+        f.start(source, epoch);
+        f.potential[source] = landmarks.lowerBound(source, target);
+        while (!f.heap.isEmpty()) {
+            int u = f.heap.poll();
+            if (u == target) {
+                break;
+            }
+            int du = f.dist[u];
+            visitedVertices++;
+            scannedEdges += forward.degree(u);
+            for (int e = forward.begin(u); e < forward.end(u); e++) {
+                int v = forward.target(e);
+                int w = forward.weight(e);
+                long nd = (long) du + w;
+                if (f.stamp[v] != epoch) {
+                    f.potential[v] = landmarks.lowerBound(v, target);
+                } else if (nd >= f.dist[v]) {
+                    continue;
+                }
+                if (nd >= INFINITY || f.potential[v] == INFINITY) {
+                    continue; // too long, or target is provably unreachable from v
+                }
+                f.dist[v] = (int) nd;
+                f.stamp[v] = epoch;
+                f.parent[v] = u;
+                f.parentWeight[v] = w;
+                f.heap.insertOrDecrease(v, (int) Math.min(nd + f.potential[v], INFINITY - 1));
+            }
+        }
+        f.heap.clear();
+        remember(source, target, false);
+        return f.distanceOf(target, epoch);
+    }
+
+    // -------------------------------------------------------------
+    // Complete Dijkstra from source over the graph (or, if reversed, over
+    // its reverse, giving distances *to* source). out[v] receives the
+    // distance of every vertex, INFINITY where unreachable.
+    // -------------------------------------------------------------
+    void distancesFrom(int source, boolean reversed, int[] out) {
+        if (reversed && backwardSearch == null) {
+            backwardSearch = new Search(forwardSearch.dist.length);
+        }
+        nextEpoch();
+        Search s = reversed ? backwardSearch : forwardSearch;
+        CompressedGraph g = reversed ? backward : forward;
+        s.start(source, epoch);
+        while (!s.heap.isEmpty()) {
+            relax(s, null, g, s.heap.poll());
+        }
+        for (int v = 0; v < out.length; v++) {
+            out[v] = s.distanceOf(v, epoch);
+        }
+        remember(source, -1, false);
+    }
+
+    // -------------------------------------------------------------
+    // One Dijkstra from source for many targets: stops as soon as every
+    // target is settled. out[i] receives the distance to targets[i],
+    // INFINITY where unreachable.
+    // -------------------------------------------------------------
+    void distancesTo(int source, int[] targets, int[] out) {
+        if (wanted == null) {
+            wanted = new int[forwardSearch.dist.length];
+        }
+        nextEpoch();
+        int remaining = 0;
+        for (int t : targets) {
+            if (wanted[t] != epoch) {
+                wanted[t] = epoch;
+                remaining++;
+            }
+        }
+        Search f = forwardSearch;
+        f.start(source, epoch);
+        while (!f.heap.isEmpty() && remaining > 0) {
+            int u = f.heap.poll();
+            if (wanted[u] == epoch) {
+                wanted[u] = 0;
+                remaining--;
+            }
+            relax(f, null, forward, u);
+        }
+        f.heap.clear();
+        for (int i = 0; i < targets.length; i++) {
+            out[i] = f.distanceOf(targets[i], epoch);
+        }
+        remember(source, -1, false);
+    }
+
+    // The graphs this engine searches, e.g. to search them on another thread.
+    CompressedGraph forward() {
+        return forward;
+    }
+
+    CompressedGraph backward() {
+        return backward;
+    }
+
+    long visitedVertices() {
+        return visitedVertices;
+    }
+
+    long scannedEdges() {
+        return scannedEdges;
+    }
+
+    // Vertices of the path found by the last query, source first.
+    // Empty if the last query found no path.
+    int[] lastPath() {
+        if (lastMeeting < 0 || forwardSearch.distanceOf(lastMeeting, epoch) == INFINITY) {
+            return new int[0];
+        }
+        int head = forwardSearch.hops(lastSource, lastMeeting);
+        int tail = lastBidirectional ? backwardSearch.hopsToRoot(lastMeeting) : 0;
+        int[] path = new int[head + tail + 1];
+        int v = lastMeeting;
+        for (int i = head; i >= 0; i--) {
+            path[i] = v;
+            v = forwardSearch.parent[v];
+        }
+        v = lastMeeting;
+        for (int i = head + 1; i < path.length; i++) {
+            v = backwardSearch.parent[v];
+            path[i] = v;
+        }
+        return path;
+    }
+
+    // Weights of the edges along lastPath(); one shorter than the path.
+    int[] lastPathWeights() {
+        int[] path = lastPath();
+        int[] weights = new int[Math.max(path.length - 1, 0)];
+        if (path.length == 0) {
+            return weights;
+        }
+        // path[0 .. head] came from the forward search, the rest from the backward one.
+        int head = forwardSearch.hops(lastSource, lastMeeting);
+        for (int i = 1; i < path.length; i++) {
+            if (i <= head) {
+                weights[i - 1] = forwardSearch.parentWeight[path[i]];
+            } else {
+                weights[i - 1] = backwardSearch.parentWeight[path[i - 1]];
+            }
+        }
+        return weights;
+    }
+
+    private void remember(int source, int meeting, boolean bidirectional) {
+        lastSource = source;
+        lastMeeting = meeting;
+        lastBidirectional = bidirectional;
+    }
+
+    // Settles u in search s and relaxes its edges in g. When other is given,
+    // every improved vertex is also checked as a meeting point of the two
+    // searches; the best one is kept in forwardSearch.
+    private void relax(Search s, Search other, CompressedGraph g, int u) {
+        int du = s.dist[u];
+        visitedVertices++;
+        scannedEdges += g.degree(u);
+        for (int e = g.begin(u); e < g.end(u); e++) {
+            int v = g.target(e);
+            int w = g.weight(e);
+            long nd = (long) du + w;
+            if (nd < s.distanceOf(v, epoch)) {
+                s.dist[v] = (int) nd;
+                s.stamp[v] = epoch;
+                s.parent[v] = u;
+                s.parentWeight[v] = w;
+                s.heap.insertOrDecrease(v, (int) nd);
+                if (other != null) {
+                    int dv = other.distanceOf(v, epoch);
+                    if (dv != INFINITY && nd + dv < forwardSearch.best) {
+                        forwardSearch.best = (int) (nd + dv);
+                        forwardSearch.meeting = v;
+                    }
+                }
+            }
+        }
+    }
+
+    private void nextEpoch() {
+        epoch++;
+        if (epoch == Integer.MAX_VALUE) {
+            forwardSearch.resetStamps();
+            if (wanted != null) {
+                Arrays.fill(wanted, 0);
+            }
+            if (backwardSearch != null) {
+                backwardSearch.resetStamps();
+            }
+            epoch = 1;
+        }
+    }
+
+    // Per-direction scratch space.
+    private static final class Search {
+        int[] dist;
+        int[] stamp;
+        int[] parent;
+        int[] parentWeight;
+        IndexedMinHeap heap;
+        // A* lower bound per vertex, valid where stamp == epoch.
+        int[] potential;
+        int best;
+        int meeting;
+
+        Search(int n) {
+            dist = new int[n];
+            stamp = new int[n];
+            parent = new int[n];
+            parentWeight = new int[n];
+            heap = new IndexedMinHeap(n);
+        }
+
+        // Room for n vertices, growing by half at least so that adding
+        // vertices one by one does not copy the arrays every time.
+        void ensureCapacity(int n) {
+            if (dist.length >= n) {
+                return;
+            }
+            int capacity = Math.max(n, dist.length + (dist.length >> 1));
+            dist = Arrays.copyOf(dist, capacity);
+            stamp = Arrays.copyOf(stamp, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            parentWeight = Arrays.copyOf(parentWeight, capacity);
+            heap = new IndexedMinHeap(capacity);
+            if (potential != null) {
+                potential = Arrays.copyOf(potential, capacity);
+            }
+        }
+
+        void start(int root, int epoch) {
+            dist[root] = 0;
+            stamp[root] = epoch;
+            parent[root] = -1;
+            heap.insertOrDecrease(root, 0);
+        }
+
+        int distanceOf(int v, int epoch) {
+            return stamp[v] == epoch ? dist[v] : INFINITY;
+        }
+
+        // Number of edges from root to v along parent pointers.
+        int hops(int root, int v) {
+            int count = 0;
+            while (v != root) {
+                v = parent[v];
+                count++;
+            }
+            return count;
+        }
+
+        int hopsToRoot(int v) {
+            int count = 0;
+            while (parent[v] != -1) {
+                v = parent[v];
+                count++;
+            }
+            return count;
+        }
+
+        void resetStamps() {
+            Arrays.fill(stamp, 0);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+import java.util.Arrays;
+
+// -------------------------------------------------------------
+// TraversalEngine
+// Depth-first and multi-target breadth-first traversals over a
+// CompressedGraph without recursion (point-to-point BFS is in
+// FrontierSearch): a depth-first path lives in an explicit int stack
+// together with, for every level, the next out-edge still to be tried.
+// Long chains therefore only cost heap memory, never thread stack.
+//
+// Visited marks are epoch-stamped like the ShortestPathEngine scratch
+// arrays, so starting a query does not clear O(V) state; the on-path
+// bitset used by path enumeration is left empty by every query. Like
+// ShortestPathEngine an engine is cheap to reuse, also across edits of
+// the graph (retarget), but not thread-safe.
+// -------------------------------------------------------------
+final class TraversalEngine {
+
+    // How many enumeration steps run between two looks at the clock.
+    private static final int CLOCK_INTERVAL = 1 << 12;
+
+    private CompressedGraph graph;
+    private int[] mark;
+    private long[] onPath;
+    private int[] stack;
+    private int[] cursor;
+    // wanted[v] == epoch marks a target of reachable().
+    private int[] wanted;
+    private int epoch;
+    private int pathLength;
+    private boolean timedOut;
+    // Vertices entered and edges followed by all queries so far.
+    private long visitedVertices;
+    private long scannedEdges;
+
+    TraversalEngine(CompressedGraph graph) {
+        this.graph = graph;
+        int n = graph.vertexCount();
+        mark = new int[n];
+        onPath = new long[(n + 63) >>> 6];
+        stack = new int[n + 1];
+        cursor = new int[n + 1];
+    }
+
+    // Traverses graph from now on, e.g. the graph after an edit. The
+    // scratch arrays are kept, and grown by half if vertices were added.
+    void retarget(CompressedGraph graph) {
+        this.graph = graph;
+        int n = graph.vertexCount();
+        if (mark.length >= n) {
+            return;
+        }
+        int capacity = Math.max(n, mark.length + (mark.length >> 1));
+        mark = Arrays.copyOf(mark, capacity);
+        onPath = Arrays.copyOf(onPath, (capacity + 63) >>> 6);
+        stack = Arrays.copyOf(stack, capacity + 1);
+        cursor = Arrays.copyOf(cursor, capacity + 1);
+        if (wanted != null) {
+            wanted = Arrays.copyOf(wanted, capacity);
+        }
+    }
+
+    CompressedGraph graph() {
+        return graph;
+    }
+
+    // -------------------------------------------------------------
+    // Depth-first search from source that follows out-edges in order and
+    // stops at the first visit of target. Returns whether target was
+    // reached; lastPath() then holds the DFS tree path to it.
+    // -------------------------------------------------------------
+    boolean depthFirstPath(int source, int target) {
+        nextEpoch();
+        mark[source] = epoch;
+        stack[0] = source;
+        cursor[0] = graph.begin(source);
+        int depth = 1;
+        long vertices = 1;
+        long edges = 0;
+        try {
+            while (depth > 0) {
+                int u = stack[depth - 1];
+                if (u == target) {
+                    pathLength = depth;
+                    return true;
+                }
+                int e = cursor[depth - 1];
+                if (e < graph.end(u)) {
+                    cursor[depth - 1] = e + 1;
+                    edges++;
+                    int v = graph.target(e);
+                    if (mark[v] != epoch) {
+                        mark[v] = epoch;
+                        stack[depth] = v;
+                        cursor[depth] = graph.begin(v);
+                        depth++;
+                        vertices++;
+                    }
+                } else {
+                    depth--;
+                }
+            }
+            pathLength = 0;
+            return false;
+        } finally {
+            visitedVertices += vertices;
+            scannedEdges += edges;
+        }
+    }
+
+    // -------------------------------------------------------------
+    // One breadth-first search from source for many targets: stops as
+    // soon as all of them are reached. out[i] tells whether targets[i]
+    // is reachable from source.
+    // -------------------------------------------------------------
+    void reachable(int source, int[] targets, boolean[] out) {
+        if (wanted == null) {
+            wanted = new int[mark.length];
+        }
+        nextEpoch();
+        int remaining = 0;
+        for (int t : targets) {
+            if (wanted[t] != epoch) {
+                wanted[t] = epoch;
+                remaining++;
+            }
+        }
+        int[] queue = cursor;
+        int head = 0;
+        int tail = 0;
+        mark[source] = epoch;
+        queue[tail++] = source;
+        if (wanted[source] == epoch) {
+            remaining--;
+        }
+        long edges = 0;
+        while (head < tail && remaining > 0) {
+            int u = queue[head++];
+            edges += graph.degree(u);
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                if (mark[v] != epoch) {
+                    mark[v] = epoch;
+                    queue[tail++] = v;
+                    if (wanted[v] == epoch) {
+                        remaining--;
+                    }
+                }
+            }
+        }
+        visitedVertices += tail;
+        scannedEdges += edges;
+        for (int i = 0; i < targets.length; i++) {
+            out[i] = mark[targets[i]] == epoch;
+        }
+    }
+
+    // Vertices of the path found by the last depthFirstPath, source first.
+    int[] lastPath() {
+        int[] path = new int[pathLength];
+        System.arraycopy(stack, 0, path, 0, pathLength);
+        return path;
+    }
+
+    // -------------------------------------------------------------
+    // True if some vertex other than v that v can reach has an edge back
+    // to v, i.e. v lies on a cycle of at least two vertices. Self-loops
+    // alone do not count.
+    // -------------------------------------------------------------
+    boolean liesOnCycle(int v) {
+        nextEpoch();
+        mark[v] = epoch;
+        stack[0] = v;
+        int size = 1;
+        long vertices = 1;
+        long edges = 0;
+        try {
+            while (size > 0) {
+                int u = stack[--size];
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    edges++;
+                    int w = graph.target(e);
+                    if (w == v && u != v) {
+                        return true;
+                    }
+                    if (mark[w] != epoch) {
+                        mark[w] = epoch;
+                        stack[size++] = w;
+                        vertices++;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            visitedVertices += vertices;
+            scannedEdges += edges;
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Counts the simple paths (no vertex twice) from source to target
+    // with at most maxDepth edges by backtracking enumeration. Parallel
+    // edges give distinct paths. A source equal to target has exactly one
+    // path, the empty one. When deadlineNanos (a System.nanoTime() value,
+    // 0 for none) passes, the search stops, timedOut() turns true and
+    // the count found so far is returned.
+    // -------------------------------------------------------------
+    long countSimplePaths(int source, int target, int maxDepth, long deadlineNanos) {
+        return countSimplePaths(source, target, maxDepth, deadlineNanos, -1, null);
+    }
+
+    // The same, except that the paths must also avoid blocked (unless it is
+    // -1), and that hopsToTarget, if given, holds for every vertex a lower
+    // bound on its number of edges to target (Integer.MAX_VALUE if it
+    // cannot reach it within maxDepth); vertices that cannot finish within
+    // maxDepth are never entered.
+    long countSimplePaths(int source, int target, int maxDepth, long deadlineNanos, int blocked,
+            PathCounter.Hops hopsToTarget) {
+        timedOut = false;
+        if (source == target) {
+            return 1;
+        }
+        long count = 0;
+        int steps = 0;
+        long vertices = 1;
+        long edges = 0;
+        if (blocked >= 0) {
+            setOnPath(blocked);
+        }
+        setOnPath(source);
+        stack[0] = source;
+        cursor[0] = graph.begin(source);
+        int depth = 1;
+        while (depth > 0) {
+            int u = stack[depth - 1];
+            int e = cursor[depth - 1];
+            // depth - 1 edges are on the path, so one more is allowed while depth <= maxDepth.
+            if (e < graph.end(u) && depth <= maxDepth) {
+                cursor[depth - 1] = e + 1;
+                edges++;
+                int v = graph.target(e);
+                if (v == target) {
+                    count++;
+                } else if (!isOnPath(v) && (hopsToTarget == null || hopsToTarget.get(v) <= maxDepth - depth)) {
+                    setOnPath(v);
+                    stack[depth] = v;
+                    cursor[depth] = graph.begin(v);
+                    depth++;
+                    vertices++;
+                }
+                if (deadlineNanos != 0 && ++steps == CLOCK_INTERVAL) {
+                    steps = 0;
+                    if (System.nanoTime() - deadlineNanos > 0) {
+                        timedOut = true;
+                        break;
+                    }
+                }
+            } else {
+                clearOnPath(u);
+                depth--;
+            }
+        }
+        while (depth > 0) {
+            clearOnPath(stack[--depth]);
+        }
+        if (blocked >= 0) {
+            clearOnPath(blocked);
+        }
+        visitedVertices += vertices;
+        scannedEdges += edges;
+        return count;
+    }
+
+    long visitedVertices() {
+        return visitedVertices;
+    }
+
+    long scannedEdges() {
+        return scannedEdges;
+    }
+
+    // Whether the last countSimplePaths stopped at its deadline.
+    boolean timedOut() {
+        return timedOut;
+    }
+
+    private boolean isOnPath(int v) {
+        return (onPath[v >>> 6] & (1L << v)) != 0;
+    }
+
+    private void setOnPath(int v) {
+        onPath[v >>> 6] |= 1L << v;
+    }
+
+    private void clearOnPath(int v) {
+        onPath[v >>> 6] &= ~(1L << v);
+    }
+
+    private void nextEpoch() {
+        epoch++;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            if (wanted != null) {
+                Arrays.fill(wanted, 0);
+            }
+            epoch = 1;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+// -------------------------------------------------------------
+// VertexDictionary
+// Vertex names and their ids (0 .. size() - 1, in order of addition) in
+// three flat arrays instead of a HashMap and a list of Strings: the
+// UTF-8 bytes of all names back to back in one arena, an offset table
+// (name v is arena[starts[v], starts[v + 1])), and an open-addressing
+// table of id + 1 (0 = empty) over a power of two slots, at most half
+// full. A name costs its bytes plus 12 to 20 bytes, where a HashMap
+// entry with its Integer and String takes about a hundred, and the GC
+// sees four objects however many names there are. Hashes are not
+// stored: a probe checks the length first, and rehashing reads the
+// names again.
+//
+// id(String) hashes and compares the string's UTF-8 encoding while it
+// walks the chars, so looking a name up never allocates; only name(v)
+// builds a String. Names are never removed. Lookups may run on any
+// number of threads, but not while names are being added; copy() makes
+// an independent dictionary in a few array copies.
+// -------------------------------------------------------------
+final class VertexDictionary {
+
+    private static final int FNV_OFFSET = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+    private static final int MAX_ARENA = Integer.MAX_VALUE - 8;
+
+    private int[] slots;
+    private int[] starts;
+    private byte[] arena;
+    private int size;
+
+    VertexDictionary() {
+        this(16, 256);
+    }
+
+    private VertexDictionary(int capacity, int arenaBytes) {
+        slots = new int[Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) * 2];
+        starts = new int[Math.max(capacity, 1) + 1];
+        arena = new byte[arenaBytes];
+    }
+
+    private VertexDictionary(VertexDictionary other) {
+        slots = other.slots.clone();
+        starts = Arrays.copyOf(other.starts, Math.max(other.size, 1) + 1);
+        arena = Arrays.copyOf(other.arena, other.starts[other.size]);
+        size = other.size;
+    }
+
+    // -------------------------------------------------------------
+    // Builds the dictionary of names stored as in GraphSnapshotFile:
+    // name v is bytes[offsets[v], offsets[v + 1]), the names back to back
+    // from offset 0. Throws IllegalArgumentException if the offsets do not
+    // describe such names or if a name occurs twice.
+    // -------------------------------------------------------------
+    static VertexDictionary fromUtf8(int count, IntBuffer offsets, ByteBuffer bytes) {
+        int length = offsets.get(count);
+        if (offsets.get(0) != 0 || length < 0 || length > bytes.limit()) {
+            throw new IllegalArgumentException("name offsets out of bounds");
+        }
+        VertexDictionary dictionary = new VertexDictionary(count, length);
+        bytes.get(0, dictionary.arena, 0, length);
+        for (int v = 0; v < count; v++) {
+            int from = dictionary.starts[v];
+            int to = offsets.get(v + 1);
+            if (to < from || to > length) {
+                throw new IllegalArgumentException("name offsets out of order");
+            }
+            int hash = hash(dictionary.arena, from, to);
+            int slot = dictionary.find(hash, dictionary.arena, from, to);
+            if (dictionary.slots[slot] != 0) {
+                throw new IllegalArgumentException("duplicate vertex names");
+            }
+            dictionary.starts[v + 1] = to;
+            dictionary.slots[slot] = v + 1;
+            dictionary.size++;
+        }
+        return dictionary;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Id of the named vertex, or -1 (also for a null name).
+    int id(String name) {
+        if (name == null) {
+            return -1;
+        }
+        int hash = FNV_OFFSET;
+        int length = 0;
+        for (int i = 0; i < name.length();) {
+            char c = name.charAt(i);
+            if (c < 0x80) {
+                hash = (hash ^ c) * FNV_PRIME;
+                length++;
+                i++;
+                continue;
+            }
+            long bytes = utf8(name, i);
+            int count = byteCount(bytes);
+            for (int k = 0; k < count; k++) {
+                hash = (hash ^ (byte) (bytes >>> (8 * k))) * FNV_PRIME;
+            }
+            length += count;
+            i += charCount(bytes);
+        }
+        hash ^= hash >>> 16;
+        int mask = slots.length - 1;
+        for (int slot = hash & mask, entry; (entry = slots[slot]) != 0; slot = (slot + 1) & mask) {
+            int v = entry - 1;
+            if (starts[v + 1] - starts[v] == length && matches(v, name)) {
+                return v;
+            }
+        }
+        return -1;
+    }
+
+    // Id of the name whose UTF-8 bytes are b[from, to), or -1.
+    int id(byte[] b, int from, int to) {
+        int entry = slots[find(hash(b, from, to), b, from, to)];
+        return entry - 1;
+    }
+
+    // Id of name, which is added if it is new.
+    int intern(String name) {
+        int v = id(name);
+        if (v >= 0) {
+            return v;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return intern(bytes, 0, bytes.length);
+    }
+
+    // Id of the name whose UTF-8 bytes are b[from, to), which is added if it is new.
+    int intern(byte[] b, int from, int to) {
+        int hash = hash(b, from, to);
+        int slot = find(hash, b, from, to);
+        return slots[slot] != 0 ? slots[slot] - 1 : add(slot, b, from, to);
+    }
+
+    // Id here of name v of other, which is added if it is new. The bytes
+    // are copied as they are, never decoded.
+    int intern(VertexDictionary other, int v) {
+        int from = other.starts[v];
+        int to = other.starts[v + 1];
+        int hash = hash(other.arena, from, to);
+        int slot = find(hash, other.arena, from, to);
+        return slots[slot] != 0 ? slots[slot] - 1 : add(slot, other.arena, from, to);
+    }
+
+    String name(int v) {
+        Objects.checkIndex(v, size);
+        return new String(arena, starts[v], starts[v + 1] - starts[v], StandardCharsets.UTF_8);
+    }
+
+    // The first count names as a read-only list; each get() decodes one.
+    List<String> asList(int count) {
+        Objects.checkFromToIndex(0, count, size);
+        return new Names(count);
+    }
+
+    VertexDictionary copy() {
+        return new VertexDictionary(this);
+    }
+
+    // The offset table and the bytes of the first count names, in the
+    // layout GraphSnapshotFile stores. Views, not copies.
+    IntBuffer offsetBuffer(int count) {
+        return IntBuffer.wrap(starts, 0, count + 1).slice();
+    }
+
+    ByteBuffer byteBuffer(int count) {
+        return ByteBuffer.wrap(arena, 0, starts[count]).slice();
+    }
+
+    // Slot holding the name b[from, to), or the empty slot where it goes.
+    private int find(int hash, byte[] b, int from, int to) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        for (int entry; (entry = slots[slot]) != 0; slot = (slot + 1) & mask) {
+            int v = entry - 1;
+            if (Arrays.equals(arena, starts[v], starts[v + 1], b, from, to)) {
+                break;
+            }
+        }
+        return slot;
+    }
+
+    private int add(int slot, byte[] b, int from, int to) {
+        int v = size;
+        int length = to - from;
+        if (v + 1 == starts.length) {
+            starts = Arrays.copyOf(starts, v * 2 + 1);
+        }
+        int offset = starts[v];
+        if (length > MAX_ARENA - offset) {
+            throw new IllegalStateException("vertex names take more than 2 GB");
+        }
+        if (offset + length > arena.length) {
+            arena = Arrays.copyOf(arena, (int) Math.min(Math.max(2L * arena.length, offset + length), MAX_ARENA));
+        }
+        System.arraycopy(b, from, arena, offset, length);
+        starts[v + 1] = offset + length;
+        slots[slot] = v + 1;
+        size++;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return v;
+    }
+
+    private void rehash() {
+        int[] grown = new int[slots.length * 2];
+        int mask = grown.length - 1;
+        for (int v = 0; v < size; v++) {
+            int slot = hash(arena, starts[v], starts[v + 1]) & mask;
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = v + 1;
+        }
+        slots = grown;
+    }
+
+    // Whether name v is the UTF-8 encoding of name, given equal lengths.
+    private boolean matches(int v, String name) {
+        int p = starts[v];
+        for (int i = 0; i < name.length();) {
+            char c = name.charAt(i);
+            if (c < 0x80) {
+                if (arena[p++] != c) {
+                    return false;
+                }
+                i++;
+                continue;
+            }
+            long bytes = utf8(name, i);
+            int count = byteCount(bytes);
+            for (int k = 0; k < count; k++) {
+                if (arena[p++] != (byte) (bytes >>> (8 * k))) {
+                    return false;
+                }
+            }
+            i += charCount(bytes);
+        }
+        return true;
+    }
+
+    // FNV-1a over the bytes, with the high half folded in for the table.
+    private static int hash(byte[] b, int from, int to) {
+        int h = FNV_OFFSET;
+        for (int i = from; i < to; i++) {
+            h = (h ^ b[i]) * FNV_PRIME;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    // -------------------------------------------------------------
+    // The UTF-8 bytes of the character at s[i], exactly as
+    // String.getBytes(UTF_8) writes them: a surrogate pair is one 4-byte
+    // code point, a lone surrogate becomes '?'. Packed as the bytes in
+    // order from the lowest 8 bits up, their count in bits 32-35 and the
+    // number of chars consumed in bits 36-39, so nothing is allocated.
+    // -------------------------------------------------------------
+    private static long utf8(String s, int i) {
+        long c = s.charAt(i);
+        if (c < 0x80) {
+            return c | 1L << 32 | 1L << 36;
+        }
+        if (c < 0x800) {
+            return (0xC0 | c >> 6) | (0x80 | c & 0x3F) << 8 | 2L << 32 | 1L << 36;
+        }
+        if (Character.isHighSurrogate((char) c) && i + 1 < s.length()
+                && Character.isLowSurrogate(s.charAt(i + 1))) {
+            long cp = Character.toCodePoint((char) c, s.charAt(i + 1));
+            return (0xF0 | cp >> 18) | (0x80 | cp >> 12 & 0x3F) << 8 | (0x80 | cp >> 6 & 0x3F) << 16
+                    | (0x80 | cp & 0x3F) << 24 | 4L << 32 | 2L << 36;
+        }
+        if (Character.isSurrogate((char) c)) {
+            return '?' | 1L << 32 | 1L << 36;
+        }
+        return (0xE0 | c >> 12) | (0x80 | c >> 6 & 0x3F) << 8 | (0x80 | c & 0x3F) << 16 | 3L << 32 | 1L << 36;
+    }
+
+    private static int byteCount(long bytes) {
+        return (int) (bytes >>> 32) & 0xF;
+    }
+
+    private static int charCount(long bytes) {
+        return (int) (bytes >>> 36) & 0xF;
+    }
+
+    private final class Names extends AbstractList<String> implements RandomAccess {
+        private final int count;
+
+        Names(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public String get(int index) {
+            Objects.checkIndex(index, count);
+            return name(index);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+// -------------------------------------------------------------
+// GraphApi
+// The tool's classes live in the unnamed package, which code in a named
+// package cannot import, and JMH does not accept benchmarks in the
+// unnamed package. So the benchmarks reach Graph through method handles.
+// They are static final and exactly typed, so the JIT inlines them and a
+// call costs the same as a direct one; nothing is boxed.
+// -------------------------------------------------------------
+final class GraphApi {
+
+    private static final MethodHandle NEW;
+    private static final MethodHandle READ;
+    private static final MethodHandle IS_THERE_A_PATH;
+    private static final MethodHandle BFS;
+    private static final MethodHandle DFS;
+    private static final MethodHandle SHORTEST_PATH_LENGTH;
+    private static final MethodHandle COUNT_SIMPLE_PATHS;
+    private static final MethodHandle HIGHEST_DEGREE;
+    private static final MethodHandle COMPONENT_SIZE;
+    private static final MethodHandle NAMES;
+
+    static {
+        try {
+            Class<?> graph = Class.forName("Graph");
+            Class<?> snapshot = Class.forName("GraphSnapshot");
+            Class<?> countResult = Class.forName("PathCountResult");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            NEW = lookup.findConstructor(graph, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            READ = virtual(lookup, graph, "ReadGraphFromFile", void.class, String.class, boolean.class);
+            IS_THERE_A_PATH = virtual(lookup, graph, "IsThereAPath", boolean.class, String.class, String.class);
+            BFS = virtual(lookup, graph, "BFSfromTo", void.class, String.class, String.class);
+            DFS = virtual(lookup, graph, "DFSfromTo", void.class, String.class, String.class);
+            SHORTEST_PATH_LENGTH = virtual(lookup, graph, "WhatIsShortestPathLength", int.class, String.class,
+                    String.class);
+            COUNT_SIMPLE_PATHS = lookup.findVirtual(graph, "CountSimplePaths",
+                    MethodType.methodType(countResult, String.class, String.class, int.class, long.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, String.class, String.class, int.class,
+                            long.class));
+            HIGHEST_DEGREE = virtual(lookup, graph, "HighestDegree", List.class);
+            COMPONENT_SIZE = virtual(lookup, graph, "NumberOfVerticesInComponent", int.class, String.class);
+            MethodHandle snapshotOf = lookup.findVirtual(graph, "Snapshot", MethodType.methodType(snapshot));
+            MethodHandle names = lookup.findVirtual(snapshot, "names", MethodType.methodType(List.class));
+            NAMES = MethodHandles.filterReturnValue(snapshotOf, names)
+                    .asType(MethodType.methodType(List.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private GraphApi() {
+    }
+
+    // Handle for graph.name(args) typed (Object, args) -> result.
+    private static MethodHandle virtual(MethodHandles.Lookup lookup, Class<?> graph, String name, Class<?> result,
+            Class<?>... args) throws ReflectiveOperationException {
+        MethodHandle handle = lookup.findVirtual(graph, name, MethodType.methodType(result, args));
+        return handle.asType(handle.type().changeParameterType(0, Object.class));
+    }
+
+    static Object newGraph() {
+        try {
+            return (Object) NEW.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void read(Object graph, String filename, boolean parallel) {
+        try {
+            READ.invokeExact(graph, filename, parallel);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean isThereAPath(Object graph, String v1, String v2) {
+        try {
+            return (boolean) IS_THERE_A_PATH.invokeExact(graph, v1, v2);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void bfsFromTo(Object graph, String v1, String v2) {
+        try {
+            BFS.invokeExact(graph, v1, v2);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void dfsFromTo(Object graph, String v1, String v2) {
+        try {
+            DFS.invokeExact(graph, v1, v2);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int whatIsShortestPathLength(Object graph, String v1, String v2) {
+        try {
+            return (int) SHORTEST_PATH_LENGTH.invokeExact(graph, v1, v2);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // Returns the PathCountResult.
+    static Object countSimplePaths(Object graph, String v1, String v2, int maxDepth, long timeLimitMillis) {
+        try {
+            return (Object) COUNT_SIMPLE_PATHS.invokeExact(graph, v1, v2, maxDepth, timeLimitMillis);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static List<?> highestDegree(Object graph) {
+        try {
+            return (List<?>) HIGHEST_DEGREE.invokeExact(graph);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int numberOfVerticesInComponent(Object graph, String v1) {
+        try {
+            return (int) COMPONENT_SIZE.invokeExact(graph, v1);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<String> vertexNames(Object graph) {
+        try {
+            return (List<String>) NAMES.invokeExact(graph);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+}
@@ -0,0 +1,77 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// -------------------------------------------------------------
+// LoadBenchmark
+// ReadGraphFromFile into a fresh Graph, sequential and parallel. Large
+// inputs take seconds per load, so every invocation is timed on its own
+// (single-shot); the synthetic file is written before timing starts.
+// Synthetic sweeps the generated models over the sizes; GraphTxt loads
+// graph.txt, once per setting of parallel.
+// -------------------------------------------------------------
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public abstract class LoadBenchmark {
+
+    public static class Synthetic extends LoadBenchmark {
+
+        @Param({ "grid", "scalefree", "road" })
+        public String graph;
+
+        // 10^4 to 10^7 vertices. The larger sizes take minutes per trial:
+        // "-p vertices=10000" runs one size, and the 10^7 graphs want a
+        // large heap ("-jvmArgs -Xmx16g").
+        @Param({ "10000", "100000", "1000000", "10000000" })
+        public int vertices;
+
+        @Override
+        String file() {
+            return SyntheticGraphs.file(graph, vertices);
+        }
+    }
+
+    public static class GraphTxt extends LoadBenchmark {
+
+        @Override
+        String file() {
+            return SyntheticGraphs.graphTxt();
+        }
+    }
+
+    @Param({ "false", "true" })
+    public boolean parallel;
+
+    private String path;
+
+    // The graph file to load.
+    abstract String file();
+
+    @Setup(Level.Trial)
+    public void generate() {
+        path = file();
+    }
+
+    @Benchmark
+    public Object readGraphFromFile() {
+        Object g = GraphApi.newGraph();
+        GraphApi.read(g, path, parallel);
+        return g;
+    }
+}
@@ -0,0 +1,157 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// -------------------------------------------------------------
+// QueryBenchmark
+// The Graph queries on a loaded graph, each invocation on the next of
+// PAIRS seeded random vertex pairs, so a run averages over many
+// sources and targets instead of one lucky query. Throughput and
+// sampled latency (p50 ... p99.99) are both reported.
+//
+// BFSfromTo and DFSfromTo print their path; standard output goes to a
+// null stream while the benchmark runs, so formatting is measured but
+// the console is not. NumberOfSimplePaths has no limit and is
+// exponential on cyclic graphs, so the count runs through
+// CountSimplePaths with a depth limit (pathDepth). HighestDegree and
+// NumberOfVerticesInComponent are served from indexes built by the
+// first call; they measure the cached lookup.
+//
+// The runs fork with "-Dpro3.cache=false": with the query cache on,
+// IsThereAPath and WhatIsShortestPathLength would answer the PAIRS
+// pairs from it after the first round, and the searches themselves
+// would go unmeasured. CachedQueryBenchmark times the cache hits.
+//
+// QueryBenchmark.Synthetic sweeps the generated models over the sizes;
+// QueryBenchmark.GraphTxt runs once, on graph.txt as it is.
+// -------------------------------------------------------------
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dpro3.cache=false")
+public abstract class QueryBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    public static class Synthetic extends QueryBenchmark {
+
+        @Param({ "grid", "scalefree", "road" })
+        public String graph;
+
+        // 10^4 to 10^7 vertices. The larger sizes take minutes per trial:
+        // "-p vertices=10000" runs one size, and the 10^7 graphs want a
+        // large heap ("-jvmArgs -Xmx16g").
+        @Param({ "10000", "100000", "1000000", "10000000" })
+        public int vertices;
+
+        @Override
+        String file() {
+            return SyntheticGraphs.file(graph, vertices);
+        }
+    }
+
+    public static class GraphTxt extends QueryBenchmark {
+
+        @Override
+        String file() {
+            return SyntheticGraphs.graphTxt();
+        }
+    }
+
+    @Param({ "6" })
+    public int pathDepth;
+
+    private Object g;
+    private String[] sources;
+    private String[] targets;
+    private int next;
+    private PrintStream console;
+
+    // The graph file to query.
+    abstract String file();
+
+    @Setup(Level.Trial)
+    public void load() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        g = GraphApi.newGraph();
+        GraphApi.read(g, file(), false);
+        List<String> names = GraphApi.vertexNames(g);
+        Random random = new Random(7);
+        sources = new String[PAIRS];
+        targets = new String[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            sources[i] = names.get(random.nextInt(names.size()));
+            targets[i] = names.get(random.nextInt(names.size()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        System.setOut(console);
+    }
+
+    private int pair() {
+        next = (next + 1) & (PAIRS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public boolean isThereAPath() {
+        int i = pair();
+        return GraphApi.isThereAPath(g, sources[i], targets[i]);
+    }
+
+    @Benchmark
+    public void bfsFromTo() {
+        int i = pair();
+        GraphApi.bfsFromTo(g, sources[i], targets[i]);
+    }
+
+    @Benchmark
+    public void dfsFromTo() {
+        int i = pair();
+        GraphApi.dfsFromTo(g, sources[i], targets[i]);
+    }
+
+    @Benchmark
+    public int whatIsShortestPathLength() {
+        int i = pair();
+        return GraphApi.whatIsShortestPathLength(g, sources[i], targets[i]);
+    }
+
+    @Benchmark
+    public Object numberOfSimplePaths() {
+        int i = pair();
+        return GraphApi.countSimplePaths(g, sources[i], targets[i], pathDepth, 0);
+    }
+
+    @Benchmark
+    public List<?> highestDegree() {
+        return GraphApi.highestDegree(g);
+    }
+
+    @Benchmark
+    public int numberOfVerticesInComponent() {
+        return GraphApi.numberOfVerticesInComponent(g, sources[pair()]);
+    }
+}
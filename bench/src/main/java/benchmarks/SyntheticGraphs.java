@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// -------------------------------------------------------------
+// SyntheticGraphs
+// Graph files for the benchmarks, written by GraphGenerator once per
+// (model, size) into java.io.tmpdir/pro3-bench and reused by later runs.
+// The generator is seeded, so a file is the same on every machine.
+//     grid       grid, weights 1..9
+//     road       grid with 10% of the streets missing, weights 10..29
+//     scalefree  undirected Barabasi-Albert with 3 edges per new vertex
+// -------------------------------------------------------------
+final class SyntheticGraphs {
+
+    private static final MethodHandle GENERATOR_MAIN;
+
+    static {
+        try {
+            GENERATOR_MAIN = MethodHandles.publicLookup().findStatic(Class.forName("GraphGenerator"), "main",
+                    MethodType.methodType(void.class, String[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private SyntheticGraphs() {
+    }
+
+    // The tool's own graph.txt, from bench or from the tool's directory.
+    static String graphTxt() {
+        return Paths.get("..", "graph.txt").toFile().exists() ? "../graph.txt" : "graph.txt";
+    }
+
+    // Path of the graph file for model and the given number of vertices;
+    // generated when missing.
+    static String file(String model, int vertices) {
+        String size = Integer.toString(vertices);
+        String[] args;
+        switch (model) {
+            case "grid":
+                args = new String[] { "grid", size };
+                break;
+            case "road":
+                args = new String[] { "grid", size, "--missing", "0.1", "--weights", "10:29" };
+                break;
+            case "scalefree":
+                args = new String[] { "ba", size, "--degree", "3", "--undirected" };
+                break;
+            default:
+                throw new IllegalArgumentException("unknown graph model " + model);
+        }
+        Path dir = Paths.get(System.getProperty("java.io.tmpdir"), "pro3-bench");
+        Path file = dir.resolve(model + "-" + vertices + ".txt");
+        if (Files.exists(file)) {
+            return file.toString();
+        }
+        try {
+            Files.createDirectories(dir);
+            Path partial = dir.resolve(file.getFileName() + ".tmp");
+            String[] withOut = new String[args.length + 2];
+            System.arraycopy(args, 0, withOut, 0, args.length);
+            withOut[args.length] = "--out";
+            withOut[args.length + 1] = partial.toString();
+            GENERATOR_MAIN.invokeExact(withOut);
+            Files.move(partial, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+        return file.toString();
+    }
+}
@@ -0,0 +1,293 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GraphEditTest {
+
+    private static final int VERTICES = 60;
+    private static final int EDITS = 600;
+
+    @TempDir
+    Path dir;
+
+    // -------------------------------------------------------------
+    // Plain adjacency lists with the edit semantics of Graph: parallel
+    // edges are kept, removing or reweighting v1 -> v2 affects all of them.
+    // -------------------------------------------------------------
+    private static final class Reference {
+        final List<String> names = new ArrayList<>();
+        final Map<String, Integer> ids = new HashMap<>();
+        final List<List<int[]>> out = new ArrayList<>();
+
+        int vertex(String name) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            ids.put(name, names.size());
+            names.add(name);
+            out.add(new ArrayList<>());
+            return names.size() - 1;
+        }
+
+        void addEdge(String v1, String v2, int weight) {
+            int a = vertex(v1);
+            out.get(a).add(new int[] { vertex(v2), weight });
+        }
+
+        boolean removeEdge(String v1, String v2) {
+            Integer a = ids.get(v1);
+            Integer b = ids.get(v2);
+            return a != null && b != null && out.get(a).removeIf(e -> e[0] == b);
+        }
+
+        boolean setEdgeWeight(String v1, String v2, int weight) {
+            Integer a = ids.get(v1);
+            Integer b = ids.get(v2);
+            boolean found = false;
+            if (a != null && b != null) {
+                for (int[] e : out.get(a)) {
+                    if (e[0] == b) {
+                        e[1] = weight;
+                        found = true;
+                    }
+                }
+            }
+            return found;
+        }
+
+        boolean[] reachableFrom(int s) {
+            boolean[] seen = new boolean[names.size()];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            seen[s] = true;
+            queue.add(s);
+            while (!queue.isEmpty()) {
+                for (int[] e : out.get(queue.poll())) {
+                    if (!seen[e[0]]) {
+                        seen[e[0]] = true;
+                        queue.add(e[0]);
+                    }
+                }
+            }
+            return seen;
+        }
+
+        int distance(int s, int t) {
+            int[] dist = new int[names.size()];
+            Arrays.fill(dist, Integer.MAX_VALUE);
+            dist[s] = 0;
+            PriorityQueue<int[]> queue = new PriorityQueue<>((x, y) -> Integer.compare(x[1], y[1]));
+            queue.add(new int[] { s, 0 });
+            while (!queue.isEmpty()) {
+                int[] top = queue.poll();
+                if (top[1] > dist[top[0]]) {
+                    continue;
+                }
+                for (int[] e : out.get(top[0])) {
+                    if (top[1] + e[1] < dist[e[0]]) {
+                        dist[e[0]] = top[1] + e[1];
+                        queue.add(new int[] { e[0], dist[e[0]] });
+                    }
+                }
+            }
+            return dist[t] == Integer.MAX_VALUE ? -1 : dist[t];
+        }
+
+        int weakComponentSize(int v) {
+            List<List<Integer>> undirected = new ArrayList<>();
+            for (int u = 0; u < names.size(); u++) {
+                undirected.add(new ArrayList<>());
+            }
+            for (int u = 0; u < names.size(); u++) {
+                for (int[] e : out.get(u)) {
+                    undirected.get(u).add(e[0]);
+                    undirected.get(e[0]).add(u);
+                }
+            }
+            boolean[] seen = new boolean[names.size()];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            seen[v] = true;
+            queue.add(v);
+            int size = 0;
+            while (!queue.isEmpty()) {
+                size++;
+                for (int w : undirected.get(queue.poll())) {
+                    if (!seen[w]) {
+                        seen[w] = true;
+                        queue.add(w);
+                    }
+                }
+            }
+            return size;
+        }
+    }
+
+    private Graph read(Random random) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int v = 0; v < VERTICES; v++) {
+            text.append('v').append(v).append(" ->");
+            for (int i = random.nextInt(3); i > 0; i--) {
+                text.append(" v").append(random.nextInt(VERTICES)).append(':').append(random.nextInt(10)).append(',');
+            }
+            text.append('\n');
+        }
+        Graph graph = new Graph();
+        graph.ReadGraphFromFile(Files.writeString(dir.resolve("graph.txt"), text).toString());
+        return graph;
+    }
+
+    // The reference with the same vertices (in the same order) and edges.
+    private static Reference copy(GraphSnapshot snapshot) {
+        Reference reference = new Reference();
+        List<String> names = snapshot.names();
+        for (String name : names) {
+            reference.vertex(name);
+        }
+        CompressedGraph g = snapshot.graph();
+        for (int v = 0; v < g.vertexCount(); v++) {
+            for (int e = g.begin(v); e < g.end(v); e++) {
+                reference.addEdge(names.get(v), names.get(g.target(e)), g.weight(e));
+            }
+        }
+        return reference;
+    }
+
+    private static void assertSameAnswers(Reference expected, Graph graph, GraphQueryService service, Random random) {
+        int n = expected.names.size();
+        int[] in = new int[n];
+        int[] distinct = new int[n];
+        int max = 0;
+        for (int v = 0; v < n; v++) {
+            HashSet<Integer> targets = new HashSet<>();
+            for (int[] e : expected.out.get(v)) {
+                in[e[0]]++;
+                targets.add(e[0]);
+            }
+            distinct[v] = targets.size();
+            max = Math.max(max, distinct[v]);
+        }
+        int[] histogram = new int[max + 1];
+        List<String> highest = new ArrayList<>();
+        for (int v = 0; v < n; v++) {
+            histogram[distinct[v]]++;
+            if (distinct[v] == max) {
+                highest.add(expected.names.get(v));
+            }
+        }
+        assertArrayEquals(histogram, graph.DegreeHistogram());
+        assertEquals(highest, graph.HighestDegree());
+        assertEquals(highest, service.highestDegree());
+        boolean[][] reach = new boolean[n][];
+        for (int v = 0; v < n; v++) {
+            reach[v] = expected.reachableFrom(v);
+        }
+        for (int v = 0; v < n; v++) {
+            String name = expected.names.get(v);
+            int strong = 0;
+            for (int u = 0; u < n; u++) {
+                if (reach[v][u] && reach[u][v]) {
+                    strong++;
+                }
+            }
+            boolean cycle = false;
+            for (int u = 0; u < n && !cycle; u++) {
+                if (u != v && reach[v][u]) {
+                    for (int[] e : expected.out.get(u)) {
+                        cycle |= e[0] == v;
+                    }
+                }
+            }
+            assertEquals(expected.out.get(v).size(), graph.OutDegree(name), name);
+            assertEquals(in[v], graph.InDegree(name), name);
+            int weak = expected.weakComponentSize(v);
+            assertEquals(weak, graph.NumberOfVerticesInComponent(name), name);
+            assertEquals(strong, graph.NumberOfVerticesInStrongComponent(name), name);
+            assertEquals(cycle, graph.IsThereACycle(name), name);
+            assertEquals(weak, service.componentSize(name), name);
+            assertEquals(strong, service.strongComponentSize(name), name);
+            assertEquals(cycle, service.isThereACycle(name), name);
+        }
+        for (int i = 0; i < 40; i++) {
+            int s = random.nextInt(n);
+            int t = random.nextInt(n);
+            String a = expected.names.get(s);
+            String b = expected.names.get(t);
+            int distance = expected.distance(s, t);
+            assertEquals(reach[s][t], graph.IsThereAPath(a, b), a + " -> " + b);
+            assertEquals(distance, graph.WhatIsShortestPathLength(a, b), a + " -> " + b);
+            assertEquals(reach[s][t], service.isThereAPath(a, b), a + " -> " + b);
+            assertEquals(distance, service.shortestPathLength(a, b), a + " -> " + b);
+        }
+    }
+
+    @Test
+    void randomEditsMatchAFreshReference() throws IOException {
+        Random random = new Random(11);
+        Graph graph = read(random);
+        GraphQueryService service = new GraphQueryService(graph.Snapshot());
+        GraphEditor editor = new GraphEditor(service);
+        Reference expected = copy(graph.Snapshot());
+        // Build the indexes first, so that the edits update them in place.
+        assertSameAnswers(expected, graph, service, random);
+
+        int added = 0;
+        for (int i = 0; i < EDITS; i++) {
+            List<String> names = expected.names;
+            String a = names.get(random.nextInt(names.size()));
+            String b = names.get(random.nextInt(names.size()));
+            int weight = random.nextInt(10);
+            int kind = random.nextInt(20);
+            if (kind < 2) {
+                String name = "n" + added++;
+                expected.vertex(name);
+                assertEquals(true, graph.AddVertex(name));
+                assertEquals(true, editor.addVertex(name));
+            } else if (kind < 11) {
+                if (random.nextInt(10) == 0) {
+                    b = "n" + added++;
+                }
+                expected.addEdge(a, b, weight);
+                graph.AddEdge(a, b, weight);
+                editor.addEdge(a, b, weight);
+            } else if (kind < 16) {
+                // Mostly an edge that exists, so that something is removed.
+                List<int[]> edges = expected.out.get(expected.ids.get(a));
+                if (!edges.isEmpty() && random.nextInt(4) > 0) {
+                    b = names.get(edges.get(random.nextInt(edges.size()))[0]);
+                }
+                boolean removed = expected.removeEdge(a, b);
+                assertEquals(removed, graph.RemoveEdge(a, b));
+                assertEquals(removed, editor.removeEdge(a, b));
+            } else {
+                List<int[]> edges = expected.out.get(expected.ids.get(a));
+                if (!edges.isEmpty()) {
+                    b = names.get(edges.get(random.nextInt(edges.size()))[0]);
+                }
+                boolean set = expected.setEdgeWeight(a, b, weight);
+                assertEquals(set, graph.SetEdgeWeight(a, b, weight));
+                assertEquals(set, editor.setEdgeWeight(a, b, weight));
+            }
+            // The service sees the edits in batches of a few.
+            if (random.nextInt(3) == 0) {
+                editor.publish();
+                assertSameAnswers(expected, graph, service, random);
+            }
+        }
+        editor.publish();
+        assertSameAnswers(expected, graph, service, random);
+    }
+}
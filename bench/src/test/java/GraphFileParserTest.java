@@ -0,0 +1,177 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GraphFileParserTest {
+
+    @TempDir
+    Path dir;
+
+    // -------------------------------------------------------------
+    // The split()-based reader GraphFileParser replaced, kept here as
+    // the reference: vertex names in order of first appearance and each
+    // vertex's edges in file order, as "target:weight".
+    // -------------------------------------------------------------
+    private static final class Reference {
+        final List<String> names = new ArrayList<>();
+        final Map<String, List<String>> edges = new HashMap<>();
+
+        Reference(String text) throws IOException {
+            try (BufferedReader br = new BufferedReader(new StringReader(text))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    String[] splitArrow = line.split("->");
+                    if (splitArrow.length < 2) {
+                        continue;
+                    }
+                    String source = splitArrow[0].trim();
+                    for (String ed : splitArrow[1].trim().split(",")) {
+                        String[] parts = ed.trim().split(":");
+                        if (parts.length == 2) {
+                            String neighbor = parts[0].trim();
+                            int weight = Integer.parseInt(parts[1].trim());
+                            add(source, neighbor, weight);
+                        }
+                    }
+                }
+            } catch (NumberFormatException e) {
+                // The old reader stopped here and kept what it had.
+            }
+        }
+
+        private void add(String source, String target, int weight) {
+            register(source);
+            register(target);
+            edges.get(source).add(target + ":" + weight);
+        }
+
+        private void register(String name) {
+            if (!edges.containsKey(name)) {
+                edges.put(name, new ArrayList<>());
+                names.add(name);
+            }
+        }
+    }
+
+    private Path write(String text) throws IOException {
+        return Files.write(dir.resolve("graph.txt"), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertSameGraph(Reference expected, Graph graph) {
+        GraphSnapshot snapshot = graph.Snapshot();
+        List<String> names = snapshot.names();
+        assertEquals(expected.names, names);
+        CompressedGraph g = snapshot.graph();
+        for (int v = 0; v < g.vertexCount(); v++) {
+            List<String> edges = new ArrayList<>();
+            for (int e = g.begin(v); e < g.end(v); e++) {
+                edges.add(names.get(g.target(e)) + ":" + g.weight(e));
+            }
+            assertEquals(expected.edges.get(names.get(v)), edges, names.get(v));
+        }
+    }
+
+    // Reads text sequentially and in parallel and checks both against the
+    // reference reader.
+    private void check(String text) throws IOException {
+        Reference expected = new Reference(text);
+        String file = write(text).toString();
+        Graph sequential = new Graph();
+        sequential.ReadGraphFromFile(file, false);
+        assertSameGraph(expected, sequential);
+        Graph parallel = new Graph();
+        parallel.ReadGraphFromFile(file, true);
+        assertSameGraph(expected, parallel);
+    }
+
+    @Test
+    void malformedEntriesAreSkippedLikeSplit() throws IOException {
+        check("A -> B: 3, C1, D:, E:4:, F::5, G:6:7, :8, H : +9 ,\n"
+                + "no arrow here\n"
+                + "\n"
+                + "I -> \n"
+                + "J -> K:1 -> L:2\n"
+                + "M->->N:1\n"
+                + "\tO\t->\tP:\t10\t\n"
+                + "Q -> R1, S2\n"
+                + "-> T:11\n"
+                + "A -> A:0, B:-2\n");
+    }
+
+    @Test
+    void lineEndingsAreThoseOfReadLine() throws IOException {
+        check("A -> B:1\r\nB -> C:2\rC -> D:3\n\r\nD -> A:4\r\n\r\nE -> F:5");
+    }
+
+    @Test
+    void badWeightStopsTheRead() throws IOException {
+        check("A -> B:1, C:2\n"
+                + "B -> C:3, D:x, E:4\n"
+                + "C -> F:5\n");
+        check("A -> B:1\nB -> C:99999999999\nC -> D:2\n");
+    }
+
+    // Large enough for the parallel read to split it into several chunks,
+    // with malformed entries, mixed line endings and, optionally, a bad
+    // weight in the last chunk.
+    private static String largeFile(boolean badWeight) {
+        Random random = new Random(5);
+        String[] endings = { "\n", "\r\n", "\r" };
+        StringBuilder text = new StringBuilder();
+        while (text.length() < (12 << 20)) {
+            text.append('v').append(random.nextInt(50_000)).append(" -> ");
+            int degree = random.nextInt(6);
+            for (int i = 0; i < degree; i++) {
+                if (i > 0) {
+                    text.append(", ");
+                }
+                int target = random.nextInt(50_000);
+                switch (random.nextInt(20)) {
+                    case 0:
+                        text.append('C').append(target);
+                        break;
+                    case 1:
+                        text.append('v').append(target).append(':');
+                        break;
+                    case 2:
+                        text.append('v').append(target).append(':').append(1).append(':').append(2);
+                        break;
+                    default:
+                        text.append('v').append(target).append(": ").append(random.nextInt(100));
+                }
+            }
+            text.append(endings[random.nextInt(endings.length)]);
+            if (badWeight && text.length() > (10 << 20)) {
+                text.append("v1 -> v2: 3, v4: 0x10, v5: 6\n");
+                badWeight = false;
+            }
+        }
+        return text.toString();
+    }
+
+    @Test
+    void parallelReadOfALargeFileMatchesTheReference() throws IOException {
+        check(largeFile(false));
+    }
+
+    @Test
+    void badWeightInALaterChunkDropsOnlyWhatFollowsIt() throws IOException {
+        check(largeFile(true));
+    }
+}
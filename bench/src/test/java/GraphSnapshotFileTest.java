@@ -0,0 +1,51 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GraphSnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    private Path graphFile() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int v = 0; v < 2000; v++) {
+            text.append('v').append(v).append(" -> v").append((v + 1) % 2000).append(": 3, v")
+                    .append((v * 7 + 3) % 2000).append(": 5\n");
+        }
+        return Files.writeString(dir.resolve("graph.txt"), text);
+    }
+
+    @Test
+    void rewritingTheOpenSnapshotKeepsBothUsable() throws IOException {
+        Graph source = new Graph();
+        source.ReadGraphFromFile(graphFile().toString());
+        String snapshot = dir.resolve("graph.snap").toString();
+        assertTrue(source.WriteSnapshot(snapshot));
+
+        Graph open = new Graph();
+        assertTrue(open.ReadSnapshot(snapshot));
+        assertTrue(open.WriteSnapshot(snapshot));
+
+        // The open graph still reads the file it mapped ...
+        assertEquals(2000, open.NumberOfVerticesInComponent("v0"));
+        assertEquals(source.WhatIsShortestPathLength("v0", "v1999"), open.WhatIsShortestPathLength("v0", "v1999"));
+
+        // ... and the rewritten file opens with the same graph.
+        Graph reopened = new Graph();
+        assertTrue(reopened.ReadSnapshot(snapshot));
+        assertEquals(source.WhatIsShortestPathLength("v0", "v1999"),
+                reopened.WhatIsShortestPathLength("v0", "v1999"));
+        assertEquals(source.Neighbors("v42"), reopened.Neighbors("v42"));
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.filter(p -> p.toString().endsWith(".tmp")).count());
+        }
+    }
+}
@@ -0,0 +1,193 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PathCounterTest {
+
+    @TempDir
+    Path dir;
+
+    // -------------------------------------------------------------
+    // A small random graph as an edge list, written out as a graph file
+    // and counted by brute force: every simple path, parallel edges as
+    // distinct paths.
+    // -------------------------------------------------------------
+    private static final class Edges {
+        final int vertices;
+        final List<List<Integer>> out = new ArrayList<>();
+        final boolean[] known;
+
+        Edges(int vertices) {
+            this.vertices = vertices;
+            this.known = new boolean[vertices];
+            for (int v = 0; v < vertices; v++) {
+                out.add(new ArrayList<>());
+            }
+        }
+
+        void add(int u, int v) {
+            out.get(u).add(v);
+            known[u] = true;
+            known[v] = true;
+        }
+
+        String text(Random random) {
+            StringBuilder text = new StringBuilder();
+            for (int v = 0; v < vertices; v++) {
+                text.append('v').append(v).append(" ->");
+                for (int w : out.get(v)) {
+                    text.append(" v").append(w).append(':').append(random.nextInt(10)).append(',');
+                }
+                text.append('\n');
+            }
+            return text.toString();
+        }
+
+        // Simple paths from s to t with at most maxDepth edges (any if negative).
+        long count(int s, int t, int maxDepth) {
+            if (!known[s] || !known[t]) {
+                return 0;
+            }
+            return count(s, t, maxDepth < 0 ? Integer.MAX_VALUE : maxDepth, new boolean[vertices]);
+        }
+
+        private long count(int v, int t, int depth, boolean[] onPath) {
+            if (v == t) {
+                return 1;
+            }
+            if (depth == 0) {
+                return 0;
+            }
+            onPath[v] = true;
+            long paths = 0;
+            for (int w : out.get(v)) {
+                if (!onPath[w]) {
+                    paths += count(w, t, depth - 1, onPath);
+                }
+            }
+            onPath[v] = false;
+            return paths;
+        }
+    }
+
+    // Edges only from lower to higher vertices, with parallel edges.
+    private static Edges dag(int vertices, int degree, Random random) {
+        Edges edges = new Edges(vertices);
+        for (int u = 0; u + 1 < vertices; u++) {
+            for (int i = random.nextInt(degree + 1); i > 0; i--) {
+                edges.add(u, u + 1 + random.nextInt(vertices - u - 1));
+            }
+        }
+        return edges;
+    }
+
+    // Any edges, with parallel edges and self-loops.
+    private static Edges cyclic(int vertices, int degree, Random random) {
+        Edges edges = new Edges(vertices);
+        for (int u = 0; u < vertices; u++) {
+            for (int i = random.nextInt(degree + 1); i > 0; i--) {
+                edges.add(u, random.nextInt(vertices));
+            }
+        }
+        return edges;
+    }
+
+    private Graph read(String text) throws IOException {
+        Graph graph = new Graph();
+        graph.ReadGraphFromFile(Files.writeString(dir.resolve("graph.txt"), text).toString());
+        return graph;
+    }
+
+    // Compares every pair at every depth limit; returns how often each
+    // method was used.
+    private int[] assertCountsMatch(Edges edges, Random random) throws IOException {
+        Graph graph = read(edges.text(random));
+        GraphQueryService service = new GraphQueryService(graph.Snapshot());
+        int[] methods = new int[PathCountResult.Method.values().length];
+        for (int s = 0; s < edges.vertices; s++) {
+            for (int t = 0; t < edges.vertices; t++) {
+                String a = "v" + s;
+                String b = "v" + t;
+                assertEquals(edges.count(s, t, -1), graph.NumberOfSimplePaths(a, b), a + " -> " + b);
+                for (int depth = -1; depth <= edges.vertices; depth++) {
+                    BigInteger expected = BigInteger.valueOf(edges.count(s, t, depth));
+                    PathCountResult actual = graph.CountSimplePaths(a, b, depth, 60_000);
+                    assertEquals(expected, actual.count(), a + " -> " + b + " within " + depth);
+                    assertTrue(actual.isExact());
+                    assertEquals(expected, service.countSimplePaths(a, b, depth, 60_000).count());
+                    methods[actual.method().ordinal()]++;
+                }
+            }
+        }
+        return methods;
+    }
+
+    @Test
+    void dynamicProgramMatchesBruteForceOnDags() throws IOException {
+        Random random = new Random(21);
+        for (int i = 0; i < 20; i++) {
+            int[] methods = assertCountsMatch(dag(6 + random.nextInt(8), 3, random), random);
+            assertEquals(0, methods[PathCountResult.Method.ENUMERATION.ordinal()]);
+            assertNotEquals(0, methods[PathCountResult.Method.DYNAMIC_PROGRAMMING.ordinal()]);
+        }
+    }
+
+    @Test
+    void enumerationMatchesBruteForceOnCyclicGraphs() throws IOException {
+        Random random = new Random(22);
+        int enumerated = 0;
+        for (int i = 0; i < 20; i++) {
+            int[] methods = assertCountsMatch(cyclic(5 + random.nextInt(6), 3, random), random);
+            enumerated += methods[PathCountResult.Method.ENUMERATION.ordinal()];
+        }
+        assertNotEquals(0, enumerated);
+    }
+
+    // Complete directed graph: between two vertices of k there are
+    // sum over i of (k-2)!/(k-2-i)! simple paths, too many to count here.
+    @Test
+    void timeLimitGivesALowerBound() throws IOException {
+        int k = 16;
+        Edges edges = new Edges(k);
+        for (int u = 0; u < k; u++) {
+            for (int v = 0; v < k; v++) {
+                if (u != v) {
+                    edges.add(u, v);
+                }
+            }
+        }
+        BigInteger total = BigInteger.ZERO;
+        BigInteger paths = BigInteger.ONE;
+        for (int i = 0; i <= k - 2; i++) {
+            total = total.add(paths);
+            paths = paths.multiply(BigInteger.valueOf(k - 2 - i));
+        }
+        Graph graph = read(edges.text(new Random(23)));
+
+        long start = System.nanoTime();
+        PathCountResult result = graph.CountSimplePaths("v0", "v1", -1, 50);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertFalse(result.isExact());
+        assertEquals(PathCountResult.Method.ENUMERATION, result.method());
+        assertTrue(result.count().signum() > 0);
+        assertTrue(result.count().compareTo(total) < 0);
+        assertTrue(result.toString().startsWith("at least "));
+        assertTrue(millis < 10_000, millis + " ms");
+
+        // A depth limit small enough to finish is exact again.
+        PathCountResult shallow = graph.CountSimplePaths("v0", "v1", 3, 60_000);
+        assertTrue(shallow.isExact());
+        assertEquals(BigInteger.valueOf(1 + 14 + 14 * 13), shallow.count());
+    }
+}
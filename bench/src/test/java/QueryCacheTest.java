@@ -0,0 +1,130 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.Test;
+
+class QueryCacheTest {
+
+    private static final int VERTICES = 2000;
+
+    private static CompressedGraph randomGraph() {
+        Random random = new Random(1);
+        EdgeBuffer edges = new EdgeBuffer(16);
+        for (int i = 0; i < 4 * VERTICES; i++) {
+            edges.add(random.nextInt(VERTICES), random.nextInt(VERTICES), 1 + random.nextInt(20));
+        }
+        return new CompressedGraph(VERTICES, edges);
+    }
+
+    @Test
+    void hotSourceGetsItsTreeCached() {
+        CompressedGraph graph = randomGraph();
+        ShortestPathEngine engine = new ShortestPathEngine(graph, graph.reverse());
+        ShortestPathEngine reference = new ShortestPathEngine(graph, graph.reverse());
+        // Trees are built on the calling thread, so they are there at once.
+        QueryCache cache = new QueryCache(1 << 20, Runnable::run);
+
+        // Every query a different target, so every one misses.
+        for (int t = 1; t <= QueryCache.HOT_SOURCE; t++) {
+            assertEquals(reference.distance(0, t), cache.distance(1, engine, VERTICES, 0, t));
+        }
+        assertEquals(1, cache.treeCount());
+        assertEquals(QueryCache.HOT_SOURCE, cache.misses());
+
+        // From now on the source's queries are answered from its tree.
+        long hits = cache.hits();
+        for (int t = 100; t < 200; t++) {
+            assertEquals(reference.distance(0, t), cache.distance(1, engine, VERTICES, 0, t));
+        }
+        assertEquals(hits + 100, cache.hits());
+    }
+
+    @Test
+    void sourceMissesCountOnlyWithinOneVersion() {
+        CompressedGraph graph = randomGraph();
+        ShortestPathEngine engine = new ShortestPathEngine(graph, graph.reverse());
+        ShortestPathEngine reference = new ShortestPathEngine(graph, graph.reverse());
+        QueryCache cache = new QueryCache(1 << 20, Runnable::run);
+
+        // A change between every two queries: no version sees the source as hot.
+        for (int t = 1; t <= 4 * QueryCache.HOT_SOURCE; t++) {
+            assertEquals(reference.distance(0, t), cache.distance(t, engine, VERTICES, 0, t));
+        }
+        assertEquals(0, cache.treeCount());
+    }
+
+    @Test
+    void answersFromAnOlderVersionDoNotDropNewerOnes() {
+        QueryCache cache = new QueryCache(1 << 20);
+        for (int a = 0; a < 100; a++) {
+            cache.put(2, QueryCache.DISTANCE, a, a + 1, a);
+        }
+        // Queries still running on version 1 finish after version 2 began.
+        for (int a = 0; a < 100; a++) {
+            cache.put(1, QueryCache.DISTANCE, a, a + 2, a);
+        }
+        for (int a = 0; a < 100; a++) {
+            assertEquals(a, cache.get(2, QueryCache.DISTANCE, a, a + 1));
+            assertEquals(QueryCache.MISS, cache.get(1, QueryCache.DISTANCE, a, a + 2));
+            assertEquals(QueryCache.MISS, cache.get(1, QueryCache.DISTANCE, a, a + 1));
+        }
+    }
+
+    private static int answer(int op, int a, int b) {
+        return (a * 31 + b) ^ op;
+    }
+
+    @Test
+    void concurrentLookupsNeverSeeAnotherPairsAnswer() throws Exception {
+        // Small, so stores keep growing and evicting under the lookups.
+        QueryCache cache = new QueryCache(64 << 10);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                done.add(threads.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 200_000; i++) {
+                        int op = random.nextInt(2);
+                        int a = random.nextInt(3000);
+                        int b = random.nextInt(30);
+                        int value = cache.get(1, op, a, b);
+                        if (value == QueryCache.MISS) {
+                            cache.put(1, op, a, b, answer(op, a, b));
+                        } else {
+                            assertEquals(answer(op, a, b), value);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @Test
+    void zeroBytesTurnsTheCacheOff() {
+        CompressedGraph graph = randomGraph();
+        ShortestPathEngine engine = new ShortestPathEngine(graph, graph.reverse());
+        ShortestPathEngine reference = new ShortestPathEngine(graph, graph.reverse());
+        QueryCache cache = new QueryCache(0);
+        for (int i = 0; i < 2 * QueryCache.HOT_SOURCE; i++) {
+            assertEquals(reference.distance(0, 5), cache.distance(1, engine, VERTICES, 0, 5));
+        }
+        cache.put(1, QueryCache.DISTANCE, 0, 5, 42);
+        assertEquals(QueryCache.MISS, cache.get(1, QueryCache.DISTANCE, 0, 5));
+        assertEquals(0, cache.hits());
+        assertEquals(0, cache.treeCount());
+        assertEquals("Query cache: off", cache.report());
+    }
+}
@@ -0,0 +1,131 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RoutingModeTest {
+
+    private static final int PAIRS = 1000;
+
+    @TempDir
+    Path dir;
+
+    private Graph read(String text) throws IOException {
+        Graph graph = new Graph();
+        graph.ReadGraphFromFile(Files.writeString(dir.resolve("graph.txt"), text).toString());
+        return graph;
+    }
+
+    // side x side grid with edges both ways, some of them missing, so that
+    // some pairs have no path.
+    private static String grid(int side, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int v = 0; v < side * side; v++) {
+            text.append('v').append(v).append(" ->");
+            int[] next = { v % side > 0 ? v - 1 : -1, v % side < side - 1 ? v + 1 : -1, v - side, v + side };
+            for (int w : next) {
+                if (w >= 0 && w < side * side && random.nextInt(10) > 0) {
+                    text.append(" v").append(w).append(':').append(random.nextInt(20)).append(',');
+                }
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    // Directed random graph with parallel edges, self-loops and zero
+    // weights. At a high degree the hierarchy is all core.
+    private static String random(int vertices, int degree, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int v = 0; v < vertices; v++) {
+            text.append('v').append(v).append(" ->");
+            for (int i = 0; i < degree; i++) {
+                text.append(" v").append(random.nextInt(vertices)).append(':').append(random.nextInt(30)).append(',');
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    // The path's edges exist with the reported weights and add up to the
+    // reported distance.
+    private static void assertValidPath(GraphSnapshot snapshot, PathResult path) {
+        CompressedGraph g = snapshot.graph();
+        List<String> vertices = path.vertices();
+        int sum = 0;
+        for (int i = 0; i + 1 < vertices.size(); i++) {
+            int u = snapshot.id(vertices.get(i));
+            int v = snapshot.id(vertices.get(i + 1));
+            boolean found = false;
+            for (int e = g.begin(u); e < g.end(u) && !found; e++) {
+                found = g.target(e) == v && g.weight(e) == path.weight(i);
+            }
+            assertTrue(found, vertices.get(i) + " -> " + vertices.get(i + 1));
+            sum += path.weight(i);
+        }
+        assertEquals(path.distance(), sum);
+    }
+
+    private static void assertModesAgree(Graph graph, long seed) {
+        graph.PrepareLandmarks(Graph.DEFAULT_LANDMARKS);
+        graph.PrepareContractionHierarchy();
+        GraphSnapshot snapshot = graph.Snapshot();
+        List<String> names = snapshot.names();
+        GraphQueryService service = new GraphQueryService(snapshot, 0);
+        Random random = new Random(seed);
+        for (int i = 0; i < PAIRS; i++) {
+            String s = names.get(random.nextInt(names.size()));
+            String t = names.get(random.nextInt(names.size()));
+            PathResult expected = graph.ShortestPath(s, t, RoutingMode.DIJKSTRA);
+            for (RoutingMode mode : RoutingMode.values()) {
+                PathResult actual = graph.ShortestPath(s, t, mode);
+                assertEquals(expected.distance(), actual.distance(), mode + " " + s + " -> " + t);
+                assertEquals(expected.distance(), service.shortestPath(s, t, mode).distance(), mode + " service");
+                if (actual.found()) {
+                    assertEquals(s, actual.vertices().get(0));
+                    assertEquals(t, actual.vertices().get(actual.vertices().size() - 1));
+                    assertValidPath(snapshot, actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    void altAndChAgreeWithDijkstraOnAGrid() throws IOException {
+        assertModesAgree(read(grid(60, 1)), 2);
+    }
+
+    @Test
+    void altAndChAgreeWithDijkstraOnADenseRandomGraph() throws IOException {
+        assertModesAgree(read(random(500, 30, 3)), 4);
+    }
+
+    @Test
+    void altAndChAgreeWithDijkstraOnASparseRandomGraph() throws IOException {
+        assertModesAgree(read(random(3000, 2, 5)), 6);
+    }
+
+    @Test
+    void chNeedsAPreparedHierarchy() throws IOException {
+        Graph graph = read(grid(10, 7));
+        assertTrue(graph.ShortestPath("v0", "v99", RoutingMode.DIJKSTRA).found());
+        assertFalse(graph.ShortestPath("v0", "v99", RoutingMode.CH).found());
+
+        graph.PrepareContractionHierarchy();
+        assertEquals(graph.WhatIsShortestPathLength("v0", "v99"),
+                graph.ShortestPath("v0", "v99", RoutingMode.CH).distance());
+
+        // An edit drops the hierarchy instead of rebuilding it in the next query.
+        graph.AddEdge("v0", "v99", 1);
+        assertFalse(graph.ShortestPath("v0", "v99", RoutingMode.CH).found());
+    }
+}